@@ -0,0 +1,230 @@
+/**
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apigee.apihub.config.mavenplugin;
+
+import static java.lang.String.format;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.apigee.apihub.config.utils.BuildProfile;
+import com.apigee.apihub.config.utils.ConfigEntry;
+import com.apigee.apihub.config.utils.ConfigReader;
+import com.apigee.apihub.config.utils.ConfigStream;
+import com.apigee.apihub.config.utils.ExportWriter;
+import com.apigee.apihub.config.utils.ProtoJsonUtil;
+import com.apigee.apihub.config.utils.ResourceNameRewriter;
+import com.google.cloud.apihub.v1.Spec;
+import com.google.cloud.apihub.v1.SpecContents;
+
+/**
+ * Measures each stage of the per item JSON/proto transformation, on import (config file to proto)
+ * and on export (proto to config file), for a small spec and a spec with 1 MB contents.
+ *
+ * Run with {@code java -jar target/benchmarks.jar TransformBenchmark -prof gc} to also report
+ * the allocation rate per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransformBenchmark {
+
+	@Param({"1024", "1048576"})
+	public int contentsBytes;
+
+	private SpecsMojo mojo;
+	private BuildProfile profile;
+	private File configDir;
+	private File configFile;
+	private File exportDir;
+
+	// import inputs
+	private String configEntry;
+	private Spec placeholderSpec;
+	private ResourceNameRewriter targetRewriter;
+	private Spec parsedSpec;
+	private ConfigEntry<Spec> indexedSpec;
+
+	// export inputs
+	private Spec spec;
+	private SpecContents specContents;
+	private Spec exportedSpec;
+	private List<Spec> exportedList;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		mojo = new SpecsMojo();
+		profile = new BuildProfile();
+		profile.setProjectId("bench-project");
+		profile.setLocation("us-central1");
+		configDir = Files.createTempDirectory("apihub-bench").toFile();
+		exportDir = new File(configDir, "export");
+		exportDir.mkdirs();
+		configFile = new File(configDir, "specs.json");
+		Files.write(configFile.toPath(), ("[" + specConfig(contentsBytes) + "]").getBytes(StandardCharsets.UTF_8));
+
+		configEntry = specConfig(contentsBytes);
+		placeholderSpec = ProtoJsonUtil.fromJson(configEntry, Spec.class);
+		targetRewriter = ResourceNameRewriter.toTarget(profile);
+		parsedSpec = ConfigReader.parseConfig(configFile.getAbsolutePath(), Spec.class, profile).get(0);
+		try (ConfigStream<Spec> specs = ConfigReader.streamConfig(configFile.getAbsolutePath(), Spec.class, profile, "contents", "contents")) {
+			indexedSpec = specs.entries().iterator().next();
+		}
+
+		spec = parsedSpec;
+		specContents = spec.getContents();
+		spec = spec.toBuilder().clearContents().build();
+		exportedSpec = exportSpec();
+		exportedList = Collections.singletonList(exportedSpec);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		for (File f : exportDir.listFiles()) {
+			f.delete();
+		}
+		exportDir.delete();
+		configFile.delete();
+		configDir.delete();
+	}
+
+	// import stages
+
+	@Benchmark
+	public Spec importFromJson() throws Exception {
+		return ProtoJsonUtil.fromJson(configEntry, Spec.class);
+	}
+
+	@Benchmark
+	public Spec importRewrite() {
+		return targetRewriter.rewrite(placeholderSpec);
+	}
+
+	@Benchmark
+	public String importGetId() {
+		return mojo.getSpecId(parsedSpec);
+	}
+
+	@Benchmark
+	public String importGetName() {
+		return mojo.getSpecName(parsedSpec);
+	}
+
+	@Benchmark
+	public List<Spec> importTotal() throws Exception {
+		// read, parse and rewrite every entry of the file
+		return ConfigReader.parseConfig(configFile.getAbsolutePath(), Spec.class, profile);
+	}
+
+	@Benchmark
+	public long importIndexed() throws Exception {
+		// contents left in the file, as for a spec that is skipped
+		long offsets = 0;
+		try (ConfigStream<Spec> specs = ConfigReader.streamConfig(configFile.getAbsolutePath(), Spec.class, profile, "contents", "contents")) {
+			for (ConfigEntry<Spec> entry : specs.entries()) {
+				offsets += entry.getDeferredBytes().getOffset();
+			}
+		}
+		return offsets;
+	}
+
+	@Benchmark
+	public Spec importMaterialize() throws Exception {
+		// contents read back from the file, as for a spec that is created or updated
+		return mojo.withContents(indexedSpec);
+	}
+
+	// export stages
+
+	@Benchmark
+	public Spec exportEmbedContents() throws Exception {
+		return exportSpec();
+	}
+
+	@Benchmark
+	public String exportSerialize() throws Exception {
+		// one pass: field stripping, name rewrite and contents
+		StringWriter out = new StringWriter();
+		try (ExportWriter writer = new ExportWriter(out)) {
+			writer.write(exportedSpec);
+		}
+		return out.toString();
+	}
+
+	@Benchmark
+	public void exportWriteFile() throws Exception {
+		ExportWriter.exportToFile(exportedList, exportDir.getAbsolutePath(), "specs");
+	}
+
+	@Benchmark
+	public void exportTotal() throws Exception {
+		ExportWriter.exportToFile(Collections.singletonList(exportSpec()), exportDir.getAbsolutePath(), "specs");
+	}
+
+	/**
+	 * Same steps as SpecsMojo.exportSpec once the spec and its contents are fetched
+	 */
+	private Spec exportSpec() {
+		return spec.toBuilder().setContents(specContents).build();
+	}
+
+	/**
+	 * A spec entry as written by export, with OpenAPI contents of roughly the given size
+	 */
+	static String specConfig(int contentsBytes) {
+		StringBuilder yaml = new StringBuilder("openapi: 3.0.0\ninfo:\n  title: Petstore\n  version: 1.0.0\npaths:\n");
+		int i = 0;
+		while (yaml.length() < contentsBytes) {
+			yaml.append(format("  /pets/%d:\n    get:\n      summary: Get pet %d\n      responses:\n        '200':\n          description: OK\n", i, i));
+			i++;
+		}
+		String contents = Base64.getEncoder().encodeToString(yaml.toString().getBytes(StandardCharsets.UTF_8));
+		return "{"
+				+ "\"name\":\"projects/PROJECT_ID/locations/LOCATION/apis/petstore/versions/v1/specs/openapi\","
+				+ "\"displayName\":\"Petstore OpenAPI\","
+				+ "\"specType\":{\"attribute\":\"projects/PROJECT_ID/locations/LOCATION/attributes/system-spec-type\","
+				+ "\"enumValues\":{\"values\":[{\"id\":\"openapi\"}]}},"
+				+ "\"attributes\":{\"projects/PROJECT_ID/locations/LOCATION/attributes/system-team\":"
+				+ "{\"enumValues\":{\"values\":[{\"id\":\"team-a\"}]}}},"
+				+ "\"contents\":{\"contents\":\"" + contents + "\",\"mimeType\":\"application/yaml\"}"
+				+ "}";
+	}
+}
@@ -16,9 +16,17 @@
 
 package com.apigee.apihub.config.mavenplugin;
 
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
 import org.apache.maven.plugin.AbstractMojo;
 
+import com.apigee.apihub.config.utils.ApiHubTransport;
 import com.apigee.apihub.config.utils.BuildProfile;
+import com.apigee.apihub.config.utils.ConfigCache;
+import com.apigee.apihub.config.utils.RetryConfig;
+import com.apigee.apihub.config.utils.Shard;
+import com.google.api.client.util.Strings;
 
 public abstract class ApiHubAbstractMojo extends AbstractMojo {
 
@@ -64,7 +72,7 @@ public abstract class ApiHubAbstractMojo extends AbstractMojo {
 	private String location;
 
 	/**
-	 * Spec Directory
+	 * Spec Directory, the files referenced by contents.file in specs.json are relative to it
 	 *
 	 * @parameter property="apigee.apihub.spec.dir"
 	 */
@@ -90,6 +98,211 @@ public abstract class ApiHubAbstractMojo extends AbstractMojo {
 	 */
 	private boolean forceDelete;
 
+	/**
+	 * Max attempts for reads (get/list), including the first attempt
+	 *
+	 * @parameter property="apigee.apihub.retry.read.maxAttempts" default-value="5"
+	 */
+	private int readRetryMaxAttempts;
+
+	/**
+	 * Initial backoff in milliseconds for reads (get/list)
+	 *
+	 * @parameter property="apigee.apihub.retry.read.initialBackoffMillis" default-value="1000"
+	 */
+	private long readRetryInitialBackoffMillis;
+
+	/**
+	 * Max backoff in milliseconds for reads (get/list)
+	 *
+	 * @parameter property="apigee.apihub.retry.read.maxBackoffMillis" default-value="32000"
+	 */
+	private long readRetryMaxBackoffMillis;
+
+	/**
+	 * Total timeout in milliseconds for reads (get/list), across all attempts
+	 *
+	 * @parameter property="apigee.apihub.retry.read.totalTimeoutMillis" default-value="300000"
+	 */
+	private long readRetryTotalTimeoutMillis;
+
+	/**
+	 * Max attempts for idempotent writes (update/delete), including the first attempt
+	 *
+	 * @parameter property="apigee.apihub.retry.write.maxAttempts" default-value="5"
+	 */
+	private int writeRetryMaxAttempts;
+
+	/**
+	 * Initial backoff in milliseconds for idempotent writes (update/delete)
+	 *
+	 * @parameter property="apigee.apihub.retry.write.initialBackoffMillis" default-value="1000"
+	 */
+	private long writeRetryInitialBackoffMillis;
+
+	/**
+	 * Max backoff in milliseconds for idempotent writes (update/delete)
+	 *
+	 * @parameter property="apigee.apihub.retry.write.maxBackoffMillis" default-value="32000"
+	 */
+	private long writeRetryMaxBackoffMillis;
+
+	/**
+	 * Total timeout in milliseconds for idempotent writes (update/delete), across all attempts
+	 *
+	 * @parameter property="apigee.apihub.retry.write.totalTimeoutMillis" default-value="300000"
+	 */
+	private long writeRetryTotalTimeoutMillis;
+
+	/**
+	 * Max attempts for creates, including the first attempt
+	 *
+	 * @parameter property="apigee.apihub.retry.create.maxAttempts" default-value="3"
+	 */
+	private int createRetryMaxAttempts;
+
+	/**
+	 * Initial backoff in milliseconds for creates
+	 *
+	 * @parameter property="apigee.apihub.retry.create.initialBackoffMillis" default-value="1000"
+	 */
+	private long createRetryInitialBackoffMillis;
+
+	/**
+	 * Max backoff in milliseconds for creates
+	 *
+	 * @parameter property="apigee.apihub.retry.create.maxBackoffMillis" default-value="32000"
+	 */
+	private long createRetryMaxBackoffMillis;
+
+	/**
+	 * Total timeout in milliseconds for creates, across all attempts
+	 *
+	 * @parameter property="apigee.apihub.retry.create.totalTimeoutMillis" default-value="300000"
+	 */
+	private long createRetryTotalTimeoutMillis;
+
+	/**
+	 * Max API Hub read calls (get/list) per minute. 0 disables the limit
+	 *
+	 * @parameter property="apigee.apihub.rateLimit.read" default-value="0"
+	 */
+	private int readRateLimit;
+
+	/**
+	 * Max API Hub write calls (create/update/delete) per minute. 0 disables the limit
+	 *
+	 * @parameter property="apigee.apihub.rateLimit.write" default-value="0"
+	 */
+	private int writeRateLimit;
+
+	/**
+	 * Number of API Hub operations in flight. In adaptive mode this is the starting point
+	 *
+	 * @parameter property="apigee.apihub.concurrency" default-value="1"
+	 */
+	private int concurrency;
+
+	/**
+	 * Adjust the concurrency to the observed latency and throttling. Default is false.
+	 *
+	 * @parameter property="apigee.apihub.concurrency.adaptive" default-value="false"
+	 */
+	private boolean adaptiveConcurrency;
+
+	/**
+	 * Upper bound for the adaptive concurrency
+	 *
+	 * @parameter property="apigee.apihub.concurrency.max" default-value="32"
+	 */
+	private int maxConcurrency;
+
+	/**
+	 * Max bytes of spec contents held by the requests in flight. Default is 0 (unlimited)
+	 *
+	 * @parameter property="apigee.apihub.maxInFlightBytes" default-value="0"
+	 */
+	private long maxInFlightBytes;
+
+	/**
+	 * Keep applying the remaining items when one fails, skipping the children of failed items, and
+	 * fail at the end with a failure report. Default is false.
+	 *
+	 * @parameter property="apigee.apihub.continueOnError" default-value="false"
+	 */
+	private boolean continueOnError;
+
+	/**
+	 * File the failed and skipped items are reported to
+	 *
+	 * @parameter property="apigee.apihub.failureReport" default-value="${project.build.directory}/apihub-failures.json"
+	 */
+	private String failureReport;
+
+	/**
+	 * Failure report of a previous run: only the items it lists are applied
+	 *
+	 * @parameter property="apigee.apihub.include"
+	 */
+	private String include;
+
+	/**
+	 * Journal the items applied and, when a run with the same config and options was interrupted,
+	 * skip the items it already applied. Default is false.
+	 *
+	 * @parameter property="apigee.apihub.resume" default-value="false"
+	 */
+	private boolean resume;
+
+	/**
+	 * Directory of the progress journals
+	 *
+	 * @parameter property="apigee.apihub.resume.dir" default-value="${project.build.directory}/apihub-journal"
+	 */
+	private String resumeDir;
+
+	/**
+	 * Partition of the config items to apply, i/n with i from 1 to n
+	 *
+	 * @parameter property="apigee.apihub.shard"
+	 */
+	private String shard;
+
+	/**
+	 * Cache service account access tokens on disk between runs. Default is false.
+	 *
+	 * @parameter property="apigee.apihub.tokenCache" default-value="false"
+	 */
+	private boolean tokenCache;
+
+	/**
+	 * Directory of the access token cache
+	 *
+	 * @parameter property="apigee.apihub.tokenCache.dir" default-value="${user.home}/.apigee-apihub/tokens"
+	 */
+	private String tokenCacheDir;
+
+	/**
+	 * Transport used to call API Hub. Only rest (HttpJson) is supported
+	 *
+	 * @parameter property="apigee.apihub.transport" default-value="rest"
+	 */
+	private String transport;
+
+	/**
+	 * HTTP proxy (host:port) used to reach API Hub
+	 *
+	 * @parameter property="apigee.apihub.proxy"
+	 */
+	private String proxy;
+
+	/**
+	 * API Hub endpoint override, for example a local fake (http://localhost:8080)
+	 *
+	 * @parameter property="apigee.apihub.endpoint"
+	 */
+	private String endpoint;
+
 	/**
 	 * Skip running this plugin. Default is false.
 	 *
@@ -97,6 +310,9 @@ public abstract class ApiHubAbstractMojo extends AbstractMojo {
 	 */
 	private boolean skip = false;
 
+	// config parsed once for several targets, see apply-targets
+	private ConfigCache configCache;
+
 	public BuildProfile buildProfile;
 
 	public ApiHubAbstractMojo() {
@@ -115,6 +331,34 @@ public abstract class ApiHubAbstractMojo extends AbstractMojo {
 		this.buildProfile.setServiceAccountFilePath(this.serviceAccountFilePath);
 		this.buildProfile.setBearer(this.bearer);
 		this.buildProfile.setForceDelete(this.forceDelete);
+		this.buildProfile.setReadRetry(new RetryConfig(this.readRetryMaxAttempts, this.readRetryInitialBackoffMillis,
+				this.readRetryMaxBackoffMillis, this.readRetryTotalTimeoutMillis));
+		this.buildProfile.setWriteRetry(new RetryConfig(this.writeRetryMaxAttempts, this.writeRetryInitialBackoffMillis,
+				this.writeRetryMaxBackoffMillis, this.writeRetryTotalTimeoutMillis));
+		this.buildProfile.setCreateRetry(new RetryConfig(this.createRetryMaxAttempts, this.createRetryInitialBackoffMillis,
+				this.createRetryMaxBackoffMillis, this.createRetryTotalTimeoutMillis));
+		this.buildProfile.setReadRateLimit(this.readRateLimit);
+		this.buildProfile.setWriteRateLimit(this.writeRateLimit);
+		this.buildProfile.setConcurrency(this.concurrency);
+		this.buildProfile.setMaxConcurrency(this.maxConcurrency);
+		this.buildProfile.setAdaptiveConcurrency(this.adaptiveConcurrency);
+		this.buildProfile.setMaxInFlightBytes(this.maxInFlightBytes);
+		this.buildProfile.setContinueOnError(this.continueOnError);
+		this.buildProfile.setFailureReport(this.failureReport);
+		this.buildProfile.setInclude(this.include);
+		this.buildProfile.setResume(this.resume);
+		this.buildProfile.setResumeDir(this.resumeDir);
+		this.buildProfile.setShard(this.shard);
+		this.buildProfile.setConfigCache(this.configCache);
+		this.buildProfile.setTokenCache(this.tokenCache);
+		this.buildProfile.setTokenCacheDir(this.tokenCacheDir);
+		this.buildProfile.setTransport(this.transport);
+		this.buildProfile.setProxy(this.proxy);
+		this.buildProfile.setEndpoint(this.endpoint);
+		ApiHubTransport.validate(this.transport);
+		if (!Strings.isNullOrEmpty(this.shard)) {
+			Shard.parse(this.shard);
+		}
 		return buildProfile;
 	}
 	
@@ -134,4 +378,41 @@ public abstract class ApiHubAbstractMojo extends AbstractMojo {
 		this.options = options;
 	}
 
+	/**
+	 * Point this goal at another project and location, reading its config from a shared cache.
+	 * The failure report gets the target in its file name, so that targets do not overwrite
+	 * each other's
+	 * @param projectId
+	 * @param location
+	 * @param configCache
+	 */
+	void setTarget(String projectId, String location, ConfigCache configCache) {
+		this.projectId = projectId;
+		this.location = location;
+		this.configCache = configCache;
+		if (!Strings.isNullOrEmpty(this.failureReport)) {
+			int extension = this.failureReport.endsWith(".json") ? this.failureReport.length() - ".json".length() : this.failureReport.length();
+			this.failureReport = this.failureReport.substring(0, extension) + "-" + projectId + "-" + location + this.failureReport.substring(extension);
+		}
+	}
+
+	/**
+	 * Configure this goal with the parameters of another one, for goals that drive other goals
+	 * @param from
+	 */
+	void copyParameters(ApiHubAbstractMojo from) {
+		try {
+			for (Field field : ApiHubAbstractMojo.class.getDeclaredFields()) {
+				if (Modifier.isStatic(field.getModifiers()))
+					continue;
+				field.setAccessible(true);
+				field.set(this, field.get(from));
+			}
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException(e.getMessage(), e);
+		}
+		setLog(from.getLog());
+		setPluginContext(from.getPluginContext());
+	}
+
 }
@@ -23,21 +23,24 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
-import org.json.simple.parser.ParseException;
 
 import com.apigee.apihub.config.utils.ApiHubClientSingleton;
+import com.apigee.apihub.config.utils.ApiHubRateLimiter;
+import com.apigee.apihub.config.utils.ApiHubRetrySettings;
+import com.apigee.apihub.config.utils.ApplyEngine;
 import com.apigee.apihub.config.utils.BuildProfile;
 import com.apigee.apihub.config.utils.ConfigReader;
+import com.apigee.apihub.config.utils.ConfigStream;
+import com.apigee.apihub.config.utils.ExportEngine;
+import com.apigee.apihub.config.utils.ExportWriter;
 import com.apigee.apihub.config.utils.PluginConstants;
 import com.apigee.apihub.config.utils.PluginUtils;
-import com.apigee.apihub.config.utils.ProtoJsonUtil;
-import com.google.api.client.util.Key;
+import com.apigee.apihub.config.utils.ProgressJournal;
 import com.google.api.client.util.Strings;
 import com.google.api.gax.rpc.ApiException;
 import com.google.api.gax.rpc.StatusCode.Code;
@@ -49,8 +52,6 @@ import com.google.cloud.apihub.v1.ListApisResponse;
 import com.google.cloud.apihub.v1.ListVersionsRequest;
 import com.google.cloud.apihub.v1.ListVersionsResponse;
 import com.google.cloud.apihub.v1.LocationName;
-import com.google.gson.Gson;
-import com.google.gson.JsonParseException;
 import com.google.protobuf.FieldMask;
 
 /**
@@ -81,32 +82,11 @@ public class ApiVersionsMojo extends ApiHubAbstractMojo {
 	}
 	
 	
-	public static class ApiVersion {
-        @Key
-        public String name;
-    }
-	
-	protected String getApiVersionId(String payload) 
-            throws MojoFailureException {
-		Gson gson = new Gson();
-		try {
-			ApiVersion apiVersion = gson.fromJson(payload, ApiVersion.class);
-			String[] parts = apiVersion.name.split("/");
-			String apiVersionId = parts[parts.length - 1];
-			return apiVersionId;
-		} catch (JsonParseException e) {
-		  throw new MojoFailureException(e.getMessage());
-		}
+	protected String getApiVersionId(com.google.cloud.apihub.v1.Version apiVersion) {
+		return PluginUtils.getResourceId(apiVersion.getName());
 	}
-	protected String getApiVersionName(String payload) 
-            throws MojoFailureException {
-		Gson gson = new Gson();
-		try {
-			ApiVersion apiVersion = gson.fromJson(payload, ApiVersion.class);
-			return apiVersion.name;
-		} catch (JsonParseException e) {
-		  throw new MojoFailureException(e.getMessage());
-		}
+	protected String getApiVersionName(com.google.cloud.apihub.v1.Version apiVersion) {
+		return Strings.isNullOrEmpty(apiVersion.getName()) ? null : apiVersion.getName();
 	}
 
 	/**
@@ -182,16 +162,20 @@ public class ApiVersionsMojo extends ApiHubAbstractMojo {
 				exportApiVersions(buildProfile);
 			} else {
 				logger.info(format("Fetching apiVersions.json file from %s directory", buildProfile.getConfigDir()));
-				List<String> apiVersions = ConfigReader.parseConfig(buildProfile.getConfigDir()+"/apiVersions.json");
-				processApiVersions(apiVersions);
+				try (ConfigStream<com.google.cloud.apihub.v1.Version> apiVersions = ConfigReader.streamConfig(buildProfile.getConfigDir()+"/apiVersions.json", com.google.cloud.apihub.v1.Version.class, buildProfile);
+						ProgressJournal journal = ProgressJournal.open(buildProfile, buildProfile.getConfigDir()+"/apiVersions.json")) {
+					processApiVersions(apiVersions, journal);
+				}
+			}
+			if (buildOption != OPTIONS.none) {
+				buildProfile.getRunMetrics().logSummary(logger);
+				ApiHubRateLimiter.getInstance(buildProfile).logSummary(logger);
 			}
 
 		} catch (MojoFailureException e) {
 			throw e;
 		} catch (RuntimeException e) {
 			throw e;
-		} catch (ParseException e) {
-			throw new MojoFailureException(e.getMessage());
 		} catch (IOException e) {
 			throw new MojoFailureException(e.getMessage());
 		}
@@ -200,9 +184,10 @@ public class ApiVersionsMojo extends ApiHubAbstractMojo {
 	/**
 	 * 
 	 * @param apiVersions
+	 * @param journal
 	 * @throws MojoExecutionException
 	 */
-	public void processApiVersions(List<String> apiVersions) throws MojoExecutionException {
+	public void processApiVersions(Iterable<com.google.cloud.apihub.v1.Version> apiVersions, ProgressJournal journal) throws MojoExecutionException {
 		try {
 			if (buildOption != OPTIONS.update && 
 					buildOption != OPTIONS.create &&
@@ -210,57 +195,65 @@ public class ApiVersionsMojo extends ApiHubAbstractMojo {
 	                buildOption != OPTIONS.sync) {
 					return;
 			}
-			for (String apiVersion : apiVersions) {
-				apiVersion = PluginUtils.replacer(apiVersion, PluginConstants.PATTERN, format("projects/%s/locations/%s", buildProfile.getProjectId(), buildProfile.getLocation()));
-				String apiVersionId = getApiVersionId(apiVersion);
-				String apiVersionName = getApiVersionName(apiVersion); //FQDN
-				if (apiVersionName == null) {
-	        		throw new IllegalArgumentException("Api Version does not have a name");
-	        	}
-				if (doesApiVersionExist(buildProfile, apiVersionName)) {
-					switch (buildOption) {
-						case create:
-							logger.info(format("Api Version \"%s\" already exists. Skipping.", apiVersionName));
-							break;
-						case update:
-							logger.info(format("Api Version \"%s\" already exists. Updating.", apiVersionName));
-							//update
-							doUpdate(buildProfile, apiVersion);
-							break;
-						case delete:
-							logger.info(format("Api Version \"%s\" already exists. Deleting.", apiVersionName));
-							//delete
-							doDelete(buildProfile, apiVersionName);
-							break;
-						case sync:
-							logger.info(format("Api Version \"%s\" already exists. Deleting and recreating.", apiVersionName));
-							//delete
-							doDelete(buildProfile, apiVersionName);
-							logger.info(format("Creating Api Version - %s", apiVersionName));
-							//create
-							doCreate(buildProfile, apiVersionName, apiVersionId, apiVersion);
-							break;
-					}
-				} else {
-					switch (buildOption) {
-						case create:
-	                    case sync:
-	                    case update:
-	                    	logger.info(format("Creating Api Version - %s", apiVersionName));
-	                    	//create
-	                    	doCreate(buildProfile, apiVersionName, apiVersionId, apiVersion);
-							break;
-	                    case delete:
-                            logger.info(format("Api Version \"%s\" does not exist. Skipping.", apiVersionName));
-                            break;
-					}
-				}
-			}
+			// items under the same parent run in order, items under different parents in parallel
+			new ApplyEngine(buildProfile).apply(apiVersions, apiVersion -> PluginUtils.getApiKey(apiVersion.getName()), journal.track(this::processApiVersion));
+			journal.complete();
 		}catch (Exception e) {
 			throw new RuntimeException(e.getMessage());
 		}
 	}
 	
+	/**
+	 * 
+	 * @param apiVersion
+	 * @throws Exception
+	 */
+	public void processApiVersion(com.google.cloud.apihub.v1.Version apiVersion) throws Exception {
+		String apiVersionId = getApiVersionId(apiVersion);
+		String apiVersionName = getApiVersionName(apiVersion); //FQDN
+		if (apiVersionName == null) {
+			throw new IllegalArgumentException("Api Version does not have a name");
+		}
+		if (doesApiVersionExist(buildProfile, apiVersionName)) {
+			switch (buildOption) {
+				case create:
+					logger.info(format("Api Version \"%s\" already exists. Skipping.", apiVersionName));
+					break;
+				case update:
+					logger.info(format("Api Version \"%s\" already exists. Updating.", apiVersionName));
+					//update
+					doUpdate(buildProfile, apiVersion);
+					break;
+				case delete:
+					logger.info(format("Api Version \"%s\" already exists. Deleting.", apiVersionName));
+					//delete
+					doDelete(buildProfile, apiVersionName);
+					break;
+				case sync:
+					logger.info(format("Api Version \"%s\" already exists. Deleting and recreating.", apiVersionName));
+					//delete
+					doDelete(buildProfile, apiVersionName);
+					logger.info(format("Creating Api Version - %s", apiVersionName));
+					//create
+					doCreate(buildProfile, apiVersionName, apiVersionId, apiVersion);
+					break;
+			}
+		} else {
+			switch (buildOption) {
+				case create:
+				case sync:
+				case update:
+					logger.info(format("Creating Api Version - %s", apiVersionName));
+					//create
+					doCreate(buildProfile, apiVersionName, apiVersionId, apiVersion);
+					break;
+				case delete:
+					logger.info(format("Api Version \"%s\" does not exist. Skipping.", apiVersionName));
+					break;
+			}
+		}
+	}
+	
 	/**
 	 * 
 	 * @param profile
@@ -268,7 +261,8 @@ public class ApiVersionsMojo extends ApiHubAbstractMojo {
 	 */
 	public void exportApiVersions(BuildProfile profile) throws MojoExecutionException {
 		ApiHubClient apiHubClient = null;
-		List<String> apiVersionsList = new ArrayList<String>();
+		List<com.google.cloud.apihub.v1.Api> apis = new ArrayList<com.google.cloud.apihub.v1.Api>();
+		List<com.google.cloud.apihub.v1.Version> apiVersionsList = new ArrayList<com.google.cloud.apihub.v1.Version>();
 		try {
 			apiHubClient = ApiHubClientSingleton.getInstance(profile).getApiHubClient();
 			//Get the list of APIs
@@ -279,28 +273,7 @@ public class ApiVersionsMojo extends ApiHubAbstractMojo {
 						.setPageSize(PluginConstants.PAGE_SIZE).build();
 			while (true) {
 				ListApisResponse response = apiHubClient.listApisCallable().call(request);
-				for (com.google.cloud.apihub.v1.Api api : response.getApisList()) {
-					//Get the list of API Versions
-					ListVersionsRequest verRequest =
-							ListVersionsRequest.newBuilder()
-								.setParent(api.getName())
-								//.setFilter("display_name=\"API 1\"")
-								.setPageSize(PluginConstants.PAGE_SIZE).build();
-					while (true) {
-						ListVersionsResponse verResponse = apiHubClient.listVersionsCallable().call(verRequest);
-						for (com.google.cloud.apihub.v1.Version version : verResponse.getVersionsList()) {
-							String apiVersionStr = ProtoJsonUtil.toJson(version);
-							apiVersionStr = PluginUtils.replacer(apiVersionStr, PluginConstants.PATTERN1, format("projects/%s/locations/%s", PluginConstants.PROJECT_ID, PluginConstants.LOCATION));
-							apiVersionsList.add(PluginUtils.cleanseResponse(apiVersionStr));
-						}
-						String verNextPageToken = verResponse.getNextPageToken();
-						if (!Strings.isNullOrEmpty(verNextPageToken)) {
-							verRequest = verRequest.toBuilder().setPageToken(verNextPageToken).build();
-					    } else {
-					       break;
-					    }
-					}
-				}
+				apis.addAll(response.getApisList());
 				String nextPageToken = response.getNextPageToken();
 				if (!Strings.isNullOrEmpty(nextPageToken)) {
 			       request = request.toBuilder().setPageToken(nextPageToken).build();
@@ -308,39 +281,68 @@ public class ApiVersionsMojo extends ApiHubAbstractMojo {
 			       break;
 			    }
 		   }
-			PluginUtils.exportToFile(apiVersionsList, profile.getConfigExportDir(), "apiVersions");
+			//Get the list of API Versions of each API
+			for (List<com.google.cloud.apihub.v1.Version> versions : new ExportEngine(profile).map(apis, api -> exportApiVersions(profile, api.getName()))) {
+				apiVersionsList.addAll(versions);
+			}
+			ExportWriter.exportToFile(apiVersionsList, profile.getConfigExportDir(), "apiVersions");
 		}catch (Exception e) {
 			throw new RuntimeException(e.getMessage());
 		}
 	}
 	
+	/**
+	 * List the API Versions of an API
+	 * @param profile
+	 * @param apiName
+	 * @return
+	 * @throws Exception
+	 */
+	public List<com.google.cloud.apihub.v1.Version> exportApiVersions(BuildProfile profile, String apiName) throws Exception {
+		ApiHubClient apiHubClient = ApiHubClientSingleton.getInstance(profile).getApiHubClient();
+		List<com.google.cloud.apihub.v1.Version> apiVersionsList = new ArrayList<com.google.cloud.apihub.v1.Version>();
+		ListVersionsRequest verRequest =
+				ListVersionsRequest.newBuilder()
+					.setParent(apiName)
+					//.setFilter("display_name=\"API 1\"")
+					.setPageSize(PluginConstants.PAGE_SIZE).build();
+		while (true) {
+			ListVersionsResponse verResponse = apiHubClient.listVersionsCallable().call(verRequest);
+			apiVersionsList.addAll(verResponse.getVersionsList());
+			String verNextPageToken = verResponse.getNextPageToken();
+			if (!Strings.isNullOrEmpty(verNextPageToken)) {
+				verRequest = verRequest.toBuilder().setPageToken(verNextPageToken).build();
+			} else {
+				break;
+			}
+		}
+		return apiVersionsList;
+	}
+	
 	/**
 	 * Create Api Version
 	 * @param apiVersionName
 	 * @param apiVersionId
-	 * @param apiVersionStr
+	 * @param apiVersionObj
 	 * @throws MojoExecutionException
 	 */
-	public void doCreate(BuildProfile profile, String apiVersionName, String apiVersionId, String apiVersionStr) throws MojoExecutionException {
+	public void doCreate(BuildProfile profile, String apiVersionName, String apiVersionId, com.google.cloud.apihub.v1.Version apiVersionObj) throws MojoExecutionException {
 		ApiHubClient apiHubClient = null;
 		try {
 			apiHubClient = ApiHubClientSingleton.getInstance(profile).getApiHubClient();
 			//parse projects/PROJECT_ID/locations/LOCATION/apis/{api}/versions/{version}/specs/{spec} to get api and version
-			String pattern = ".*\\/apis\\/([a-zA-Z0-9-_]+)\\/versions\\/([a-zA-Z0-9-_]+).*";
-			Pattern p = Pattern.compile(pattern);
-			Matcher m = p.matcher(apiVersionName);
+			Matcher m = PluginUtils.API_VERSION_PATTERN.matcher(apiVersionName);
 			if(m.matches()) {
 				String apiName = m.group(1);
 				String version = m.group(2);
 				
 				ApiName parent = ApiName.of(profile.getProjectId(), profile.getLocation(), apiName);
-				com.google.cloud.apihub.v1.Version apiVersionObj = ProtoJsonUtil.fromJson(apiVersionStr, com.google.cloud.apihub.v1.Version.class);
 				apiHubClient.createVersion(parent, apiVersionObj, version);
 				logger.info("Create success");
 			}
 		} catch (Exception e) {
 			e.printStackTrace();
-			throw new RuntimeException("Create failure: " + e.getMessage());
+			throw new RuntimeException("Create failure: " + e.getMessage(), e);
 		}
 	}
 
@@ -358,22 +360,26 @@ public class ApiVersionsMojo extends ApiHubAbstractMojo {
 			apiHubClient.deleteVersion(request);
 		    logger.info("Delete success");
 		} catch (Exception e) {
+			if (ApiHubRetrySettings.isNotFound(e)) {
+				// deleted by an earlier attempt of the same call
+				logger.info("Already deleted");
+				return;
+			}
 			e.printStackTrace();
-			throw new RuntimeException("Delete failure: " + e.getMessage());
+			throw new RuntimeException("Delete failure: " + e.getMessage(), e);
 		}
 	}
 	
 	/**
 	 * Update Api Version
 	 * @param profile
-	 * @param apiVersionStr
+	 * @param apiVersionObj
 	 * @throws MojoExecutionException
 	 */
-	public void doUpdate(BuildProfile profile, String apiVersionStr) throws MojoExecutionException {
+	public void doUpdate(BuildProfile profile, com.google.cloud.apihub.v1.Version apiVersionObj) throws MojoExecutionException {
 		ApiHubClient apiHubClient = null;
 		try {
 			apiHubClient = ApiHubClientSingleton.getInstance(profile).getApiHubClient();
-			com.google.cloud.apihub.v1.Version apiVersionObj = ProtoJsonUtil.fromJson(apiVersionStr, com.google.cloud.apihub.v1.Version.class);
 			List<String> fieldMaskValues = new ArrayList<>();
 			fieldMaskValues.add("display_name");
 			fieldMaskValues.add("description");
@@ -388,7 +394,7 @@ public class ApiVersionsMojo extends ApiHubAbstractMojo {
 		    logger.info("Update success");
 		} catch (Exception e) {
 			e.printStackTrace();
-			throw new RuntimeException("Update failure: " + e.getMessage());
+			throw new RuntimeException("Update failure: " + e.getMessage(), e);
 		}
 	}
 	
@@ -413,6 +419,7 @@ public class ApiVersionsMojo extends ApiHubAbstractMojo {
 			if(e.getStatusCode().getCode().equals(Code.NOT_FOUND)) {
 				return false;
 			}
+			throw new IOException(e.getMessage(), e);
         }
         catch (Exception e) {
             throw new IOException(e.getMessage());
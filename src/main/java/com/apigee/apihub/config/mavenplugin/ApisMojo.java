@@ -27,15 +27,18 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
-import org.json.simple.parser.ParseException;
 
 import com.apigee.apihub.config.utils.ApiHubClientSingleton;
+import com.apigee.apihub.config.utils.ApiHubRateLimiter;
+import com.apigee.apihub.config.utils.ApiHubRetrySettings;
+import com.apigee.apihub.config.utils.ApplyEngine;
 import com.apigee.apihub.config.utils.BuildProfile;
 import com.apigee.apihub.config.utils.ConfigReader;
+import com.apigee.apihub.config.utils.ConfigStream;
+import com.apigee.apihub.config.utils.ExportWriter;
 import com.apigee.apihub.config.utils.PluginConstants;
 import com.apigee.apihub.config.utils.PluginUtils;
-import com.apigee.apihub.config.utils.ProtoJsonUtil;
-import com.google.api.client.util.Key;
+import com.apigee.apihub.config.utils.ProgressJournal;
 import com.google.api.client.util.Strings;
 import com.google.api.gax.rpc.ApiException;
 import com.google.api.gax.rpc.StatusCode.Code;
@@ -45,8 +48,6 @@ import com.google.cloud.apihub.v1.DeleteApiRequest;
 import com.google.cloud.apihub.v1.ListApisRequest;
 import com.google.cloud.apihub.v1.ListApisResponse;
 import com.google.cloud.apihub.v1.LocationName;
-import com.google.gson.Gson;
-import com.google.gson.JsonParseException;
 import com.google.protobuf.FieldMask;
 
 /**
@@ -77,22 +78,8 @@ public class ApisMojo extends ApiHubAbstractMojo {
 	}
 	
 	
-	public static class Api {
-        @Key
-        public String name;
-    }
-	
-	protected String getApiName(String payload) 
-            throws MojoFailureException {
-		Gson gson = new Gson();
-		try {
-			Api api = gson.fromJson(payload, Api.class);
-			String[] parts = api.name.split("/");
-			String apiName = parts[parts.length - 1];
-			return apiName;
-		} catch (JsonParseException e) {
-		  throw new MojoFailureException(e.getMessage());
-		}
+	protected String getApiName(com.google.cloud.apihub.v1.Api api) {
+		return PluginUtils.getResourceId(api.getName());
 	}
 
 	/**
@@ -167,16 +154,20 @@ public class ApisMojo extends ApiHubAbstractMojo {
 				exportApis(buildProfile);
 			} else {
 				logger.info(format("Fetching apis.json file from %s directory", buildProfile.getConfigDir()));
-				List<String> apis = ConfigReader.parseConfig(buildProfile.getConfigDir()+"/apis.json");
-				processApis(apis);
+				try (ConfigStream<com.google.cloud.apihub.v1.Api> apis = ConfigReader.streamConfig(buildProfile.getConfigDir()+"/apis.json", com.google.cloud.apihub.v1.Api.class, buildProfile);
+						ProgressJournal journal = ProgressJournal.open(buildProfile, buildProfile.getConfigDir()+"/apis.json")) {
+					processApis(apis, journal);
+				}
+			}
+			if (buildOption != OPTIONS.none) {
+				buildProfile.getRunMetrics().logSummary(logger);
+				ApiHubRateLimiter.getInstance(buildProfile).logSummary(logger);
 			}
 
 		} catch (MojoFailureException e) {
 			throw e;
 		} catch (RuntimeException e) {
 			throw e;
-		} catch (ParseException e) {
-			throw new MojoFailureException(e.getMessage());
 		} catch (IOException e) {
 			throw new MojoFailureException(e.getMessage());
 		}
@@ -185,9 +176,10 @@ public class ApisMojo extends ApiHubAbstractMojo {
 	/**
 	 * 
 	 * @param apis
+	 * @param journal
 	 * @throws MojoExecutionException
 	 */
-	public void processApis(List<String> apis) throws MojoExecutionException {
+	public void processApis(Iterable<com.google.cloud.apihub.v1.Api> apis, ProgressJournal journal) throws MojoExecutionException {
 		try {
 			if (buildOption != OPTIONS.update && 
 					buildOption != OPTIONS.create &&
@@ -195,56 +187,63 @@ public class ApisMojo extends ApiHubAbstractMojo {
 	                buildOption != OPTIONS.sync) {
 					return;
 			}
-			for (String api : apis) {
-				api = PluginUtils.replacer(api, PluginConstants.PATTERN, format("projects/%s/locations/%s", buildProfile.getProjectId(), buildProfile.getLocation()));
-				String apiName = getApiName(api);
-				if (apiName == null) {
-	        		throw new IllegalArgumentException("Api does not have a name");
-	        	}
-				if (doesApiExist(buildProfile, apiName)) {
-					switch (buildOption) {
-						case create:
-							logger.info(format("Api \"%s\" already exists. Skipping.", apiName));
-							break;
-						case update:
-							logger.info(format("Api \"%s\" already exists. Updating.", apiName));
-							//update
-							doUpdate(buildProfile, api);
-							break;
-						case delete:
-							logger.info(format("Api \"%s\" already exists. Deleting.", apiName));
-							//delete
-							doDelete(buildProfile, apiName);
-							break;
-						case sync:
-							logger.info(format("Api \"%s\" already exists. Deleting and recreating.", apiName));
-							//delete
-							doDelete(buildProfile, apiName);
-							logger.info(format("Creating Api - %s", apiName));
-							//create
-							doCreate(buildProfile, apiName, api);
-							break;
-					}
-				} else {
-					switch (buildOption) {
-						case create:
-	                    case sync:
-	                    case update:
-	                    	logger.info(format("Creating Api - %s", apiName));
-	                    	//create
-	                    	doCreate(buildProfile, apiName, api);
-							break;
-	                    case delete:
-                            logger.info(format("Api \"%s\" does not exist. Skipping.", apiName));
-                            break;
-					}
-				}
-			}
+			new ApplyEngine(buildProfile).apply(apis, journal.track(this::processApi));
+			journal.complete();
 		}catch (Exception e) {
 			throw new RuntimeException(e.getMessage());
 		}
 	}
 	
+	/**
+	 * 
+	 * @param api
+	 * @throws Exception
+	 */
+	public void processApi(com.google.cloud.apihub.v1.Api api) throws Exception {
+		String apiName = getApiName(api);
+		if (apiName == null) {
+			throw new IllegalArgumentException("Api does not have a name");
+		}
+		if (doesApiExist(buildProfile, apiName)) {
+			switch (buildOption) {
+				case create:
+					logger.info(format("Api \"%s\" already exists. Skipping.", apiName));
+					break;
+				case update:
+					logger.info(format("Api \"%s\" already exists. Updating.", apiName));
+					//update
+					doUpdate(buildProfile, api);
+					break;
+				case delete:
+					logger.info(format("Api \"%s\" already exists. Deleting.", apiName));
+					//delete
+					doDelete(buildProfile, apiName);
+					break;
+				case sync:
+					logger.info(format("Api \"%s\" already exists. Deleting and recreating.", apiName));
+					//delete
+					doDelete(buildProfile, apiName);
+					logger.info(format("Creating Api - %s", apiName));
+					//create
+					doCreate(buildProfile, apiName, api);
+					break;
+			}
+		} else {
+			switch (buildOption) {
+				case create:
+				case sync:
+				case update:
+					logger.info(format("Creating Api - %s", apiName));
+					//create
+					doCreate(buildProfile, apiName, api);
+					break;
+				case delete:
+					logger.info(format("Api \"%s\" does not exist. Skipping.", apiName));
+					break;
+			}
+		}
+	}
+	
 	/**
 	 * 
 	 * @param profile
@@ -252,7 +251,7 @@ public class ApisMojo extends ApiHubAbstractMojo {
 	 */
 	public void exportApis(BuildProfile profile) throws MojoExecutionException {
 		ApiHubClient apiHubClient = null;
-		List<String> apiList = new ArrayList<String>();
+		List<com.google.cloud.apihub.v1.Api> apiList = new ArrayList<com.google.cloud.apihub.v1.Api>();
 		try {
 			apiHubClient = ApiHubClientSingleton.getInstance(profile).getApiHubClient();
 			ListApisRequest request =
@@ -262,11 +261,7 @@ public class ApisMojo extends ApiHubAbstractMojo {
 					.setPageSize(PluginConstants.PAGE_SIZE).build();
 			while (true) {
 		     ListApisResponse response = apiHubClient.listApisCallable().call(request);
-		     for (com.google.cloud.apihub.v1.Api api : response.getApisList()) {
-		    	 String apiStr = ProtoJsonUtil.toJson(api);
-		    	 apiStr = PluginUtils.replacer(apiStr, PluginConstants.PATTERN1, format("projects/%s/locations/%s", PluginConstants.PROJECT_ID, PluginConstants.LOCATION));
-		    	 apiList.add(PluginUtils.cleanseResponse(apiStr));
-		     }
+		     apiList.addAll(response.getApisList());
 		     String nextPageToken = response.getNextPageToken();
 		     logger.debug("nextPageToken: "+nextPageToken);
 		     if (!Strings.isNullOrEmpty(nextPageToken)) {
@@ -275,7 +270,7 @@ public class ApisMojo extends ApiHubAbstractMojo {
 		       break;
 		     }
 		   }
-			PluginUtils.exportToFile(apiList, profile.getConfigExportDir(), "apis");
+			ExportWriter.exportToFile(apiList, profile.getConfigExportDir(), "apis");
 		}catch (Exception e) {
 			throw new RuntimeException(e.getMessage());
 		}
@@ -285,20 +280,19 @@ public class ApisMojo extends ApiHubAbstractMojo {
 	 * Create Api
 	 * @param profile
 	 * @param apiName
-	 * @param apiStr
+	 * @param apiObj
 	 * @throws MojoExecutionException
 	 */
-	public void doCreate(BuildProfile profile, String apiName, String apiStr) throws MojoExecutionException {
+	public void doCreate(BuildProfile profile, String apiName, com.google.cloud.apihub.v1.Api apiObj) throws MojoExecutionException {
 		ApiHubClient apiHubClient = null;
 		try {
 			apiHubClient = ApiHubClientSingleton.getInstance(profile).getApiHubClient();
 			LocationName parent = LocationName.of(profile.getProjectId(), profile.getLocation());
-			com.google.cloud.apihub.v1.Api apiObj = ProtoJsonUtil.fromJson(apiStr, com.google.cloud.apihub.v1.Api.class);
 			apiHubClient.createApi(parent, apiObj, apiName);
 		    logger.info("Create success");
 		} catch (Exception e) {
 			e.printStackTrace();
-			throw new RuntimeException("Create failure: " + e.getMessage());
+			throw new RuntimeException("Create failure: " + e.getMessage(), e);
 		}
 	}
 
@@ -318,22 +312,26 @@ public class ApisMojo extends ApiHubAbstractMojo {
 			apiHubClient.deleteApi(request);
 		    logger.info("Delete success");
 		} catch (Exception e) {
+			if (ApiHubRetrySettings.isNotFound(e)) {
+				// deleted by an earlier attempt of the same call
+				logger.info("Already deleted");
+				return;
+			}
 			e.printStackTrace();
-			throw new RuntimeException("Delete failure: " + e.getMessage());
+			throw new RuntimeException("Delete failure: " + e.getMessage(), e);
 		}
 	}
 	
 	/**
 	 * Update Api
 	 * @param profile
-	 * @param apiStr
+	 * @param apiObj
 	 * @throws MojoExecutionException
 	 */
-	public void doUpdate(BuildProfile profile, String apiStr) throws MojoExecutionException {
+	public void doUpdate(BuildProfile profile, com.google.cloud.apihub.v1.Api apiObj) throws MojoExecutionException {
 		ApiHubClient apiHubClient = null;
 		try {
 			apiHubClient = ApiHubClientSingleton.getInstance(profile).getApiHubClient();
-			com.google.cloud.apihub.v1.Api apiObj = ProtoJsonUtil.fromJson(apiStr, com.google.cloud.apihub.v1.Api.class);
 			List<String> fieldMaskValues = new ArrayList<>();
 			fieldMaskValues.add("display_name");
 			fieldMaskValues.add("description");
@@ -350,7 +348,7 @@ public class ApisMojo extends ApiHubAbstractMojo {
 		    logger.info("Update success");
 		} catch (Exception e) {
 			e.printStackTrace();
-			throw new RuntimeException("Update failure: " + e.getMessage());
+			throw new RuntimeException("Update failure: " + e.getMessage(), e);
 		}
 	}
 	
@@ -376,6 +374,7 @@ public class ApisMojo extends ApiHubAbstractMojo {
 			if(e.getStatusCode().getCode().equals(Code.NOT_FOUND)) {
 				return false;
 			}
+			throw new IOException(e.getMessage(), e);
         }
         catch (Exception e) {
             throw new IOException(e.getMessage());
@@ -0,0 +1,267 @@
+/**
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apigee.apihub.config.mavenplugin;
+
+import static java.lang.String.format;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+
+import com.apigee.apihub.config.utils.ApiHubRateLimiter;
+import com.apigee.apihub.config.utils.ApplyPipeline;
+import com.apigee.apihub.config.utils.BuildProfile;
+import com.apigee.apihub.config.utils.ConfigEntry;
+import com.apigee.apihub.config.utils.ConfigReader;
+import com.apigee.apihub.config.utils.ConfigStream;
+import com.apigee.apihub.config.utils.DeletePlanner;
+import com.apigee.apihub.config.utils.FailureReport;
+import com.apigee.apihub.config.utils.PluginConstants;
+import com.apigee.apihub.config.utils.PluginUtils;
+import com.apigee.apihub.config.utils.ProgressJournal;
+import com.apigee.apihub.config.utils.TaskGraph;
+import com.google.api.client.util.Strings;
+import com.google.protobuf.Message;
+
+/**
+ * Goal to configure all entities in Apigee API Hub in one run.
+ *
+ * The entity goals run as a dependency graph: attributes first, then deployments, apis and external
+ * apis at the same time, api versions once their apis and deployments are done, specs after the
+ * versions and dependencies last. Creates, updates and syncs pipeline apis, api versions and
+ * specs: each version starts once its api is applied and each spec once its version is, so no
+ * type waits for all items of its parent type. Deletes run the graph the other way round, with
+ * apis, api versions and specs deleted children first and, with force delete, each subtree in a
+ * single call. Exports run all goals at the same time. Entities without a config file are skipped.
+ * With apigee.apihub.continueOnError, a goal with failed items does not stop the goals after it:
+ * their items under a failed item are skipped and all of them end up in the one failure report.
+ *
+ * @author ssvaidyanathan
+ * @goal apply-all
+ * @phase install
+ */
+public class ApplyAllMojo extends ApiHubAbstractMojo {
+	static Logger logger = LogManager.getLogger(ApplyAllMojo.class);
+
+	public static final String ____ATTENTION_MARKER____ = "************************************************************************";
+
+	enum OPTIONS {
+		none, create, update, delete, sync, export
+	}
+
+	OPTIONS buildOption = OPTIONS.none;
+
+	private BuildProfile buildProfile;
+
+	/**
+	 * Constructor.
+	 */
+	public ApplyAllMojo() {
+		super();
+	}
+
+	/**
+	 * Initilization
+	 * @throws MojoExecutionException
+	 * @throws MojoFailureException
+	 */
+	public void init() throws MojoExecutionException, MojoFailureException {
+		try {
+			logger.info(____ATTENTION_MARKER____);
+			logger.info("API Hub apply all");
+			logger.info(____ATTENTION_MARKER____);
+
+			String options = "";
+			buildProfile = super.getProfile();
+
+			options = super.getOptions();
+			if (options != null) {
+				buildOption = OPTIONS.valueOf(options);
+			}
+			if (buildOption == OPTIONS.none) {
+				logger.info("Skipping apply all (default action)");
+				return;
+			}
+
+			logger.debug("Build option " + buildOption.name());
+
+			if (!buildOption.equals(OPTIONS.export) && Strings.isNullOrEmpty(buildProfile.getConfigDir())) {
+				throw new MojoExecutionException("API Config Directory is missing");
+			}
+
+		} catch (IllegalArgumentException e) {
+			throw new RuntimeException("Invalid apigee.apihub.config.options provided");
+		} catch (RuntimeException e) {
+			throw e;
+		}
+	}
+
+	/**
+	 * Entry point for the mojo.
+	 */
+	public void execute() throws MojoExecutionException, MojoFailureException {
+		if (super.isSkip()) {
+			getLog().info("Skipping");
+			return;
+		}
+
+		init();
+		if (buildOption == OPTIONS.none) {
+			return;
+		}
+		TaskGraph graph = buildGraph();
+		if (buildOption == OPTIONS.delete) {
+			graph = graph.reversed();
+		}
+		long start = System.nanoTime();
+		try {
+			graph.run(graph.getNames().size(), buildProfile.isContinueOnError());
+		} catch (MojoExecutionException | MojoFailureException | RuntimeException e) {
+			throwReported();
+			throw e;
+		} catch (Exception e) {
+			throwReported();
+			throw new MojoFailureException(e.getMessage());
+		}
+		logger.info(format("Apply all to %s completed in %d ms", buildProfile.getTarget(), (System.nanoTime() - start) / 1_000_000));
+	}
+
+	/**
+	 * When running on after errors, fail with the count of all failed and skipped items rather than
+	 * with the first goal that failed
+	 * @throws MojoFailureException
+	 */
+	private void throwReported() throws MojoFailureException {
+		if (!buildProfile.isContinueOnError())
+			return;
+		FailureReport report = FailureReport.getInstance(buildProfile);
+		if (report.getCount() > 0) {
+			throw new MojoFailureException(format("%d items failed or were skipped, see %s", report.getCount(), report.getReportFile()));
+		}
+	}
+
+	/**
+	 * The entity goals and the ones they depend on. Exports do not depend on each other. Other
+	 * options pipeline apis, api versions and specs.
+	 * @return
+	 */
+	protected TaskGraph buildGraph() {
+		TaskGraph graph = new TaskGraph()
+				.add("attributes", goal(AttributesMojo::new, "attributes.json"))
+				.add("deployments", goal(DeploymentsMojo::new, "deployments.json"), after("attributes"))
+				.add("externalapis", goal(ExternalApisMojo::new, "externalApis.json"), after("attributes"));
+		if (buildOption == OPTIONS.export) {
+			graph.add("apis", goal(ApisMojo::new, "apis.json"), after("attributes"))
+				.add("apiversions", goal(ApiVersionsMojo::new, "apiVersions.json"), after("apis", "deployments"))
+				.add("specs", goal(SpecsMojo::new, "specs.json"), after("apiversions"));
+		} else {
+			graph.add("specs", this::applyApis, after("attributes", "deployments"));
+		}
+		return graph.add("dependencies", goal(DependenciesMojo::new, "dependencies.json"), after("specs", "externalapis"));
+	}
+
+	/**
+	 * Apply apis, api versions and specs as a pipeline: the versions of an api start as soon as the
+	 * api is applied and the specs of a version as soon as the version is. Deletes go the other way
+	 * round, planned by the DeletePlanner
+	 * @throws Exception
+	 */
+	protected void applyApis() throws Exception {
+		ApisMojo apisMojo = new ApisMojo();
+		ApiVersionsMojo apiVersionsMojo = new ApiVersionsMojo();
+		SpecsMojo specsMojo = new SpecsMojo();
+		apisMojo.copyParameters(this);
+		apisMojo.init();
+		apiVersionsMojo.copyParameters(this);
+		apiVersionsMojo.init();
+		specsMojo.copyParameters(this);
+		specsMojo.init();
+		try (ConfigStream<com.google.cloud.apihub.v1.Api> apis = streamConfig("apis.json", com.google.cloud.apihub.v1.Api.class);
+				ConfigStream<com.google.cloud.apihub.v1.Version> apiVersions = streamConfig("apiVersions.json", com.google.cloud.apihub.v1.Version.class);
+				ConfigStream<com.google.cloud.apihub.v1.Spec> specs = streamConfig("specs.json", com.google.cloud.apihub.v1.Spec.class, "contents", "contents");
+				ProgressJournal apisJournal = ProgressJournal.open(buildProfile, buildProfile.getConfigDir() + "/apis.json");
+				ProgressJournal apiVersionsJournal = ProgressJournal.open(buildProfile, buildProfile.getConfigDir() + "/apiVersions.json");
+				ProgressJournal specsJournal = ProgressJournal.open(buildProfile, buildProfile.getConfigDir() + "/specs.json")) {
+			ApplyPipeline pipeline = new ApplyPipeline(buildProfile)
+					.stage(apis == null ? Collections.<com.google.cloud.apihub.v1.Api>emptyList() : apis,
+							api -> PluginUtils.getApiKey(api.getName()), api -> null, apisJournal.track(apisMojo::processApi))
+					.stage(apiVersions == null ? Collections.<com.google.cloud.apihub.v1.Version>emptyList() : apiVersions,
+							version -> PluginUtils.getApiVersionKey(version.getName()), version -> PluginUtils.getApiKey(version.getName()), apiVersionsJournal.track(apiVersionsMojo::processApiVersion))
+					.stage(specs == null ? Collections.<ConfigEntry<com.google.cloud.apihub.v1.Spec>>emptyList()
+							: buildOption == OPTIONS.delete ? specs.entries() : ConfigEntry.largestFirst(specs.entries(), PluginConstants.LARGEST_FIRST_WINDOW),
+							spec -> null, spec -> PluginUtils.getApiVersionKey(spec.get().getName()), specsMojo::getPayloadBytes, specsJournal.track(specsMojo::processSpec));
+			if (buildOption == OPTIONS.delete) {
+				new DeletePlanner(buildProfile).run(pipeline);
+			} else {
+				pipeline.run();
+			}
+			apisJournal.complete();
+			apiVersionsJournal.complete();
+			specsJournal.complete();
+		} finally {
+			for (ApiHubAbstractMojo goal : new ApiHubAbstractMojo[] {apisMojo, apiVersionsMojo, specsMojo}) {
+				goal.buildProfile.getRunMetrics().logSummary(logger);
+			}
+			ApiHubRateLimiter.getInstance(buildProfile).logSummary(logger);
+		}
+	}
+
+	/**
+	 * @param configFile
+	 * @param clazz
+	 * @param deferredPath
+	 * @return the config file of the config directory, or null if there is none
+	 * @throws IOException
+	 */
+	private <T extends Message> ConfigStream<T> streamConfig(String configFile, Class<T> clazz, String... deferredPath) throws IOException {
+		File file = new File(buildProfile.getConfigDir(), configFile);
+		if (!file.isFile()) {
+			logger.info(format("No %s file in %s directory. Skipping.", configFile, buildProfile.getConfigDir()));
+			return null;
+		}
+		logger.info(format("Fetching %s file from %s directory", configFile, buildProfile.getConfigDir()));
+		return ConfigReader.streamConfig(buildProfile.getConfigDir() + "/" + configFile, clazz, buildProfile, deferredPath);
+	}
+
+	private String[] after(String... goals) {
+		return buildOption == OPTIONS.export ? new String[0] : goals;
+	}
+
+	/**
+	 * Run an entity goal with the parameters of this one
+	 * @param mojo
+	 * @param configFile
+	 * @return
+	 */
+	private TaskGraph.Task goal(Supplier<ApiHubAbstractMojo> mojo, String configFile) {
+		return () -> {
+			if (buildOption != OPTIONS.export && !new File(buildProfile.getConfigDir(), configFile).isFile()) {
+				logger.info(format("No %s file in %s directory. Skipping.", configFile, buildProfile.getConfigDir()));
+				return;
+			}
+			ApiHubAbstractMojo goal = mojo.get();
+			goal.copyParameters(this);
+			goal.execute();
+		};
+	}
+}
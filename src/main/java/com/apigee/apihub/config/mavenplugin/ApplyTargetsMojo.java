@@ -0,0 +1,205 @@
+/**
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apigee.apihub.config.mavenplugin;
+
+import static java.lang.String.format;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+
+import com.apigee.apihub.config.utils.BuildProfile;
+import com.apigee.apihub.config.utils.ConfigCache;
+import com.apigee.apihub.config.utils.TaskGraph;
+import com.google.api.client.util.Strings;
+
+/**
+ * Goal to apply one config to several API Hub instances (projects and locations) in one run.
+ *
+ * Each config file is parsed once and its items are rewritten to each target, which is then
+ * applied as by apply-all, all targets at the same time. Every target has its own API Hub clients,
+ * concurrency limit and failure report; the rate limits and the byte budget are shared by all of
+ * them. A failed target does not stop the others: the result of each target is logged at the end
+ * and the goal fails if any of them failed.
+ *
+ * @author ssvaidyanathan
+ * @goal apply-targets
+ * @phase install
+ */
+public class ApplyTargetsMojo extends ApiHubAbstractMojo {
+	static Logger logger = LogManager.getLogger(ApplyTargetsMojo.class);
+
+	public static final String ____ATTENTION_MARKER____ = "************************************************************************";
+
+	enum OPTIONS {
+		none, create, update, delete, sync
+	}
+
+	OPTIONS buildOption = OPTIONS.none;
+
+	/**
+	 * Targets to apply the config to, a comma separated list of projectId/location
+	 *
+	 * @parameter property="apigee.apihub.targets"
+	 */
+	private String targets;
+
+	private BuildProfile buildProfile;
+
+	private final List<String[]> targetList = new ArrayList<String[]>();
+
+	private static class TargetResult {
+		private final String target;
+		private final long millis;
+		private final String error;
+
+		TargetResult(String target, long millis, String error) {
+			this.target = target;
+			this.millis = millis;
+			this.error = error;
+		}
+	}
+
+	/**
+	 * Constructor.
+	 */
+	public ApplyTargetsMojo() {
+		super();
+	}
+
+	/**
+	 * Initilization
+	 * @throws MojoExecutionException
+	 * @throws MojoFailureException
+	 */
+	public void init() throws MojoExecutionException, MojoFailureException {
+		try {
+			logger.info(____ATTENTION_MARKER____);
+			logger.info("API Hub apply to targets");
+			logger.info(____ATTENTION_MARKER____);
+
+			String options = "";
+			buildProfile = super.getProfile();
+
+			options = super.getOptions();
+			if (options != null) {
+				buildOption = OPTIONS.valueOf(options);
+			}
+			if (buildOption == OPTIONS.none) {
+				logger.info("Skipping apply to targets (default action)");
+				return;
+			}
+
+			logger.debug("Build option " + buildOption.name());
+
+			if (Strings.isNullOrEmpty(buildProfile.getConfigDir())) {
+				throw new MojoExecutionException("API Config Directory is missing");
+			}
+			if (Strings.isNullOrEmpty(targets)) {
+				throw new MojoExecutionException("apigee.apihub.targets is missing");
+			}
+			Set<String> seen = new LinkedHashSet<String>();
+			for (String target : targets.split(",")) {
+				String[] projectLocation = target.trim().split("/");
+				if (projectLocation.length != 2 || projectLocation[0].isEmpty() || projectLocation[1].isEmpty()) {
+					throw new MojoExecutionException(format("Invalid target \"%s\" in apigee.apihub.targets, expected projectId/location", target.trim()));
+				}
+				if (seen.add(target.trim())) {
+					targetList.add(projectLocation);
+				}
+			}
+
+		} catch (IllegalArgumentException e) {
+			throw new RuntimeException("Invalid apigee.apihub.config.options provided");
+		} catch (RuntimeException e) {
+			throw e;
+		}
+	}
+
+	/**
+	 * Entry point for the mojo.
+	 */
+	public void execute() throws MojoExecutionException, MojoFailureException {
+		if (super.isSkip()) {
+			getLog().info("Skipping");
+			return;
+		}
+
+		init();
+		if (buildOption == OPTIONS.none) {
+			return;
+		}
+		ConfigCache configCache = new ConfigCache();
+		TargetResult[] results = new TargetResult[targetList.size()];
+		TaskGraph graph = new TaskGraph();
+		for (int i = 0; i < targetList.size(); i++) {
+			int index = i;
+			String[] target = targetList.get(i);
+			// replaced by the outcome of the target, kept if its task ends without one
+			results[i] = new TargetResult(format("projects/%s/locations/%s", target[0], target[1]), 0, "not run");
+			graph.add(target[0] + "/" + target[1], () -> results[index] = applyTarget(target[0], target[1], configCache));
+		}
+		try {
+			graph.run(targetList.size(), true);
+		} catch (Exception e) {
+			// failures are held in the results
+		}
+
+		int failed = 0;
+		logger.info(____ATTENTION_MARKER____);
+		for (TargetResult result : results) {
+			if (result.error == null) {
+				logger.info(format("%s: applied in %d ms", result.target, result.millis));
+			} else {
+				logger.error(format("%s: failed after %d ms: %s", result.target, result.millis, result.error));
+				failed++;
+			}
+		}
+		logger.info(____ATTENTION_MARKER____);
+		if (failed > 0) {
+			throw new MojoFailureException(format("%d of %d targets failed", failed, results.length));
+		}
+	}
+
+	/**
+	 * Apply the config to one target, as apply-all does
+	 * @param projectId
+	 * @param location
+	 * @param configCache
+	 * @return the outcome, a failure included
+	 */
+	private TargetResult applyTarget(String projectId, String location, ConfigCache configCache) {
+		ApplyAllMojo applyAll = new ApplyAllMojo();
+		applyAll.copyParameters(this);
+		applyAll.setTarget(projectId, location, configCache);
+		String target = format("projects/%s/locations/%s", projectId, location);
+		long start = System.nanoTime();
+		try {
+			applyAll.execute();
+			return new TargetResult(target, (System.nanoTime() - start) / 1_000_000, null);
+		} catch (Exception e) {
+			logger.error(format("Apply to %s failed: %s", target, e.getMessage()));
+			return new TargetResult(target, (System.nanoTime() - start) / 1_000_000, e.getMessage());
+		}
+	}
+}
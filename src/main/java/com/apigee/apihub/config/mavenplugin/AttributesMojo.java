@@ -27,15 +27,18 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
-import org.json.simple.parser.ParseException;
 
 import com.apigee.apihub.config.utils.ApiHubClientSingleton;
+import com.apigee.apihub.config.utils.ApiHubRateLimiter;
+import com.apigee.apihub.config.utils.ApiHubRetrySettings;
+import com.apigee.apihub.config.utils.ApplyEngine;
 import com.apigee.apihub.config.utils.BuildProfile;
 import com.apigee.apihub.config.utils.ConfigReader;
+import com.apigee.apihub.config.utils.ConfigStream;
+import com.apigee.apihub.config.utils.ExportWriter;
 import com.apigee.apihub.config.utils.PluginConstants;
 import com.apigee.apihub.config.utils.PluginUtils;
-import com.apigee.apihub.config.utils.ProtoJsonUtil;
-import com.google.api.client.util.Key;
+import com.apigee.apihub.config.utils.ProgressJournal;
 import com.google.api.client.util.Strings;
 import com.google.api.gax.rpc.ApiException;
 import com.google.api.gax.rpc.StatusCode.Code;
@@ -44,8 +47,6 @@ import com.google.cloud.apihub.v1.AttributeName;
 import com.google.cloud.apihub.v1.ListAttributesRequest;
 import com.google.cloud.apihub.v1.ListAttributesResponse;
 import com.google.cloud.apihub.v1.LocationName;
-import com.google.gson.Gson;
-import com.google.gson.JsonParseException;
 import com.google.protobuf.FieldMask;
 
 /**
@@ -76,22 +77,8 @@ public class AttributesMojo extends ApiHubAbstractMojo {
 	}
 	
 	
-	public static class Attribute {
-        @Key
-        public String name;
-    }
-	
-	protected String getAttributeName(String payload) 
-            throws MojoFailureException {
-		Gson gson = new Gson();
-		try {
-			Attribute attribute = gson.fromJson(payload, Attribute.class);
-			String[] parts = attribute.name.split("/");
-			String attributeName = parts[parts.length - 1];
-			return attributeName;
-		} catch (JsonParseException e) {
-		  throw new MojoFailureException(e.getMessage());
-		}
+	protected String getAttributeName(com.google.cloud.apihub.v1.Attribute attribute) {
+		return PluginUtils.getResourceId(attribute.getName());
 	}
 
 	/**
@@ -167,16 +154,20 @@ public class AttributesMojo extends ApiHubAbstractMojo {
 				exportAttributes(buildProfile);
 			} else {
 				logger.info(format("Fetching attributes.json file from %s directory", buildProfile.getConfigDir()));
-				List<String> attributes = ConfigReader.parseConfig(buildProfile.getConfigDir()+"/attributes.json");
-				processAttributes(attributes);
+				try (ConfigStream<com.google.cloud.apihub.v1.Attribute> attributes = ConfigReader.streamConfig(buildProfile.getConfigDir()+"/attributes.json", com.google.cloud.apihub.v1.Attribute.class, buildProfile);
+						ProgressJournal journal = ProgressJournal.open(buildProfile, buildProfile.getConfigDir()+"/attributes.json")) {
+					processAttributes(attributes, journal);
+				}
+			}
+			if (buildOption != OPTIONS.none) {
+				buildProfile.getRunMetrics().logSummary(logger);
+				ApiHubRateLimiter.getInstance(buildProfile).logSummary(logger);
 			}
 
 		} catch (MojoFailureException e) {
 			throw e;
 		} catch (RuntimeException e) {
 			throw e;
-		} catch (ParseException e) {
-			throw new MojoFailureException(e.getMessage());
 		} catch (IOException e) {
 			throw new MojoFailureException(e.getMessage());
 		}
@@ -185,9 +176,10 @@ public class AttributesMojo extends ApiHubAbstractMojo {
 	/**
 	 * 
 	 * @param attributes
+	 * @param journal
 	 * @throws MojoExecutionException
 	 */
-	public void processAttributes(List<String> attributes) throws MojoExecutionException {
+	public void processAttributes(Iterable<com.google.cloud.apihub.v1.Attribute> attributes, ProgressJournal journal) throws MojoExecutionException {
 		try {
 			if (buildOption != OPTIONS.update && 
 					buildOption != OPTIONS.create &&
@@ -195,56 +187,63 @@ public class AttributesMojo extends ApiHubAbstractMojo {
 	                buildOption != OPTIONS.sync) {
 					return;
 			}
-			for (String attribute : attributes) {
-				attribute = PluginUtils.replacer(attribute, PluginConstants.PATTERN, format("projects/%s/locations/%s", buildProfile.getProjectId(), buildProfile.getLocation()));
-				String attributeName = getAttributeName(attribute);
-				if (attributeName == null) {
-	        		throw new IllegalArgumentException("Attribute does not have a name");
-	        	}
-				if (doesAttributeExist(buildProfile, attributeName)) {
-					switch (buildOption) {
-						case create:
-							logger.info(format("Attribute \"%s\" already exists. Skipping.", attributeName));
-							break;
-						case update:
-							logger.info(format("Attribute \"%s\" already exists. Updating.", attributeName));
-							//update
-							doUpdate(buildProfile, attribute);
-							break;
-						case delete:
-							logger.info(format("Attribute \"%s\" already exists. Deleting.", attributeName));
-							//delete
-							doDelete(buildProfile, attributeName);
-							break;
-						case sync:
-							logger.info(format("Attribute \"%s\" already exists. Deleting and recreating.", attributeName));
-							//delete
-							doDelete(buildProfile, attributeName);
-							logger.info(format("Creating Attribute - %s", attributeName));
-							//create
-							doCreate(buildProfile, attributeName, attribute);
-							break;
-					}
-				} else {
-					switch (buildOption) {
-						case create:
-	                    case sync:
-	                    case update:
-	                    	logger.info(format("Creating Attribute - %s", attributeName));
-	                    	//create
-	                    	doCreate(buildProfile, attributeName, attribute);
-							break;
-	                    case delete:
-                            logger.info(format("Attribute \"%s\" does not exist. Skipping.", attributeName));
-                            break;
-					}
-				}
-			}
+			new ApplyEngine(buildProfile).apply(attributes, journal.track(this::processAttribute));
+			journal.complete();
 		}catch (Exception e) {
 			throw new RuntimeException(e.getMessage());
 		}
 	}
 	
+	/**
+	 * 
+	 * @param attribute
+	 * @throws Exception
+	 */
+	public void processAttribute(com.google.cloud.apihub.v1.Attribute attribute) throws Exception {
+		String attributeName = getAttributeName(attribute);
+		if (attributeName == null) {
+			throw new IllegalArgumentException("Attribute does not have a name");
+		}
+		if (doesAttributeExist(buildProfile, attributeName)) {
+			switch (buildOption) {
+				case create:
+					logger.info(format("Attribute \"%s\" already exists. Skipping.", attributeName));
+					break;
+				case update:
+					logger.info(format("Attribute \"%s\" already exists. Updating.", attributeName));
+					//update
+					doUpdate(buildProfile, attribute);
+					break;
+				case delete:
+					logger.info(format("Attribute \"%s\" already exists. Deleting.", attributeName));
+					//delete
+					doDelete(buildProfile, attributeName);
+					break;
+				case sync:
+					logger.info(format("Attribute \"%s\" already exists. Deleting and recreating.", attributeName));
+					//delete
+					doDelete(buildProfile, attributeName);
+					logger.info(format("Creating Attribute - %s", attributeName));
+					//create
+					doCreate(buildProfile, attributeName, attribute);
+					break;
+			}
+		} else {
+			switch (buildOption) {
+				case create:
+				case sync:
+				case update:
+					logger.info(format("Creating Attribute - %s", attributeName));
+					//create
+					doCreate(buildProfile, attributeName, attribute);
+					break;
+				case delete:
+					logger.info(format("Attribute \"%s\" does not exist. Skipping.", attributeName));
+					break;
+			}
+		}
+	}
+	
 	/**
 	 * 
 	 * @param profile
@@ -252,7 +251,7 @@ public class AttributesMojo extends ApiHubAbstractMojo {
 	 */
 	public void exportAttributes(BuildProfile profile) throws MojoExecutionException {
 		ApiHubClient apiHubClient = null;
-		List<String> attributesList = new ArrayList<String>();
+		List<com.google.cloud.apihub.v1.Attribute> attributesList = new ArrayList<com.google.cloud.apihub.v1.Attribute>();
 		try {
 			apiHubClient = ApiHubClientSingleton.getInstance(profile).getApiHubClient();
 			ListAttributesRequest request =
@@ -262,11 +261,7 @@ public class AttributesMojo extends ApiHubAbstractMojo {
 					.setPageSize(PluginConstants.PAGE_SIZE).build();
 			while (true) {
 		     ListAttributesResponse response = apiHubClient.listAttributesCallable().call(request);
-		     for (com.google.cloud.apihub.v1.Attribute attribute : response.getAttributesList()) {
-		    	 String attrStr = ProtoJsonUtil.toJson(attribute);
-		    	 attrStr = PluginUtils.replacer(attrStr, PluginConstants.PATTERN1, format("projects/%s/locations/%s", PluginConstants.PROJECT_ID, PluginConstants.LOCATION));
-		    	 attributesList.add(PluginUtils.cleanseResponse(attrStr));
-		     }
+		     attributesList.addAll(response.getAttributesList());
 		     String nextPageToken = response.getNextPageToken();
 		     logger.debug("nextPageToken: "+ nextPageToken);
 		     if (!Strings.isNullOrEmpty(nextPageToken)) {
@@ -275,7 +270,7 @@ public class AttributesMojo extends ApiHubAbstractMojo {
 		       break;
 		     }
 		   }
-			PluginUtils.exportToFile(attributesList, profile.getConfigExportDir(), "attributes");
+			ExportWriter.exportToFile(attributesList, profile.getConfigExportDir(), "attributes");
 		}catch (Exception e) {
 			throw new RuntimeException(e.getMessage());
 		}
@@ -284,20 +279,19 @@ public class AttributesMojo extends ApiHubAbstractMojo {
 	/**
 	 * Create attribute
 	 * @param attributeName
-	 * @param attributeStr
+	 * @param attributeObj
 	 * @throws MojoExecutionException
 	 */
-	public void doCreate(BuildProfile profile, String attributeName, String attributeStr) throws MojoExecutionException {
+	public void doCreate(BuildProfile profile, String attributeName, com.google.cloud.apihub.v1.Attribute attributeObj) throws MojoExecutionException {
 		ApiHubClient apiHubClient = null;
 		try {
 			apiHubClient = ApiHubClientSingleton.getInstance(profile).getApiHubClient();
 			LocationName parent = LocationName.of(profile.getProjectId(), profile.getLocation());
-			com.google.cloud.apihub.v1.Attribute attributeObj = ProtoJsonUtil.fromJson(attributeStr, com.google.cloud.apihub.v1.Attribute.class);
 		    apiHubClient.createAttribute(parent, attributeObj, attributeName);
 		    logger.info("Create success");
 		} catch (Exception e) {
 			e.printStackTrace();
-			throw new RuntimeException("Create failure: " + e.getMessage());
+			throw new RuntimeException("Create failure: " + e.getMessage(), e);
 		}
 	}
 
@@ -315,34 +309,38 @@ public class AttributesMojo extends ApiHubAbstractMojo {
 		    apiHubClient.deleteAttribute(name);
 		    logger.info("Delete success");
 		} catch (Exception e) {
+			if (ApiHubRetrySettings.isNotFound(e)) {
+				// deleted by an earlier attempt of the same call
+				logger.info("Already deleted");
+				return;
+			}
 			e.printStackTrace();
-			throw new RuntimeException("Delete failure: " + e.getMessage());
+			throw new RuntimeException("Delete failure: " + e.getMessage(), e);
 		}
 	}
 	
 	/**
 	 * Update attribute
 	 * @param profile
-	 * @param attributeStr
+	 * @param attributeObj
 	 * @throws MojoExecutionException
 	 */
-	public void doUpdate(BuildProfile profile, String attributeStr) throws MojoExecutionException {
+	public void doUpdate(BuildProfile profile, com.google.cloud.apihub.v1.Attribute attributeObj) throws MojoExecutionException {
 		ApiHubClient apiHubClient = null;
 		try {
 			apiHubClient = ApiHubClientSingleton.getInstance(profile).getApiHubClient();
-			com.google.cloud.apihub.v1.Attribute attributeObj = ProtoJsonUtil.fromJson(attributeStr, com.google.cloud.apihub.v1.Attribute.class);
 			List<String> fieldMaskValues = new ArrayList<>();
 			fieldMaskValues.add("display_name");
 			fieldMaskValues.add("description");
 			fieldMaskValues.add("cardinality");
-	        if(attributeStr.contains("ENUM"))
+	        if(attributeObj.getDataType() == com.google.cloud.apihub.v1.Attribute.DataType.ENUM)
 	        	fieldMaskValues.add("allowed_values");
 			FieldMask updateMask = FieldMask.newBuilder().addAllPaths(fieldMaskValues).build();
 		    apiHubClient.updateAttribute(attributeObj, updateMask);
 		    logger.info("Update success");
 		} catch (Exception e) {
 			e.printStackTrace();
-			throw new RuntimeException("Update failure: " + e.getMessage());
+			throw new RuntimeException("Update failure: " + e.getMessage(), e);
 		}
 	}
 	
@@ -368,6 +366,7 @@ public class AttributesMojo extends ApiHubAbstractMojo {
 			if(e.getStatusCode().getCode().equals(Code.NOT_FOUND)) {
 				return false;
 			}
+			throw new IOException(e.getMessage(), e);
         }
         catch (Exception e) {
             throw new IOException(e.getMessage());
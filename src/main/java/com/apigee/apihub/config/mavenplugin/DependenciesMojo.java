@@ -27,15 +27,18 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
-import org.json.simple.parser.ParseException;
 
 import com.apigee.apihub.config.utils.ApiHubClientSingleton;
+import com.apigee.apihub.config.utils.ApiHubRateLimiter;
+import com.apigee.apihub.config.utils.ApiHubRetrySettings;
+import com.apigee.apihub.config.utils.ApplyEngine;
 import com.apigee.apihub.config.utils.BuildProfile;
 import com.apigee.apihub.config.utils.ConfigReader;
+import com.apigee.apihub.config.utils.ConfigStream;
+import com.apigee.apihub.config.utils.ExportWriter;
 import com.apigee.apihub.config.utils.PluginConstants;
 import com.apigee.apihub.config.utils.PluginUtils;
-import com.apigee.apihub.config.utils.ProtoJsonUtil;
-import com.google.api.client.util.Key;
+import com.apigee.apihub.config.utils.ProgressJournal;
 import com.google.api.client.util.Strings;
 import com.google.api.gax.rpc.ApiException;
 import com.google.api.gax.rpc.StatusCode.Code;
@@ -44,8 +47,6 @@ import com.google.cloud.apihub.v1.DependencyName;
 import com.google.cloud.apihub.v1.ListDependenciesRequest;
 import com.google.cloud.apihub.v1.ListDependenciesResponse;
 import com.google.cloud.apihub.v1.LocationName;
-import com.google.gson.Gson;
-import com.google.gson.JsonParseException;
 import com.google.protobuf.FieldMask;
 
 /**
@@ -76,22 +77,8 @@ public class DependenciesMojo extends ApiHubAbstractMojo {
 	}
 	
 	
-	public static class Dependency {
-        @Key
-        public String name;
-    }
-	
-	protected String getDependencyName(String payload) 
-            throws MojoFailureException {
-		Gson gson = new Gson();
-		try {
-			Dependency dependency = gson.fromJson(payload, Dependency.class);
-			String[] parts = dependency.name.split("/");
-			String dependencyName = parts[parts.length - 1];
-			return dependencyName;
-		} catch (JsonParseException e) {
-		  throw new MojoFailureException(e.getMessage());
-		}
+	protected String getDependencyName(com.google.cloud.apihub.v1.Dependency dependency) {
+		return PluginUtils.getResourceId(dependency.getName());
 	}
 
 	/**
@@ -167,16 +154,20 @@ public class DependenciesMojo extends ApiHubAbstractMojo {
 				exportDependencies(buildProfile);
 			} else {
 				logger.info(format("Fetching dependencies.json file from %s directory", buildProfile.getConfigDir()));
-				List<String> dependencies = ConfigReader.parseConfig(buildProfile.getConfigDir()+"/dependencies.json");
-				processDependencies(dependencies);
+				try (ConfigStream<com.google.cloud.apihub.v1.Dependency> dependencies = ConfigReader.streamConfig(buildProfile.getConfigDir()+"/dependencies.json", com.google.cloud.apihub.v1.Dependency.class, buildProfile);
+						ProgressJournal journal = ProgressJournal.open(buildProfile, buildProfile.getConfigDir()+"/dependencies.json")) {
+					processDependencies(dependencies, journal);
+				}
+			}
+			if (buildOption != OPTIONS.none) {
+				buildProfile.getRunMetrics().logSummary(logger);
+				ApiHubRateLimiter.getInstance(buildProfile).logSummary(logger);
 			}
 
 		} catch (MojoFailureException e) {
 			throw e;
 		} catch (RuntimeException e) {
 			throw e;
-		} catch (ParseException e) {
-			throw new MojoFailureException(e.getMessage());
 		} catch (IOException e) {
 			throw new MojoFailureException(e.getMessage());
 		}
@@ -185,9 +176,10 @@ public class DependenciesMojo extends ApiHubAbstractMojo {
 	/**
 	 * 
 	 * @param dependencies
+	 * @param journal
 	 * @throws MojoExecutionException
 	 */
-	public void processDependencies(List<String> dependencies) throws MojoExecutionException {
+	public void processDependencies(Iterable<com.google.cloud.apihub.v1.Dependency> dependencies, ProgressJournal journal) throws MojoExecutionException {
 		try {
 			if (buildOption != OPTIONS.update && 
 					buildOption != OPTIONS.create &&
@@ -195,56 +187,63 @@ public class DependenciesMojo extends ApiHubAbstractMojo {
 	                buildOption != OPTIONS.sync) {
 					return;
 			}
-			for (String dependency : dependencies) {
-				dependency = PluginUtils.replacer(dependency, PluginConstants.PATTERN, format("projects/%s/locations/%s", buildProfile.getProjectId(), buildProfile.getLocation()));
-				String dependencyName = getDependencyName(dependency);
-				if (dependencyName == null) {
-	        		throw new IllegalArgumentException("Dependency does not have a name");
-	        	}
-				if (doesDependencyExist(buildProfile, dependencyName)) {
-					switch (buildOption) {
-						case create:
-							logger.info(format("Dependency \"%s\" already exists. Skipping.", dependencyName));
-							break;
-						case update:
-							logger.info(format("Dependency \"%s\" already exists. Updating.", dependencyName));
-							//update
-							doUpdate(buildProfile, dependency);
-							break;
-						case delete:
-							logger.info(format("Dependency \"%s\" already exists. Deleting.", dependencyName));
-							//delete
-							doDelete(buildProfile, dependencyName);
-							break;
-						case sync:
-							logger.info(format("Dependency \"%s\" already exists. Deleting and recreating.", dependencyName));
-							//delete
-							doDelete(buildProfile, dependencyName);
-							logger.info(format("Creating Dependency - %s", dependencyName));
-							//create
-							doCreate(buildProfile, dependencyName, dependency);
-							break;
-					}
-				} else {
-					switch (buildOption) {
-						case create:
-	                    case sync:
-	                    case update:
-	                    	logger.info(format("Creating Dependency - %s", dependencyName));
-	                    	//create
-	                    	doCreate(buildProfile, dependencyName, dependency);
-							break;
-	                    case delete:
-                            logger.info(format("Dependency \"%s\" does not exist. Skipping.", dependencyName));
-                            break;
-					}
-				}
-			}
+			new ApplyEngine(buildProfile).apply(dependencies, journal.track(this::processDependency));
+			journal.complete();
 		}catch (Exception e) {
 			throw new RuntimeException(e.getMessage());
 		}
 	}
 	
+	/**
+	 * 
+	 * @param dependency
+	 * @throws Exception
+	 */
+	public void processDependency(com.google.cloud.apihub.v1.Dependency dependency) throws Exception {
+		String dependencyName = getDependencyName(dependency);
+		if (dependencyName == null) {
+			throw new IllegalArgumentException("Dependency does not have a name");
+		}
+		if (doesDependencyExist(buildProfile, dependencyName)) {
+			switch (buildOption) {
+				case create:
+					logger.info(format("Dependency \"%s\" already exists. Skipping.", dependencyName));
+					break;
+				case update:
+					logger.info(format("Dependency \"%s\" already exists. Updating.", dependencyName));
+					//update
+					doUpdate(buildProfile, dependency);
+					break;
+				case delete:
+					logger.info(format("Dependency \"%s\" already exists. Deleting.", dependencyName));
+					//delete
+					doDelete(buildProfile, dependencyName);
+					break;
+				case sync:
+					logger.info(format("Dependency \"%s\" already exists. Deleting and recreating.", dependencyName));
+					//delete
+					doDelete(buildProfile, dependencyName);
+					logger.info(format("Creating Dependency - %s", dependencyName));
+					//create
+					doCreate(buildProfile, dependencyName, dependency);
+					break;
+			}
+		} else {
+			switch (buildOption) {
+				case create:
+				case sync:
+				case update:
+					logger.info(format("Creating Dependency - %s", dependencyName));
+					//create
+					doCreate(buildProfile, dependencyName, dependency);
+					break;
+				case delete:
+					logger.info(format("Dependency \"%s\" does not exist. Skipping.", dependencyName));
+					break;
+			}
+		}
+	}
+	
 	/**
 	 * 
 	 * @param profile
@@ -252,7 +251,7 @@ public class DependenciesMojo extends ApiHubAbstractMojo {
 	 */
 	public void exportDependencies(BuildProfile profile) throws MojoExecutionException {
 		ApiHubDependenciesClient apiHubDependenciesClient = null;
-		List<String> dependenciesList = new ArrayList<String>();
+		List<com.google.cloud.apihub.v1.Dependency> dependenciesList = new ArrayList<com.google.cloud.apihub.v1.Dependency>();
 		try {
 			apiHubDependenciesClient = ApiHubClientSingleton.getDependenciesInstance(profile).getApiHubDependenciesClient();
 			ListDependenciesRequest request =
@@ -262,11 +261,7 @@ public class DependenciesMojo extends ApiHubAbstractMojo {
 					.setPageSize(PluginConstants.PAGE_SIZE).build();
 			while (true) {
 		     ListDependenciesResponse response = apiHubDependenciesClient.listDependenciesCallable().call(request);
-		     for (com.google.cloud.apihub.v1.Dependency dependency : response.getDependenciesList()) {
-		    	 String dependencyStr = ProtoJsonUtil.toJson(dependency);
-		    	 dependencyStr = PluginUtils.replacer(dependencyStr, PluginConstants.PATTERN1, format("projects/%s/locations/%s", PluginConstants.PROJECT_ID, PluginConstants.LOCATION));
-		    	 dependenciesList.add(PluginUtils.cleanseResponse(dependencyStr));
-		     }
+		     dependenciesList.addAll(response.getDependenciesList());
 		     String nextPageToken = response.getNextPageToken();
 		     logger.debug("nextPageToken: "+ nextPageToken);
 		     if (!Strings.isNullOrEmpty(nextPageToken)) {
@@ -275,7 +270,7 @@ public class DependenciesMojo extends ApiHubAbstractMojo {
 		       break;
 		     }
 		   }
-			PluginUtils.exportToFile(dependenciesList, profile.getConfigExportDir(), "dependencies");
+			ExportWriter.exportToFile(dependenciesList, profile.getConfigExportDir(), "dependencies");
 		}catch (Exception e) {
 			throw new RuntimeException(e.getMessage());
 		}
@@ -284,20 +279,19 @@ public class DependenciesMojo extends ApiHubAbstractMojo {
 	/**
 	 * Create Dependency
 	 * @param dependencyName
-	 * @param dependencyStr
+	 * @param dependencyObj
 	 * @throws MojoExecutionException
 	 */
-	public void doCreate(BuildProfile profile, String dependencyName, String dependencyStr) throws MojoExecutionException {
+	public void doCreate(BuildProfile profile, String dependencyName, com.google.cloud.apihub.v1.Dependency dependencyObj) throws MojoExecutionException {
 		ApiHubDependenciesClient apiHubDependenciesClient = null;
 		try {
 			apiHubDependenciesClient = ApiHubClientSingleton.getDependenciesInstance(profile).getApiHubDependenciesClient();
 			LocationName parent = LocationName.of(profile.getProjectId(), profile.getLocation());
-			com.google.cloud.apihub.v1.Dependency dependencyObj = ProtoJsonUtil.fromJson(dependencyStr, com.google.cloud.apihub.v1.Dependency.class);
 			apiHubDependenciesClient.createDependency(parent, dependencyObj, dependencyName);
 		    logger.info("Create success");
 		} catch (Exception e) {
 			e.printStackTrace();
-			throw new RuntimeException("Create failure: " + e.getMessage());
+			throw new RuntimeException("Create failure: " + e.getMessage(), e);
 		}
 	}
 
@@ -315,22 +309,26 @@ public class DependenciesMojo extends ApiHubAbstractMojo {
 			apiHubDependenciesClient.deleteDependency(name);
 		    logger.info("Delete success");
 		} catch (Exception e) {
+			if (ApiHubRetrySettings.isNotFound(e)) {
+				// deleted by an earlier attempt of the same call
+				logger.info("Already deleted");
+				return;
+			}
 			e.printStackTrace();
-			throw new RuntimeException("Delete failure: " + e.getMessage());
+			throw new RuntimeException("Delete failure: " + e.getMessage(), e);
 		}
 	}
 	
 	/**
 	 * Update Dependency
 	 * @param profile
-	 * @param dependencyStr
+	 * @param dependencyObj
 	 * @throws MojoExecutionException
 	 */
-	public void doUpdate(BuildProfile profile, String dependencyStr) throws MojoExecutionException {
+	public void doUpdate(BuildProfile profile, com.google.cloud.apihub.v1.Dependency dependencyObj) throws MojoExecutionException {
 		ApiHubDependenciesClient apiHubDependenciesClient = null;
 		try {
 			apiHubDependenciesClient = ApiHubClientSingleton.getDependenciesInstance(profile).getApiHubDependenciesClient();
-			com.google.cloud.apihub.v1.Dependency dependencyObj = ProtoJsonUtil.fromJson(dependencyStr, com.google.cloud.apihub.v1.Dependency.class);
 			List<String> fieldMaskValues = new ArrayList<>();
 			fieldMaskValues.add("description");
 			FieldMask updateMask = FieldMask.newBuilder().addAllPaths(fieldMaskValues).build();
@@ -338,7 +336,7 @@ public class DependenciesMojo extends ApiHubAbstractMojo {
 		    logger.info("Update success");
 		} catch (Exception e) {
 			e.printStackTrace();
-			throw new RuntimeException("Update failure: " + e.getMessage());
+			throw new RuntimeException("Update failure: " + e.getMessage(), e);
 		}
 	}
 	
@@ -364,6 +362,7 @@ public class DependenciesMojo extends ApiHubAbstractMojo {
 			if(e.getStatusCode().getCode().equals(Code.NOT_FOUND)) {
 				return false;
 			}
+			throw new IOException(e.getMessage(), e);
         }
         catch (Exception e) {
             throw new IOException(e.getMessage());
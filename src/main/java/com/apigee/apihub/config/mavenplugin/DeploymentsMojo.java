@@ -27,15 +27,18 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
-import org.json.simple.parser.ParseException;
 
 import com.apigee.apihub.config.utils.ApiHubClientSingleton;
+import com.apigee.apihub.config.utils.ApiHubRateLimiter;
+import com.apigee.apihub.config.utils.ApiHubRetrySettings;
+import com.apigee.apihub.config.utils.ApplyEngine;
 import com.apigee.apihub.config.utils.BuildProfile;
 import com.apigee.apihub.config.utils.ConfigReader;
+import com.apigee.apihub.config.utils.ConfigStream;
+import com.apigee.apihub.config.utils.ExportWriter;
 import com.apigee.apihub.config.utils.PluginConstants;
 import com.apigee.apihub.config.utils.PluginUtils;
-import com.apigee.apihub.config.utils.ProtoJsonUtil;
-import com.google.api.client.util.Key;
+import com.apigee.apihub.config.utils.ProgressJournal;
 import com.google.api.client.util.Strings;
 import com.google.api.gax.rpc.ApiException;
 import com.google.api.gax.rpc.StatusCode.Code;
@@ -44,8 +47,6 @@ import com.google.cloud.apihub.v1.DeploymentName;
 import com.google.cloud.apihub.v1.ListDeploymentsRequest;
 import com.google.cloud.apihub.v1.ListDeploymentsResponse;
 import com.google.cloud.apihub.v1.LocationName;
-import com.google.gson.Gson;
-import com.google.gson.JsonParseException;
 import com.google.protobuf.FieldMask;
 
 /**
@@ -76,22 +77,8 @@ public class DeploymentsMojo extends ApiHubAbstractMojo {
 	}
 	
 	
-	public static class Deployment {
-        @Key
-        public String name;
-    }
-	
-	protected String getDeploymentName(String payload) 
-            throws MojoFailureException {
-		Gson gson = new Gson();
-		try {
-			Deployment deployment = gson.fromJson(payload, Deployment.class);
-			String[] parts = deployment.name.split("/");
-			String deploymentName = parts[parts.length - 1];
-			return deploymentName;
-		} catch (JsonParseException e) {
-		  throw new MojoFailureException(e.getMessage());
-		}
+	protected String getDeploymentName(com.google.cloud.apihub.v1.Deployment deployment) {
+		return PluginUtils.getResourceId(deployment.getName());
 	}
 
 	/**
@@ -167,16 +154,20 @@ public class DeploymentsMojo extends ApiHubAbstractMojo {
 				exportDeployments(buildProfile);
 			} else {
 				logger.info(format("Fetching deployments.json file from %s directory", buildProfile.getConfigDir()));
-				List<String> deployments = ConfigReader.parseConfig(buildProfile.getConfigDir()+"/deployments.json");
-				processDeployments(deployments);
+				try (ConfigStream<com.google.cloud.apihub.v1.Deployment> deployments = ConfigReader.streamConfig(buildProfile.getConfigDir()+"/deployments.json", com.google.cloud.apihub.v1.Deployment.class, buildProfile);
+						ProgressJournal journal = ProgressJournal.open(buildProfile, buildProfile.getConfigDir()+"/deployments.json")) {
+					processDeployments(deployments, journal);
+				}
+			}
+			if (buildOption != OPTIONS.none) {
+				buildProfile.getRunMetrics().logSummary(logger);
+				ApiHubRateLimiter.getInstance(buildProfile).logSummary(logger);
 			}
 
 		} catch (MojoFailureException e) {
 			throw e;
 		} catch (RuntimeException e) {
 			throw e;
-		} catch (ParseException e) {
-			throw new MojoFailureException(e.getMessage());
 		} catch (IOException e) {
 			throw new MojoFailureException(e.getMessage());
 		}
@@ -185,9 +176,10 @@ public class DeploymentsMojo extends ApiHubAbstractMojo {
 	/**
 	 * 
 	 * @param deployments
+	 * @param journal
 	 * @throws MojoExecutionException
 	 */
-	public void processDeployments(List<String> deployments) throws MojoExecutionException {
+	public void processDeployments(Iterable<com.google.cloud.apihub.v1.Deployment> deployments, ProgressJournal journal) throws MojoExecutionException {
 		try {
 			if (buildOption != OPTIONS.update && 
 					buildOption != OPTIONS.create &&
@@ -195,56 +187,63 @@ public class DeploymentsMojo extends ApiHubAbstractMojo {
 	                buildOption != OPTIONS.sync) {
 					return;
 			}
-			for (String deployment : deployments) {
-				deployment = PluginUtils.replacer(deployment, PluginConstants.PATTERN, format("projects/%s/locations/%s", buildProfile.getProjectId(), buildProfile.getLocation()));
-				String deploymentName = getDeploymentName(deployment);
-				if (deploymentName == null) {
-	        		throw new IllegalArgumentException("Deployment does not have a name");
-	        	}
-				if (doesDeploymentExist(buildProfile, deploymentName)) {
-					switch (buildOption) {
-						case create:
-							logger.info(format("Deployment \"%s\" already exists. Skipping.", deploymentName));
-							break;
-						case update:
-							logger.info(format("Deployment \"%s\" already exists. Updating.", deploymentName));
-							//update
-							doUpdate(buildProfile, deployment);
-							break;
-						case delete:
-							logger.info(format("Deployment \"%s\" already exists. Deleting.", deploymentName));
-							//delete
-							doDelete(buildProfile, deploymentName);
-							break;
-						case sync:
-							logger.info(format("Deployment \"%s\" already exists. Deleting and recreating.", deploymentName));
-							//delete
-							doDelete(buildProfile, deploymentName);
-							logger.info(format("Creating Deployment - %s", deploymentName));
-							//create
-							doCreate(buildProfile, deploymentName, deployment);
-							break;
-					}
-				} else {
-					switch (buildOption) {
-						case create:
-	                    case sync:
-	                    case update:
-	                    	logger.info(format("Creating Deployment - %s", deploymentName));
-	                    	//create
-	                    	doCreate(buildProfile, deploymentName, deployment);
-							break;
-	                    case delete:
-                            logger.info(format("Deployment \"%s\" does not exist. Skipping.", deploymentName));
-                            break;
-					}
-				}
-			}
+			new ApplyEngine(buildProfile).apply(deployments, journal.track(this::processDeployment));
+			journal.complete();
 		}catch (Exception e) {
 			throw new RuntimeException(e.getMessage());
 		}
 	}
 	
+	/**
+	 * 
+	 * @param deployment
+	 * @throws Exception
+	 */
+	public void processDeployment(com.google.cloud.apihub.v1.Deployment deployment) throws Exception {
+		String deploymentName = getDeploymentName(deployment);
+		if (deploymentName == null) {
+			throw new IllegalArgumentException("Deployment does not have a name");
+		}
+		if (doesDeploymentExist(buildProfile, deploymentName)) {
+			switch (buildOption) {
+				case create:
+					logger.info(format("Deployment \"%s\" already exists. Skipping.", deploymentName));
+					break;
+				case update:
+					logger.info(format("Deployment \"%s\" already exists. Updating.", deploymentName));
+					//update
+					doUpdate(buildProfile, deployment);
+					break;
+				case delete:
+					logger.info(format("Deployment \"%s\" already exists. Deleting.", deploymentName));
+					//delete
+					doDelete(buildProfile, deploymentName);
+					break;
+				case sync:
+					logger.info(format("Deployment \"%s\" already exists. Deleting and recreating.", deploymentName));
+					//delete
+					doDelete(buildProfile, deploymentName);
+					logger.info(format("Creating Deployment - %s", deploymentName));
+					//create
+					doCreate(buildProfile, deploymentName, deployment);
+					break;
+			}
+		} else {
+			switch (buildOption) {
+				case create:
+				case sync:
+				case update:
+					logger.info(format("Creating Deployment - %s", deploymentName));
+					//create
+					doCreate(buildProfile, deploymentName, deployment);
+					break;
+				case delete:
+					logger.info(format("Deployment \"%s\" does not exist. Skipping.", deploymentName));
+					break;
+			}
+		}
+	}
+	
 	/**
 	 * 
 	 * @param profile
@@ -252,7 +251,7 @@ public class DeploymentsMojo extends ApiHubAbstractMojo {
 	 */
 	public void exportDeployments(BuildProfile profile) throws MojoExecutionException {
 		ApiHubClient apiHubClient = null;
-		List<String> deploymentList = new ArrayList<String>();
+		List<com.google.cloud.apihub.v1.Deployment> deploymentList = new ArrayList<com.google.cloud.apihub.v1.Deployment>();
 		try {
 			apiHubClient = ApiHubClientSingleton.getInstance(profile).getApiHubClient();
 			ListDeploymentsRequest request =
@@ -262,11 +261,7 @@ public class DeploymentsMojo extends ApiHubAbstractMojo {
 					.setPageSize(PluginConstants.PAGE_SIZE).build();
 			while (true) {
 		     ListDeploymentsResponse response = apiHubClient.listDeploymentsCallable().call(request);
-		     for (com.google.cloud.apihub.v1.Deployment deployment : response.getDeploymentsList()) {
-		    	 String deploymentStr = ProtoJsonUtil.toJson(deployment);
-		    	 deploymentStr = PluginUtils.replacer(deploymentStr, PluginConstants.PATTERN1, format("projects/%s/locations/%s", PluginConstants.PROJECT_ID, PluginConstants.LOCATION));
-		    	 deploymentList.add(PluginUtils.cleanseResponse(deploymentStr));
-		     }
+		     deploymentList.addAll(response.getDeploymentsList());
 		     String nextPageToken = response.getNextPageToken();
 		     logger.debug("nextPageToken: "+ nextPageToken);
 		     if (!Strings.isNullOrEmpty(nextPageToken)) {
@@ -275,7 +270,7 @@ public class DeploymentsMojo extends ApiHubAbstractMojo {
 		       break;
 		     }
 		   }
-			PluginUtils.exportToFile(deploymentList, profile.getConfigExportDir(), "deployments");
+			ExportWriter.exportToFile(deploymentList, profile.getConfigExportDir(), "deployments");
 		}catch (Exception e) {
 			throw new RuntimeException(e.getMessage());
 		}
@@ -284,20 +279,19 @@ public class DeploymentsMojo extends ApiHubAbstractMojo {
 	/**
 	 * Create Deployment
 	 * @param deploymentName
-	 * @param deploymentStr
+	 * @param deploymentObj
 	 * @throws MojoExecutionException
 	 */
-	public void doCreate(BuildProfile profile, String deploymentName, String deploymentStr) throws MojoExecutionException {
+	public void doCreate(BuildProfile profile, String deploymentName, com.google.cloud.apihub.v1.Deployment deploymentObj) throws MojoExecutionException {
 		ApiHubClient apiHubClient = null;
 		try {
 			apiHubClient = ApiHubClientSingleton.getInstance(profile).getApiHubClient();
 			LocationName parent = LocationName.of(profile.getProjectId(), profile.getLocation());
-			com.google.cloud.apihub.v1.Deployment deploymentObj = ProtoJsonUtil.fromJson(deploymentStr, com.google.cloud.apihub.v1.Deployment.class);
 			apiHubClient.createDeployment(parent, deploymentObj, deploymentName);
 		    logger.info("Create success");
 		} catch (Exception e) {
 			e.printStackTrace();
-			throw new RuntimeException("Create failure: " + e.getMessage());
+			throw new RuntimeException("Create failure: " + e.getMessage(), e);
 		}
 	}
 
@@ -315,22 +309,26 @@ public class DeploymentsMojo extends ApiHubAbstractMojo {
 			apiHubClient.deleteDeployment(name);
 		    logger.info("Delete success");
 		} catch (Exception e) {
+			if (ApiHubRetrySettings.isNotFound(e)) {
+				// deleted by an earlier attempt of the same call
+				logger.info("Already deleted");
+				return;
+			}
 			e.printStackTrace();
-			throw new RuntimeException("Delete failure: " + e.getMessage());
+			throw new RuntimeException("Delete failure: " + e.getMessage(), e);
 		}
 	}
 	
 	/**
 	 * Update Deployment
 	 * @param profile
-	 * @param deploymentStr
+	 * @param deploymentObj
 	 * @throws MojoExecutionException
 	 */
-	public void doUpdate(BuildProfile profile, String deploymentStr) throws MojoExecutionException {
+	public void doUpdate(BuildProfile profile, com.google.cloud.apihub.v1.Deployment deploymentObj) throws MojoExecutionException {
 		ApiHubClient apiHubClient = null;
 		try {
 			apiHubClient = ApiHubClientSingleton.getInstance(profile).getApiHubClient();
-			com.google.cloud.apihub.v1.Deployment deploymentObj = ProtoJsonUtil.fromJson(deploymentStr, com.google.cloud.apihub.v1.Deployment.class);
 			List<String> fieldMaskValues = new ArrayList<>();
 			fieldMaskValues.add("display_name");
 			fieldMaskValues.add("description");
@@ -346,7 +344,7 @@ public class DeploymentsMojo extends ApiHubAbstractMojo {
 		    logger.info("Update success");
 		} catch (Exception e) {
 			e.printStackTrace();
-			throw new RuntimeException("Update failure: " + e.getMessage());
+			throw new RuntimeException("Update failure: " + e.getMessage(), e);
 		}
 	}
 	
@@ -372,6 +370,7 @@ public class DeploymentsMojo extends ApiHubAbstractMojo {
 			if(e.getStatusCode().getCode().equals(Code.NOT_FOUND)) {
 				return false;
 			}
+			throw new IOException(e.getMessage(), e);
         }
         catch (Exception e) {
             throw new IOException(e.getMessage());
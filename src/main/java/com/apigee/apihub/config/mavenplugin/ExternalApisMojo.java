@@ -27,15 +27,18 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
-import org.json.simple.parser.ParseException;
 
 import com.apigee.apihub.config.utils.ApiHubClientSingleton;
+import com.apigee.apihub.config.utils.ApiHubRateLimiter;
+import com.apigee.apihub.config.utils.ApiHubRetrySettings;
+import com.apigee.apihub.config.utils.ApplyEngine;
 import com.apigee.apihub.config.utils.BuildProfile;
 import com.apigee.apihub.config.utils.ConfigReader;
+import com.apigee.apihub.config.utils.ConfigStream;
+import com.apigee.apihub.config.utils.ExportWriter;
 import com.apigee.apihub.config.utils.PluginConstants;
 import com.apigee.apihub.config.utils.PluginUtils;
-import com.apigee.apihub.config.utils.ProtoJsonUtil;
-import com.google.api.client.util.Key;
+import com.apigee.apihub.config.utils.ProgressJournal;
 import com.google.api.client.util.Strings;
 import com.google.api.gax.rpc.ApiException;
 import com.google.api.gax.rpc.StatusCode.Code;
@@ -44,8 +47,6 @@ import com.google.cloud.apihub.v1.ExternalApiName;
 import com.google.cloud.apihub.v1.ListExternalApisRequest;
 import com.google.cloud.apihub.v1.ListExternalApisResponse;
 import com.google.cloud.apihub.v1.LocationName;
-import com.google.gson.Gson;
-import com.google.gson.JsonParseException;
 import com.google.protobuf.FieldMask;
 
 /**
@@ -76,22 +77,8 @@ public class ExternalApisMojo extends ApiHubAbstractMojo {
 	}
 	
 	
-	public static class ExternalApi {
-        @Key
-        public String name;
-    }
-	
-	protected String getExternalApiName(String payload) 
-            throws MojoFailureException {
-		Gson gson = new Gson();
-		try {
-			ExternalApi externalApi = gson.fromJson(payload, ExternalApi.class);
-			String[] parts = externalApi.name.split("/");
-			String externalApiName = parts[parts.length - 1];
-			return externalApiName;
-		} catch (JsonParseException e) {
-		  throw new MojoFailureException(e.getMessage());
-		}
+	protected String getExternalApiName(com.google.cloud.apihub.v1.ExternalApi externalApi) {
+		return PluginUtils.getResourceId(externalApi.getName());
 	}
 
 	/**
@@ -167,16 +154,20 @@ public class ExternalApisMojo extends ApiHubAbstractMojo {
 				exportExternalApis(buildProfile);
 			} else {
 				logger.info(format("Fetching externalApis.json file from %s directory", buildProfile.getConfigDir()));
-				List<String> externalApis = ConfigReader.parseConfig(buildProfile.getConfigDir()+"/externalApis.json");
-				processExternalApis(externalApis);
+				try (ConfigStream<com.google.cloud.apihub.v1.ExternalApi> externalApis = ConfigReader.streamConfig(buildProfile.getConfigDir()+"/externalApis.json", com.google.cloud.apihub.v1.ExternalApi.class, buildProfile);
+						ProgressJournal journal = ProgressJournal.open(buildProfile, buildProfile.getConfigDir()+"/externalApis.json")) {
+					processExternalApis(externalApis, journal);
+				}
+			}
+			if (buildOption != OPTIONS.none) {
+				buildProfile.getRunMetrics().logSummary(logger);
+				ApiHubRateLimiter.getInstance(buildProfile).logSummary(logger);
 			}
 
 		} catch (MojoFailureException e) {
 			throw e;
 		} catch (RuntimeException e) {
 			throw e;
-		} catch (ParseException e) {
-			throw new MojoFailureException(e.getMessage());
 		} catch (IOException e) {
 			throw new MojoFailureException(e.getMessage());
 		}
@@ -185,9 +176,10 @@ public class ExternalApisMojo extends ApiHubAbstractMojo {
 	/**
 	 * 
 	 * @param externalApis
+	 * @param journal
 	 * @throws MojoExecutionException
 	 */
-	public void processExternalApis(List<String> externalApis) throws MojoExecutionException {
+	public void processExternalApis(Iterable<com.google.cloud.apihub.v1.ExternalApi> externalApis, ProgressJournal journal) throws MojoExecutionException {
 		try {
 			if (buildOption != OPTIONS.update && 
 					buildOption != OPTIONS.create &&
@@ -195,56 +187,63 @@ public class ExternalApisMojo extends ApiHubAbstractMojo {
 	                buildOption != OPTIONS.sync) {
 					return;
 			}
-			for (String externalApi : externalApis) {
-				externalApi = PluginUtils.replacer(externalApi, PluginConstants.PATTERN, format("projects/%s/locations/%s", buildProfile.getProjectId(), buildProfile.getLocation()));
-				String externalApiName = getExternalApiName(externalApi);
-				if (externalApiName == null) {
-	        		throw new IllegalArgumentException("External API does not have a name");
-	        	}
-				if (doesExternalApiExist(buildProfile, externalApiName)) {
-					switch (buildOption) {
-						case create:
-							logger.info(format("External API \"%s\" already exists. Skipping.", externalApiName));
-							break;
-						case update:
-							logger.info(format("External API \"%s\" already exists. Updating.", externalApiName));
-							//update
-							doUpdate(buildProfile, externalApi);
-							break;
-						case delete:
-							logger.info(format("External API \"%s\" already exists. Deleting.", externalApiName));
-							//delete
-							doDelete(buildProfile, externalApiName);
-							break;
-						case sync:
-							logger.info(format("External API \"%s\" already exists. Deleting and recreating.", externalApiName));
-							//delete
-							doDelete(buildProfile, externalApiName);
-							logger.info(format("Creating External API - %s", externalApiName));
-							//create
-							doCreate(buildProfile, externalApiName, externalApi);
-							break;
-					}
-				} else {
-					switch (buildOption) {
-						case create:
-	                    case sync:
-	                    case update:
-	                    	logger.info(format("Creating External API - %s", externalApiName));
-	                    	//create
-	                    	doCreate(buildProfile, externalApiName, externalApi);
-							break;
-	                    case delete:
-                            logger.info(format("External API \"%s\" does not exist. Skipping.", externalApiName));
-                            break;
-					}
-				}
-			}
+			new ApplyEngine(buildProfile).apply(externalApis, journal.track(this::processExternalApi));
+			journal.complete();
 		}catch (Exception e) {
 			throw new RuntimeException(e.getMessage());
 		}
 	}
 	
+	/**
+	 * 
+	 * @param externalApi
+	 * @throws Exception
+	 */
+	public void processExternalApi(com.google.cloud.apihub.v1.ExternalApi externalApi) throws Exception {
+		String externalApiName = getExternalApiName(externalApi);
+		if (externalApiName == null) {
+			throw new IllegalArgumentException("External API does not have a name");
+		}
+		if (doesExternalApiExist(buildProfile, externalApiName)) {
+			switch (buildOption) {
+				case create:
+					logger.info(format("External API \"%s\" already exists. Skipping.", externalApiName));
+					break;
+				case update:
+					logger.info(format("External API \"%s\" already exists. Updating.", externalApiName));
+					//update
+					doUpdate(buildProfile, externalApi);
+					break;
+				case delete:
+					logger.info(format("External API \"%s\" already exists. Deleting.", externalApiName));
+					//delete
+					doDelete(buildProfile, externalApiName);
+					break;
+				case sync:
+					logger.info(format("External API \"%s\" already exists. Deleting and recreating.", externalApiName));
+					//delete
+					doDelete(buildProfile, externalApiName);
+					logger.info(format("Creating External API - %s", externalApiName));
+					//create
+					doCreate(buildProfile, externalApiName, externalApi);
+					break;
+			}
+		} else {
+			switch (buildOption) {
+				case create:
+				case sync:
+				case update:
+					logger.info(format("Creating External API - %s", externalApiName));
+					//create
+					doCreate(buildProfile, externalApiName, externalApi);
+					break;
+				case delete:
+					logger.info(format("External API \"%s\" does not exist. Skipping.", externalApiName));
+					break;
+			}
+		}
+	}
+	
 	/**
 	 * 
 	 * @param profile
@@ -252,7 +251,7 @@ public class ExternalApisMojo extends ApiHubAbstractMojo {
 	 */
 	public void exportExternalApis(BuildProfile profile) throws MojoExecutionException {
 		ApiHubClient apiHubClient = null;
-		List<String> externalApiList = new ArrayList<String>();
+		List<com.google.cloud.apihub.v1.ExternalApi> externalApiList = new ArrayList<com.google.cloud.apihub.v1.ExternalApi>();
 		try {
 			apiHubClient = ApiHubClientSingleton.getInstance(profile).getApiHubClient();
 			ListExternalApisRequest request =
@@ -262,11 +261,7 @@ public class ExternalApisMojo extends ApiHubAbstractMojo {
 					.setPageSize(PluginConstants.PAGE_SIZE).build();
 			while (true) {
 		     ListExternalApisResponse response = apiHubClient.listExternalApisCallable().call(request);
-		     for (com.google.cloud.apihub.v1.ExternalApi api : response.getExternalApisList()) {
-		    	 String apiStr = ProtoJsonUtil.toJson(api);
-		    	 apiStr = PluginUtils.replacer(apiStr, PluginConstants.PATTERN1, format("projects/%s/locations/%s", PluginConstants.PROJECT_ID, PluginConstants.LOCATION));
-		    	 externalApiList.add(PluginUtils.cleanseResponse(apiStr));
-		     }
+		     externalApiList.addAll(response.getExternalApisList());
 		     String nextPageToken = response.getNextPageToken();
 		     logger.debug("nextPageToken: "+ nextPageToken);
 		     if (!Strings.isNullOrEmpty(nextPageToken)) {
@@ -275,7 +270,7 @@ public class ExternalApisMojo extends ApiHubAbstractMojo {
 		       break;
 		     }
 		   }
-			PluginUtils.exportToFile(externalApiList, profile.getConfigExportDir(), "externalApis");
+			ExportWriter.exportToFile(externalApiList, profile.getConfigExportDir(), "externalApis");
 		}catch (Exception e) {
 			throw new RuntimeException(e.getMessage());
 		}
@@ -284,20 +279,19 @@ public class ExternalApisMojo extends ApiHubAbstractMojo {
 	/**
 	 * Create External API
 	 * @param externalApiName
-	 * @param externalApiStr
+	 * @param externalApipObj
 	 * @throws MojoExecutionException
 	 */
-	public void doCreate(BuildProfile profile, String externalApiName, String externalApiStr) throws MojoExecutionException {
+	public void doCreate(BuildProfile profile, String externalApiName, com.google.cloud.apihub.v1.ExternalApi externalApipObj) throws MojoExecutionException {
 		ApiHubClient apiHubClient = null;
 		try {
 			apiHubClient = ApiHubClientSingleton.getInstance(profile).getApiHubClient();
 			LocationName parent = LocationName.of(profile.getProjectId(), profile.getLocation());
-			com.google.cloud.apihub.v1.ExternalApi externalApipObj = ProtoJsonUtil.fromJson(externalApiStr, com.google.cloud.apihub.v1.ExternalApi.class);
 		    apiHubClient.createExternalApi(parent, externalApipObj, externalApiName);
 		    logger.info("Create success");
 		} catch (Exception e) {
 			e.printStackTrace();
-			throw new RuntimeException("Create failure: " + e.getMessage());
+			throw new RuntimeException("Create failure: " + e.getMessage(), e);
 		}
 	}
 
@@ -315,22 +309,26 @@ public class ExternalApisMojo extends ApiHubAbstractMojo {
 		    apiHubClient.deleteExternalApi(name);
 		    logger.info("Delete success");
 		} catch (Exception e) {
+			if (ApiHubRetrySettings.isNotFound(e)) {
+				// deleted by an earlier attempt of the same call
+				logger.info("Already deleted");
+				return;
+			}
 			e.printStackTrace();
-			throw new RuntimeException("Delete failure: " + e.getMessage());
+			throw new RuntimeException("Delete failure: " + e.getMessage(), e);
 		}
 	}
 	
 	/**
 	 * Update External API
 	 * @param profile
-	 * @param externalApiStr
+	 * @param externalApiObj
 	 * @throws MojoExecutionException
 	 */
-	public void doUpdate(BuildProfile profile, String externalApiStr) throws MojoExecutionException {
+	public void doUpdate(BuildProfile profile, com.google.cloud.apihub.v1.ExternalApi externalApiObj) throws MojoExecutionException {
 		ApiHubClient apiHubClient = null;
 		try {
 			apiHubClient = ApiHubClientSingleton.getInstance(profile).getApiHubClient();
-			com.google.cloud.apihub.v1.ExternalApi externalApiObj = ProtoJsonUtil.fromJson(externalApiStr, com.google.cloud.apihub.v1.ExternalApi.class);
 			List<String> fieldMaskValues = new ArrayList<>();
 			fieldMaskValues.add("display_name");
 			fieldMaskValues.add("description");
@@ -342,7 +340,7 @@ public class ExternalApisMojo extends ApiHubAbstractMojo {
 		    logger.info("Update success");
 		} catch (Exception e) {
 			e.printStackTrace();
-			throw new RuntimeException("Update failure: " + e.getMessage());
+			throw new RuntimeException("Update failure: " + e.getMessage(), e);
 		}
 	}
 	
@@ -368,6 +366,7 @@ public class ExternalApisMojo extends ApiHubAbstractMojo {
 			if(e.getStatusCode().getCode().equals(Code.NOT_FOUND)) {
 				return false;
 			}
+			throw new IOException(e.getMessage(), e);
         }
         catch (Exception e) {
             throw new IOException(e.getMessage());
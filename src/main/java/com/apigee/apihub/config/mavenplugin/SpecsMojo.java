@@ -23,22 +23,25 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
-import org.json.simple.parser.ParseException;
 
 import com.apigee.apihub.config.utils.ApiHubClientSingleton;
+import com.apigee.apihub.config.utils.ApiHubRateLimiter;
+import com.apigee.apihub.config.utils.ApiHubRetrySettings;
+import com.apigee.apihub.config.utils.ApplyEngine;
 import com.apigee.apihub.config.utils.BuildProfile;
+import com.apigee.apihub.config.utils.ConfigEntry;
 import com.apigee.apihub.config.utils.ConfigReader;
-import com.apigee.apihub.config.utils.FQDNHelper;
+import com.apigee.apihub.config.utils.ConfigStream;
+import com.apigee.apihub.config.utils.ExportEngine;
+import com.apigee.apihub.config.utils.ExportWriter;
 import com.apigee.apihub.config.utils.PluginConstants;
 import com.apigee.apihub.config.utils.PluginUtils;
-import com.apigee.apihub.config.utils.ProtoJsonUtil;
-import com.google.api.client.util.Key;
+import com.apigee.apihub.config.utils.ProgressJournal;
 import com.google.api.client.util.Strings;
 import com.google.api.gax.rpc.ApiException;
 import com.google.api.gax.rpc.StatusCode.Code;
@@ -52,9 +55,6 @@ import com.google.cloud.apihub.v1.ListVersionsResponse;
 import com.google.cloud.apihub.v1.LocationName;
 import com.google.cloud.apihub.v1.SpecContents;
 import com.google.cloud.apihub.v1.VersionName;
-import com.google.gson.Gson;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParseException;
 import com.google.protobuf.FieldMask;
 
 /**
@@ -85,33 +85,12 @@ public class SpecsMojo extends ApiHubAbstractMojo {
 	}
 	
 	
-	public static class Spec {
-        @Key
-        public String name;
-    }
-	
-	protected String getSpecId(String payload) 
-            throws MojoFailureException {
-		Gson gson = new Gson();
-		try {
-			Spec spec = gson.fromJson(payload, Spec.class);
-			String[] parts = spec.name.split("/");
-			String specName = parts[parts.length - 1];
-			return specName;
-		} catch (JsonParseException e) {
-		  throw new MojoFailureException(e.getMessage());
-		}
+	protected String getSpecId(com.google.cloud.apihub.v1.Spec spec) {
+		return PluginUtils.getResourceId(spec.getName());
 	}
 	
-	protected String getSpecName(String payload) 
-            throws MojoFailureException {
-		Gson gson = new Gson();
-		try {
-			Spec spec = gson.fromJson(payload, Spec.class);
-			return spec.name;
-		} catch (JsonParseException e) {
-		  throw new MojoFailureException(e.getMessage());
-		}
+	protected String getSpecName(com.google.cloud.apihub.v1.Spec spec) {
+		return Strings.isNullOrEmpty(spec.getName()) ? null : spec.getName();
 	}
 
 	/**
@@ -187,16 +166,21 @@ public class SpecsMojo extends ApiHubAbstractMojo {
 				exportSpecs(buildProfile);
 			} else {
 				logger.info(format("Fetching specs.json file from %s directory", buildProfile.getConfigDir()));
-				List<String> specs = ConfigReader.parseConfig(buildProfile.getConfigDir()+"/specs.json");
-				processSpecs(specs);
+				// spec contents are left in the file until a create or update needs them
+				try (ConfigStream<com.google.cloud.apihub.v1.Spec> specs = ConfigReader.streamConfig(buildProfile.getConfigDir()+"/specs.json", com.google.cloud.apihub.v1.Spec.class, buildProfile, "contents", "contents");
+						ProgressJournal journal = ProgressJournal.open(buildProfile, buildProfile.getConfigDir()+"/specs.json")) {
+					processSpecs(specs.entries(), journal);
+				}
+			}
+			if (buildOption != OPTIONS.none) {
+				buildProfile.getRunMetrics().logSummary(logger);
+				ApiHubRateLimiter.getInstance(buildProfile).logSummary(logger);
 			}
 
 		} catch (MojoFailureException e) {
 			throw e;
 		} catch (RuntimeException e) {
 			throw e;
-		} catch (ParseException e) {
-			throw new MojoFailureException(e.getMessage());
 		} catch (IOException e) {
 			throw new MojoFailureException(e.getMessage());
 		}
@@ -205,9 +189,10 @@ public class SpecsMojo extends ApiHubAbstractMojo {
 	/**
 	 * 
 	 * @param specs
+	 * @param journal
 	 * @throws MojoExecutionException
 	 */
-	public void processSpecs(List<String> specs) throws MojoExecutionException {
+	public void processSpecs(Iterable<ConfigEntry<com.google.cloud.apihub.v1.Spec>> specs, ProgressJournal journal) throws MojoExecutionException {
 		try {
 			if (buildOption != OPTIONS.update && 
 					buildOption != OPTIONS.create &&
@@ -215,66 +200,103 @@ public class SpecsMojo extends ApiHubAbstractMojo {
 	                buildOption != OPTIONS.sync) {
 					return;
 			}
-			for (String spec : specs) {
-				spec = PluginUtils.replacer(spec, PluginConstants.PATTERN, format("projects/%s/locations/%s", buildProfile.getProjectId(), buildProfile.getLocation()));
-				String specId = getSpecId(spec);
-				String specName = getSpecName(spec); //FQDN
-				if (specName == null) {
-	        		throw new IllegalArgumentException("Spec does not have a name");
-	        	}
-				if (doesSpecExist(buildProfile, specName)) {
-					switch (buildOption) {
-						case create:
-							logger.info(format("Spec \"%s\" already exists. Skipping.", specName));
-							break;
-						case update:
-							logger.info(format("Spec \"%s\" already exists. Updating.", specName));
-							//update
-							doUpdate(buildProfile, spec);
-							break;
-						case delete:
-							logger.info(format("Spec \"%s\" already exists. Deleting.", specName));
-							//delete
-							doDelete(buildProfile, specName);
-							break;
-						case sync:
-							logger.info(format("Spec \"%s\" already exists. Deleting and recreating.", specName));
-							//delete
-							doDelete(buildProfile, specName);
-							logger.info(format("Creating Spec - %s", specName));
-							//create
-							doCreate(buildProfile, specName, specId, spec);
-							break;
-					}
-				} else {
-					switch (buildOption) {
-						case create:
-	                    case sync:
-	                    case update:
-	                    	logger.info(format("Creating Spec - %s", specName));
-	                    	//create
-	                    	doCreate(buildProfile, specName, specId, spec);
-							break;
-	                    case delete:
-                            logger.info(format("Spec \"%s\" does not exist. Skipping.", specName));
-                            break;
-					}
-				}
+			if (buildOption != OPTIONS.delete) {
+				// start the largest uploads first, so that the run does not end waiting on one of them;
+				// reordered within a window, so the config is still streamed
+				specs = ConfigEntry.largestFirst(specs, PluginConstants.LARGEST_FIRST_WINDOW);
 			}
+			// items under the same parent run in order, items under different parents in parallel,
+			// uploads within apigee.apihub.maxInFlightBytes
+			new ApplyEngine(buildProfile).apply(specs, spec -> PluginUtils.getApiVersionKey(spec.get().getName()), this::getPayloadBytes, journal.track(this::processSpec));
+			journal.complete();
 		}catch (Exception e) {
 			throw new RuntimeException(e.getMessage());
 		}
 	}
 	
+	/**
+	 * 
+	 * @param specEntry
+	 * @throws Exception
+	 */
+	public void processSpec(ConfigEntry<com.google.cloud.apihub.v1.Spec> specEntry) throws Exception {
+		com.google.cloud.apihub.v1.Spec spec = specEntry.get();
+		String specId = getSpecId(spec);
+		String specName = getSpecName(spec); //FQDN
+		if (specName == null) {
+			throw new IllegalArgumentException("Spec does not have a name");
+		}
+		if (doesSpecExist(buildProfile, specName)) {
+			switch (buildOption) {
+				case create:
+					logger.info(format("Spec \"%s\" already exists. Skipping.", specName));
+					break;
+				case update:
+					logger.info(format("Spec \"%s\" already exists. Updating.", specName));
+					//update
+					doUpdate(buildProfile, withContents(specEntry));
+					break;
+				case delete:
+					logger.info(format("Spec \"%s\" already exists. Deleting.", specName));
+					//delete
+					doDelete(buildProfile, specName);
+					break;
+				case sync:
+					logger.info(format("Spec \"%s\" already exists. Deleting and recreating.", specName));
+					//delete
+					doDelete(buildProfile, specName);
+					logger.info(format("Creating Spec - %s", specName));
+					//create
+					doCreate(buildProfile, specName, specId, withContents(specEntry));
+					break;
+			}
+		} else {
+			switch (buildOption) {
+				case create:
+				case sync:
+				case update:
+					logger.info(format("Creating Spec - %s", specName));
+					//create
+					doCreate(buildProfile, specName, specId, withContents(specEntry));
+					break;
+				case delete:
+					logger.info(format("Spec \"%s\" does not exist. Skipping.", specName));
+					break;
+			}
+		}
+	}
+	
+	/**
+	 * @param specEntry
+	 * @return the bytes of spec contents the entry holds while it is processed
+	 */
+	protected long getPayloadBytes(ConfigEntry<com.google.cloud.apihub.v1.Spec> specEntry) {
+		return buildOption == OPTIONS.delete ? 0 : specEntry.getDeferredSize();
+	}
+	
+	/**
+	 * Read the deferred contents of a spec entry back into the spec
+	 * @param specEntry
+	 * @return the spec with its contents
+	 * @throws IOException
+	 */
+	protected com.google.cloud.apihub.v1.Spec withContents(ConfigEntry<com.google.cloud.apihub.v1.Spec> specEntry) throws IOException {
+		if (!specEntry.hasDeferredBytes()) {
+			return specEntry.get();
+		}
+		com.google.cloud.apihub.v1.Spec.Builder builder = specEntry.get().toBuilder();
+		builder.getContentsBuilder().setContents(specEntry.loadDeferredBytes());
+		return builder.build();
+	}
+	
 	/**
 	 * 
 	 * @param profile
 	 * @throws MojoExecutionException
 	 */
 	public void exportSpecs(BuildProfile profile) throws MojoExecutionException {
-		Gson gson = new Gson();
 		ApiHubClient apiHubClient = null;
-		List<String> specsList = new ArrayList<String>();
+		List<com.google.cloud.apihub.v1.Version> versions = new ArrayList<com.google.cloud.apihub.v1.Version>();
 		try {
 			apiHubClient = ApiHubClientSingleton.getInstance(profile).getApiHubClient();
 			//Get the list of APIs
@@ -294,34 +316,7 @@ public class SpecsMojo extends ApiHubAbstractMojo {
 								.setPageSize(PluginConstants.PAGE_SIZE).build();
 					while (true) {
 						ListVersionsResponse verResponse = apiHubClient.listVersionsCallable().call(verRequest);
-						for (com.google.cloud.apihub.v1.Version version : verResponse.getVersionsList()) {
-							// Get the list of Specs
-							ListSpecsRequest specRequest =
-									ListSpecsRequest.newBuilder()
-									.setParent(version.getName())
-									//.setFilter("display_name=\"API 1\"")
-									.setPageSize(PluginConstants.PAGE_SIZE).build();
-							while (true) {
-								ListSpecsResponse specResponse = apiHubClient.listSpecsCallable().call(specRequest);
-								for (com.google.cloud.apihub.v1.Spec spec : specResponse.getSpecsList()) {
-									SpecContents specContentResponse = apiHubClient.getSpecContents(spec.getName());
-									String specContentStr = ProtoJsonUtil.toJson(specContentResponse);
-									JsonObject jsonObject1 = gson.fromJson(specContentStr, JsonObject.class);
-							    	String specStr = ProtoJsonUtil.toJson(spec);
-							    	JsonObject jsonObject2 = gson.fromJson(specStr, JsonObject.class);
-							    	jsonObject2.add("contents", jsonObject1);
-							    	String newStr = gson.toJson(jsonObject2);
-							    	newStr = PluginUtils.replacer(newStr, PluginConstants.PATTERN1, format("projects/%s/locations/%s", PluginConstants.PROJECT_ID, PluginConstants.LOCATION));
-							    	specsList.add(PluginUtils.cleanseResponse(newStr));
-							    }
-								String specNextPageToken = specResponse.getNextPageToken();
-							     if (!Strings.isNullOrEmpty(specNextPageToken)) {
-							    	 specRequest = specRequest.toBuilder().setPageToken(specNextPageToken).build();
-							     } else {
-							       break;
-							     }
-							}
-						}
+						versions.addAll(verResponse.getVersionsList());
 						String verNextPageToken = verResponse.getNextPageToken();
 						if (!Strings.isNullOrEmpty(verNextPageToken)) {
 							verRequest = verRequest.toBuilder().setPageToken(verNextPageToken).build();
@@ -337,39 +332,84 @@ public class SpecsMojo extends ApiHubAbstractMojo {
 			       break;
 			    }
 		   }
-			PluginUtils.exportToFile(specsList, profile.getConfigExportDir(), "specs");
+			// Get the list of Specs of each version, then their contents
+			ExportEngine exportEngine = new ExportEngine(profile);
+			List<com.google.cloud.apihub.v1.Spec> specs = new ArrayList<com.google.cloud.apihub.v1.Spec>();
+			for (List<com.google.cloud.apihub.v1.Spec> versionSpecs : exportEngine.map(versions, version -> listSpecs(profile, version.getName()))) {
+				specs.addAll(versionSpecs);
+			}
+			List<com.google.cloud.apihub.v1.Spec> specsList = exportEngine.map(specs, spec -> exportSpec(profile, spec));
+			ExportWriter.exportToFile(specsList, profile.getConfigExportDir(), "specs");
 		}catch (Exception e) {
 			throw new RuntimeException(e.getMessage());
 		}
 	}
 	
+	/**
+	 * List the Specs of an API Version
+	 * @param profile
+	 * @param versionName
+	 * @return
+	 * @throws Exception
+	 */
+	public List<com.google.cloud.apihub.v1.Spec> listSpecs(BuildProfile profile, String versionName) throws Exception {
+		ApiHubClient apiHubClient = ApiHubClientSingleton.getInstance(profile).getApiHubClient();
+		List<com.google.cloud.apihub.v1.Spec> specs = new ArrayList<com.google.cloud.apihub.v1.Spec>();
+		ListSpecsRequest specRequest =
+				ListSpecsRequest.newBuilder()
+				.setParent(versionName)
+				//.setFilter("display_name=\"API 1\"")
+				.setPageSize(PluginConstants.PAGE_SIZE).build();
+		while (true) {
+			ListSpecsResponse specResponse = apiHubClient.listSpecsCallable().call(specRequest);
+			specs.addAll(specResponse.getSpecsList());
+			String specNextPageToken = specResponse.getNextPageToken();
+			if (!Strings.isNullOrEmpty(specNextPageToken)) {
+				specRequest = specRequest.toBuilder().setPageToken(specNextPageToken).build();
+			} else {
+				break;
+			}
+		}
+		return specs;
+	}
+	
+	/**
+	 * Fetch the contents of a Spec and add them to it, for export
+	 * @param profile
+	 * @param spec
+	 * @return
+	 * @throws Exception
+	 */
+	public com.google.cloud.apihub.v1.Spec exportSpec(BuildProfile profile, com.google.cloud.apihub.v1.Spec spec) throws Exception {
+		ApiHubClient apiHubClient = ApiHubClientSingleton.getInstance(profile).getApiHubClient();
+		SpecContents specContentResponse = apiHubClient.getSpecContents(spec.getName());
+		return spec.toBuilder().setContents(specContentResponse).build();
+	}
+	
 	/**
 	 * Create Spec
 	 * @param specName
 	 * @param specId
-	 * @param specStr
+	 * @param specObj
 	 * @throws MojoExecutionException
 	 */
-	public void doCreate(BuildProfile profile, String specName, String specId, String specStr) throws MojoExecutionException {
+	public void doCreate(BuildProfile profile, String specName, String specId, com.google.cloud.apihub.v1.Spec specObj) throws MojoExecutionException {
 		ApiHubClient apiHubClient = null;
 		try {
 			apiHubClient = ApiHubClientSingleton.getInstance(profile).getApiHubClient();
 			//parse projects/PROJECT_ID/locations/LOCATION/apis/{api}/versions/{version}/specs/{spec} to get api and version
-			String pattern = ".*\\/apis\\/([a-zA-Z0-9-_]+)\\/versions\\/([a-zA-Z0-9-_]+).*";
-			Pattern p = Pattern.compile(pattern);
-			Matcher m = p.matcher(specName);
+			Matcher m = PluginUtils.API_VERSION_PATTERN.matcher(specName);
 			if(m.matches()) {
 				String apiName = m.group(1);
 				String version = m.group(2);
 				
 				VersionName parent = VersionName.of(profile.getProjectId(), profile.getLocation(), apiName, version);
-				com.google.cloud.apihub.v1.Spec specObj = ProtoJsonUtil.fromJson(specStr, com.google.cloud.apihub.v1.Spec.class);
 				apiHubClient.createSpec(parent, specObj, specId);
 				logger.info("Create success");
 			}
 		} catch (Exception e) {
 			e.printStackTrace();
-			throw new RuntimeException("Create failure: " + e.getMessage());
+			throw new RuntimeException("Create failure: " + e.getMessage(), e);
 		}
 	}
 
@@ -386,29 +426,33 @@ public class SpecsMojo extends ApiHubAbstractMojo {
 			apiHubClient.deleteSpec(specName);
 		    logger.info("Delete success");
 		} catch (Exception e) {
+			if (ApiHubRetrySettings.isNotFound(e)) {
+				// deleted by an earlier attempt of the same call
+				logger.info("Already deleted");
+				return;
+			}
 			e.printStackTrace();
-			throw new RuntimeException("Delete failure: " + e.getMessage());
+			throw new RuntimeException("Delete failure: " + e.getMessage(), e);
 		}
 	}
 	
 	/**
 	 * Update Spec
 	 * @param profile
-	 * @param specStr
+	 * @param specObj
 	 * @throws MojoExecutionException
 	 */
-	public void doUpdate(BuildProfile profile, String specStr) throws MojoExecutionException {
+	public void doUpdate(BuildProfile profile, com.google.cloud.apihub.v1.Spec specObj) throws MojoExecutionException {
 		ApiHubClient apiHubClient = null;
 		try {
 			apiHubClient = ApiHubClientSingleton.getInstance(profile).getApiHubClient();
-			com.google.cloud.apihub.v1.Spec specObj = ProtoJsonUtil.fromJson(specStr, com.google.cloud.apihub.v1.Spec.class);
 			List<String> fieldMaskValues = new ArrayList<>();
 			fieldMaskValues.add("display_name");
-			if(FQDNHelper.checkIfJsonElementExist("$.sourceUri", specStr))
+			if(!Strings.isNullOrEmpty(specObj.getSourceUri()))
 				fieldMaskValues.add("source_uri");
 			fieldMaskValues.add("lint_response");			
 			fieldMaskValues.add("attributes");
-			if(FQDNHelper.checkIfJsonElementExist("$.contents", specStr))
+			if(specObj.hasContents())
 				fieldMaskValues.add("contents");
 			fieldMaskValues.add("spec_type");;
 			FieldMask updateMask = FieldMask.newBuilder().addAllPaths(fieldMaskValues).build();
@@ -416,7 +460,7 @@ public class SpecsMojo extends ApiHubAbstractMojo {
 		    logger.info("Update success");
 		} catch (Exception e) {
 			e.printStackTrace();
-			throw new RuntimeException("Update failure: " + e.getMessage());
+			throw new RuntimeException("Update failure: " + e.getMessage(), e);
 		}
 	}
 	
@@ -441,6 +485,7 @@ public class SpecsMojo extends ApiHubAbstractMojo {
 			if(e.getStatusCode().getCode().equals(Code.NOT_FOUND)) {
 				return false;
 			}
+			throw new IOException(e.getMessage(), e);
         }
         catch (Exception e) {
             throw new IOException(e.getMessage());
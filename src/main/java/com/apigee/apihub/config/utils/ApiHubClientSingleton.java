@@ -17,10 +17,13 @@
 package com.apigee.apihub.config.utils;
 
 import java.io.FileInputStream;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import com.google.api.client.util.Strings;
 import com.google.api.gax.core.FixedCredentialsProvider;
 import com.google.auth.oauth2.AccessToken;
 import com.google.auth.oauth2.GoogleCredentials;
@@ -33,10 +36,12 @@ public class ApiHubClientSingleton {
 
 	static Logger logger = LogManager.getLogger(ApiHubClientSingleton.class);
 	
-	// Static variable reference of apiHubClient of type ApiHubClientSingleton
-	private static ApiHubClientSingleton apiHubClientObj = null;
-	// Static variable reference of apiHubClient of type ApiHubClientSingleton
-	private static ApiHubClientSingleton apiHubDependenciesClientObj = null;
+	// Static variable reference of apiHubClient of type ApiHubClientSingleton, one per target
+	private static final Map<String, ApiHubClientSingleton> apiHubClientObjs = new HashMap<String, ApiHubClientSingleton>();
+	// Static variable reference of apiHubDependenciesClient of type ApiHubClientSingleton, one per target
+	private static final Map<String, ApiHubClientSingleton> apiHubDependenciesClientObjs = new HashMap<String, ApiHubClientSingleton>();
+	
+	private static final String SCOPE = "https://www.googleapis.com/auth/cloud-platform";
 	
 	private ApiHubClient apiHubClient;
 	private ApiHubDependenciesClient apiHubDependenciesClient;
@@ -51,24 +56,36 @@ public class ApiHubClientSingleton {
 				logger.info("Using the service account file to authenticate");
 				credentials = GoogleCredentials
 						.fromStream(new FileInputStream(profile.getServiceAccountFilePath()))
-						.createScoped("https://www.googleapis.com/auth/cloud-platform");
+						.createScoped(SCOPE);
+				if(profile.isTokenCache()) {
+					credentials = TokenCache.apply(credentials, SCOPE, profile);
+				}
 			}else{
 				logger.info("Using the bearer token");
 				credentials = GoogleCredentials.newBuilder().setAccessToken(new AccessToken(profile.getBearer(), null)).build();
 			}
 			//apihub
 			if(clientType!=null && clientType.equals("apis")) {
-				ApiHubSettings hubSettings = ApiHubSettings.newBuilder()
+				ApiHubSettings.Builder hubSettingsBuilder = ApiHubSettings.newBuilder()
 	            .setCredentialsProvider(FixedCredentialsProvider.create(credentials))
-	            .build();
-				setApiHubClient(ApiHubClient.create(hubSettings));
+	            .setTransportChannelProvider(ApiHubTransport.channelProvider(ApiHubSettings.defaultHttpJsonTransportProviderBuilder(), profile));
+				if(!Strings.isNullOrEmpty(profile.getEndpoint())) {
+					logger.info("Using the API Hub endpoint " + profile.getEndpoint());
+					hubSettingsBuilder.setEndpoint(profile.getEndpoint());
+				}
+				ApiHubRetrySettings.apply(hubSettingsBuilder, profile);
+				setApiHubClient(ApiHubClient.create(hubSettingsBuilder.build()));
 			}
 			//dependencies
 			if(clientType!=null && clientType.equals("dependencies")) {
-				ApiHubDependenciesSettings hubDependenciesSettings = ApiHubDependenciesSettings.newBuilder()
+				ApiHubDependenciesSettings.Builder hubDependenciesSettingsBuilder = ApiHubDependenciesSettings.newBuilder()
 			            .setCredentialsProvider(FixedCredentialsProvider.create(credentials))
-			            .build();
-				setApiHubDependenciesClient(ApiHubDependenciesClient.create(hubDependenciesSettings));
+			            .setTransportChannelProvider(ApiHubTransport.channelProvider(ApiHubDependenciesSettings.defaultHttpJsonTransportProviderBuilder(), profile));
+				if(!Strings.isNullOrEmpty(profile.getEndpoint())) {
+					hubDependenciesSettingsBuilder.setEndpoint(profile.getEndpoint());
+				}
+				ApiHubRetrySettings.apply(hubDependenciesSettingsBuilder, profile);
+				setApiHubDependenciesClient(ApiHubDependenciesClient.create(hubDependenciesSettingsBuilder.build()));
 			}
 			
 		} catch (Exception e) {
@@ -77,23 +94,44 @@ public class ApiHubClientSingleton {
 	}
 	
     // Static method to create instance of ApiHubClient class
-    public static ApiHubClientSingleton getInstance(BuildProfile profile) throws Exception
+    public static synchronized ApiHubClientSingleton getInstance(BuildProfile profile) throws Exception
     {
-        if (apiHubClientObj == null)
+        ApiHubClientSingleton apiHubClientObj = apiHubClientObjs.get(profile.getTarget());
+        if (apiHubClientObj == null) {
         	apiHubClientObj = new ApiHubClientSingleton(profile, "apis");
+        	apiHubClientObjs.put(profile.getTarget(), apiHubClientObj);
+        }
  
         return apiHubClientObj;
     }
     
     // Static method to create instance of ApiHubDependenciesClient class
-    public static ApiHubClientSingleton getDependenciesInstance(BuildProfile profile) throws Exception
+    public static synchronized ApiHubClientSingleton getDependenciesInstance(BuildProfile profile) throws Exception
     {
-        if (apiHubDependenciesClientObj == null)
+        ApiHubClientSingleton apiHubDependenciesClientObj = apiHubDependenciesClientObjs.get(profile.getTarget());
+        if (apiHubDependenciesClientObj == null) {
         	apiHubDependenciesClientObj = new ApiHubClientSingleton(profile, "dependencies");
+        	apiHubDependenciesClientObjs.put(profile.getTarget(), apiHubDependenciesClientObj);
+        }
  
         return apiHubDependenciesClientObj;
     }
     
+    // Close the clients so the next getInstance call builds new ones, for example for another endpoint
+    public static synchronized void shutdown()
+    {
+        for (ApiHubClientSingleton apiHubClientObj : apiHubClientObjs.values()) {
+        	if (apiHubClientObj.getApiHubClient() != null)
+        		apiHubClientObj.getApiHubClient().close();
+        }
+        for (ApiHubClientSingleton apiHubDependenciesClientObj : apiHubDependenciesClientObjs.values()) {
+        	if (apiHubDependenciesClientObj.getApiHubDependenciesClient() != null)
+        		apiHubDependenciesClientObj.getApiHubDependenciesClient().close();
+        }
+        apiHubClientObjs.clear();
+        apiHubDependenciesClientObjs.clear();
+    }
+    
     public void setApiHubClient(ApiHubClient apiHubClient) {
 		this.apiHubClient = apiHubClient;
 	}
@@ -0,0 +1,128 @@
+/**
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apigee.apihub.config.utils;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.api.gax.rpc.ApiException;
+import com.google.api.gax.rpc.StatusCode.Code;
+
+/**
+ * Runs API Hub operations on a worker pool, gated by the shared ConcurrencyLimit.
+ * With a fixed concurrency of 1 operations run inline on the calling thread, exactly as before.
+ */
+public class ApiHubExecutor implements AutoCloseable {
+
+	private final BuildProfile profile;
+	private final ConcurrencyLimit limit;
+	private final ExecutorService pool;
+
+	public ApiHubExecutor(BuildProfile profile) {
+		this.profile = profile;
+		this.limit = ConcurrencyLimit.getInstance(profile);
+		if (!limit.isAdaptive() && limit.getMaxLimit() == 1) {
+			this.pool = null;
+		} else {
+			// one thread per permit, so a task never waits for a thread once it holds a permit
+			this.pool = Executors.newFixedThreadPool(limit.getMaxLimit(), new WorkerThreadFactory());
+		}
+	}
+
+	public boolean isSequential() {
+		return pool == null;
+	}
+
+	/**
+	 * Submit an operation, blocking until the concurrency limit lets it start
+	 * @param task
+	 * @return
+	 * @throws InterruptedException
+	 */
+	public <R> Future<R> submit(Callable<R> task) throws InterruptedException {
+		if (pool == null) {
+			CompletableFuture<R> result = new CompletableFuture<R>();
+			try {
+				result.complete(task.call());
+			} catch (Throwable t) {
+				result.completeExceptionally(t);
+			}
+			return result;
+		}
+		limit.acquire();
+		try {
+			return pool.submit(() -> {
+				long start = System.nanoTime();
+				boolean throttled = false;
+				try {
+					return task.call();
+				} catch (Exception e) {
+					throttled = isThrottled(e);
+					throw e;
+				} finally {
+					limit.release(System.nanoTime() - start, throttled);
+				}
+			});
+		} catch (RuntimeException e) {
+			limit.release(0, false);
+			throw e;
+		}
+	}
+
+	@Override
+	public void close() {
+		if (pool != null) {
+			pool.shutdown();
+			profile.getRunMetrics().recordConcurrency(limit.getLimit(), limit.getPeakLimit());
+		}
+	}
+
+	/**
+	 * Check if a failure was caused by API Hub throttling
+	 * @param t
+	 * @return
+	 */
+	public static boolean isThrottled(Throwable t) {
+		for (Throwable cause = t; cause != null; cause = cause.getCause()) {
+			if (cause instanceof ApiException
+					&& ((ApiException) cause).getStatusCode().getCode().equals(Code.RESOURCE_EXHAUSTED)) {
+				return true;
+			}
+			if (cause.getCause() == cause)
+				break;
+		}
+		return false;
+	}
+
+	private static class WorkerThreadFactory implements ThreadFactory {
+		private static final AtomicInteger poolNumber = new AtomicInteger();
+		private final int pool = poolNumber.incrementAndGet();
+		private final AtomicInteger threadNumber = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "apihub-worker-" + pool + "-" + threadNumber.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		}
+	}
+}
@@ -0,0 +1,140 @@
+/**
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apigee.apihub.config.utils;
+
+import static java.lang.String.format;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.google.api.gax.httpjson.ApiMethodDescriptor;
+import com.google.api.gax.httpjson.ForwardingHttpJsonClientCall.SimpleForwardingHttpJsonClientCall;
+import com.google.api.gax.httpjson.HttpJsonCallOptions;
+import com.google.api.gax.httpjson.HttpJsonChannel;
+import com.google.api.gax.httpjson.HttpJsonClientCall;
+import com.google.api.gax.httpjson.HttpJsonClientInterceptor;
+import com.google.api.gax.httpjson.HttpJsonMetadata;
+
+/**
+ * Client-side rate limiter installed as an interceptor on the channel of the ApiHubClient and
+ * ApiHubDependenciesClient, so every HTTP attempt, including the retries made by the client, waits
+ * for a permit. Reads (GET) and writes (POST/PATCH/DELETE) draw from separate token buckets so each
+ * can be tuned to its API Hub quota. The limiter is shared by all goals that apply to the same target.
+ */
+public class ApiHubRateLimiter implements HttpJsonClientInterceptor {
+
+	static Logger logger = LogManager.getLogger(ApiHubRateLimiter.class);
+
+	// Static variable reference of the shared limiters, one per target
+	private static final Map<String, ApiHubRateLimiter> rateLimiterObjs = new HashMap<String, ApiHubRateLimiter>();
+
+	private final String target;
+	private final TokenBucket readBucket;
+	private final TokenBucket writeBucket;
+	private final AtomicLong readCalls = new AtomicLong();
+	private final AtomicLong writeCalls = new AtomicLong();
+	private final AtomicLong readWaitNanos = new AtomicLong();
+	private final AtomicLong writeWaitNanos = new AtomicLong();
+
+	private ApiHubRateLimiter(BuildProfile profile) {
+		this.target = profile.getTarget();
+		this.readBucket = newBucket(profile.getReadRateLimit());
+		this.writeBucket = newBucket(profile.getWriteRateLimit());
+		if (readBucket != null || writeBucket != null) {
+			logger.info(format("Rate limiting API Hub calls to %s to %s reads/min and %s writes/min", target,
+					describe(profile.getReadRateLimit()), describe(profile.getWriteRateLimit())));
+		}
+	}
+
+	// Buckets hold at most one second worth of calls, so a run cannot burst above the per-minute quota
+	private static TokenBucket newBucket(int permitsPerMinute) {
+		if (permitsPerMinute <= 0)
+			return null;
+		return new TokenBucket(permitsPerMinute, permitsPerMinute / 60.0);
+	}
+
+	private static String describe(int permitsPerMinute) {
+		return permitsPerMinute <= 0 ? "unlimited" : String.valueOf(permitsPerMinute);
+	}
+
+	// Static method to create instance of ApiHubRateLimiter class
+	public static synchronized ApiHubRateLimiter getInstance(BuildProfile profile) {
+		ApiHubRateLimiter rateLimiterObj = rateLimiterObjs.get(profile.getTarget());
+		if (rateLimiterObj == null) {
+			rateLimiterObj = new ApiHubRateLimiter(profile);
+			rateLimiterObjs.put(profile.getTarget(), rateLimiterObj);
+		}
+		return rateLimiterObj;
+	}
+
+	/**
+	 * Wait for a permit each time the call is started, which the client does once per attempt
+	 */
+	@Override
+	public <ReqT, RespT> HttpJsonClientCall<ReqT, RespT> interceptCall(ApiMethodDescriptor<ReqT, RespT> method,
+			HttpJsonCallOptions callOptions, HttpJsonChannel next) {
+		final boolean read = "GET".equalsIgnoreCase(method.getHttpMethod());
+		return new SimpleForwardingHttpJsonClientCall<ReqT, RespT>(next.newCall(method, callOptions)) {
+			@Override
+			public void start(Listener<RespT> responseListener, HttpJsonMetadata requestHeaders) {
+				if (read) {
+					readCalls.incrementAndGet();
+					readWaitNanos.addAndGet(acquire(readBucket));
+				} else {
+					writeCalls.incrementAndGet();
+					writeWaitNanos.addAndGet(acquire(writeBucket));
+				}
+				super.start(responseListener, requestHeaders);
+			}
+		};
+	}
+
+	private static long acquire(TokenBucket bucket) {
+		if (bucket == null)
+			return 0;
+		try {
+			return bucket.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while waiting for the API Hub rate limiter");
+		}
+	}
+
+	public long getReadCalls() {
+		return readCalls.get();
+	}
+
+	public long getWriteCalls() {
+		return writeCalls.get();
+	}
+
+	/**
+	 * Log the calls made to the target so far, by all goals
+	 * @param logger
+	 */
+	public void logSummary(Logger logger) {
+		logger.info(format("API Hub calls to %s: %d reads, %d writes, including retries", 
+				target, getReadCalls(), getWriteCalls()));
+		logger.info(format("Rate limiter wait: %d ms for reads, %d ms for writes", 
+				TimeUnit.NANOSECONDS.toMillis(readWaitNanos.get()), TimeUnit.NANOSECONDS.toMillis(writeWaitNanos.get())));
+	}
+}
@@ -0,0 +1,181 @@
+/**
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apigee.apihub.config.utils;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.threeten.bp.Duration;
+
+import com.google.api.gax.retrying.RetrySettings;
+import com.google.api.gax.rpc.ApiException;
+import com.google.api.gax.rpc.StatusCode.Code;
+import com.google.api.gax.rpc.UnaryCallSettings;
+import com.google.cloud.apihub.v1.ApiHubDependenciesSettings;
+import com.google.cloud.apihub.v1.ApiHubSettings;
+
+/**
+ * Applies the configured retry and backoff settings to the API Hub client settings.
+ * Calls are split into three classes: reads (get/list), idempotent writes (update/delete) and creates.
+ */
+public class ApiHubRetrySettings {
+
+	static Logger logger = LogManager.getLogger(ApiHubRetrySettings.class);
+
+	private static final double BACKOFF_MULTIPLIER = 2.0;
+
+	// Transient errors that are safe to retry for reads and idempotent writes
+	private static final Set<Code> READ_CODES = Collections.unmodifiableSet(
+			EnumSet.of(Code.UNAVAILABLE, Code.RESOURCE_EXHAUSTED, Code.DEADLINE_EXCEEDED));
+	private static final Set<Code> WRITE_CODES = READ_CODES;
+	// A create that timed out or failed with UNAVAILABLE may have been committed by the server, and
+	// its retry would then fail with ALREADY_EXISTS. Creates are only retried when throttled
+	// (RESOURCE_EXHAUSTED), which is rejected before the create is applied
+	private static final Set<Code> CREATE_CODES = Collections.unmodifiableSet(
+			EnumSet.of(Code.RESOURCE_EXHAUSTED));
+
+	/**
+	 * @return the default settings of reads and idempotent writes, as the mojo parameters
+	 */
+	public static RetryConfig defaultRetry() {
+		return new RetryConfig(5, 1000, 32000, 300000);
+	}
+
+	/**
+	 * @return the default settings of creates, as the mojo parameters
+	 */
+	public static RetryConfig defaultCreateRetry() {
+		return new RetryConfig(3, 1000, 32000, 300000);
+	}
+
+	/**
+	 * Build the gax RetrySettings for the given config
+	 * @param config the settings, the read and write defaults if null
+	 * @return
+	 */
+	public static RetrySettings toRetrySettings(RetryConfig config) {
+		if (config == null) {
+			config = defaultRetry();
+		}
+		Duration totalTimeout = Duration.ofMillis(config.getTotalTimeoutMillis());
+		// each attempt gets its share of the total, so that one hung attempt leaves time to retry
+		Duration rpcTimeout = Duration.ofMillis(config.getTotalTimeoutMillis() / Math.max(1, config.getMaxAttempts()));
+		return RetrySettings.newBuilder()
+				.setMaxAttempts(config.getMaxAttempts())
+				.setInitialRetryDelay(Duration.ofMillis(config.getInitialBackoffMillis()))
+				.setRetryDelayMultiplier(BACKOFF_MULTIPLIER)
+				.setMaxRetryDelay(Duration.ofMillis(config.getMaxBackoffMillis()))
+				.setInitialRpcTimeout(rpcTimeout)
+				.setRpcTimeoutMultiplier(1.0)
+				.setMaxRpcTimeout(rpcTimeout)
+				.setTotalTimeout(totalTimeout)
+				.build();
+	}
+
+	/**
+	 * Check if a call failed because the resource does not exist. A delete retried after a first
+	 * attempt that went through, but timed out or was cut off, fails that way
+	 * @param t
+	 * @return
+	 */
+	public static boolean isNotFound(Throwable t) {
+		for (Throwable cause = t; cause != null; cause = cause.getCause()) {
+			if (cause instanceof ApiException
+					&& ((ApiException) cause).getStatusCode().getCode().equals(Code.NOT_FOUND)) {
+				return true;
+			}
+			if (cause.getCause() == cause)
+				break;
+		}
+		return false;
+	}
+
+	/**
+	 * Apply the retry settings to the ApiHubClient settings
+	 * @param builder
+	 * @param profile
+	 */
+	public static void apply(ApiHubSettings.Builder builder, BuildProfile profile) {
+		logger.debug("Read retry settings: " + profile.getReadRetry());
+		logger.debug("Write retry settings: " + profile.getWriteRetry());
+		logger.debug("Create retry settings: " + profile.getCreateRetry());
+		RetrySettings read = toRetrySettings(profile.getReadRetry());
+		RetrySettings write = toRetrySettings(profile.getWriteRetry());
+		RetrySettings create = toRetrySettings(profile.getCreateRetry() != null ? profile.getCreateRetry() : defaultCreateRetry());
+
+		//reads
+		configure(builder.getApiSettings(), read, READ_CODES);
+		configure(builder.listApisSettings(), read, READ_CODES);
+		configure(builder.getVersionSettings(), read, READ_CODES);
+		configure(builder.listVersionsSettings(), read, READ_CODES);
+		configure(builder.getSpecSettings(), read, READ_CODES);
+		configure(builder.getSpecContentsSettings(), read, READ_CODES);
+		configure(builder.listSpecsSettings(), read, READ_CODES);
+		configure(builder.getAttributeSettings(), read, READ_CODES);
+		configure(builder.listAttributesSettings(), read, READ_CODES);
+		configure(builder.getDeploymentSettings(), read, READ_CODES);
+		configure(builder.listDeploymentsSettings(), read, READ_CODES);
+		configure(builder.getExternalApiSettings(), read, READ_CODES);
+		configure(builder.listExternalApisSettings(), read, READ_CODES);
+
+		//idempotent writes
+		configure(builder.updateApiSettings(), write, WRITE_CODES);
+		configure(builder.deleteApiSettings(), write, WRITE_CODES);
+		configure(builder.updateVersionSettings(), write, WRITE_CODES);
+		configure(builder.deleteVersionSettings(), write, WRITE_CODES);
+		configure(builder.updateSpecSettings(), write, WRITE_CODES);
+		configure(builder.deleteSpecSettings(), write, WRITE_CODES);
+		configure(builder.updateAttributeSettings(), write, WRITE_CODES);
+		configure(builder.deleteAttributeSettings(), write, WRITE_CODES);
+		configure(builder.updateDeploymentSettings(), write, WRITE_CODES);
+		configure(builder.deleteDeploymentSettings(), write, WRITE_CODES);
+		configure(builder.updateExternalApiSettings(), write, WRITE_CODES);
+		configure(builder.deleteExternalApiSettings(), write, WRITE_CODES);
+
+		//creates
+		configure(builder.createApiSettings(), create, CREATE_CODES);
+		configure(builder.createVersionSettings(), create, CREATE_CODES);
+		configure(builder.createSpecSettings(), create, CREATE_CODES);
+		configure(builder.createAttributeSettings(), create, CREATE_CODES);
+		configure(builder.createDeploymentSettings(), create, CREATE_CODES);
+		configure(builder.createExternalApiSettings(), create, CREATE_CODES);
+	}
+
+	/**
+	 * Apply the retry settings to the ApiHubDependenciesClient settings
+	 * @param builder
+	 * @param profile
+	 */
+	public static void apply(ApiHubDependenciesSettings.Builder builder, BuildProfile profile) {
+		RetrySettings read = toRetrySettings(profile.getReadRetry());
+		RetrySettings write = toRetrySettings(profile.getWriteRetry());
+		RetrySettings create = toRetrySettings(profile.getCreateRetry() != null ? profile.getCreateRetry() : defaultCreateRetry());
+
+		configure(builder.getDependencySettings(), read, READ_CODES);
+		configure(builder.listDependenciesSettings(), read, READ_CODES);
+		configure(builder.updateDependencySettings(), write, WRITE_CODES);
+		configure(builder.deleteDependencySettings(), write, WRITE_CODES);
+		configure(builder.createDependencySettings(), create, CREATE_CODES);
+	}
+
+	private static void configure(UnaryCallSettings.Builder<?, ?> settings, RetrySettings retrySettings, Set<Code> retryableCodes) {
+		settings.setRetrySettings(retrySettings).setRetryableCodes(retryableCodes);
+	}
+}
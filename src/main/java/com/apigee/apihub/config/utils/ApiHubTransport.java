@@ -0,0 +1,111 @@
+/**
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apigee.apihub.config.utils;
+
+import static java.lang.String.format;
+
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.Collections;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.gax.httpjson.HttpJsonClientInterceptor;
+import com.google.api.gax.httpjson.InstantiatingHttpJsonChannelProvider;
+import com.google.api.gax.rpc.TransportChannelProvider;
+
+/**
+ * Builds the transport used by the API Hub clients.
+ *
+ * API Hub is served over REST only, so the clients always use the HttpJson transport. The
+ * underlying HTTP transport, and its connection pool, is shared by the ApiHub and
+ * ApiHubDependencies clients and can be routed through an explicit HTTP proxy. The channel carries
+ * the rate limiter of the target, so it applies to every attempt made by the clients.
+ */
+public class ApiHubTransport {
+
+	static Logger logger = LogManager.getLogger(ApiHubTransport.class);
+
+	public static final String REST = "rest";
+	public static final String HTTPJSON = "httpjson";
+	public static final String GRPC = "grpc";
+
+	private static HttpTransport httpTransport = null;
+	private static String httpTransportProxy = null;
+
+	/**
+	 * Build the channel provider for the configured transport
+	 * @param builder the default HttpJson provider builder of the client settings
+	 * @param profile
+	 * @return
+	 */
+	public static TransportChannelProvider channelProvider(InstantiatingHttpJsonChannelProvider.Builder builder, BuildProfile profile) {
+		validate(profile.getTransport());
+		final ApiHubRateLimiter rateLimiter = ApiHubRateLimiter.getInstance(profile);
+		return builder.setHttpTransport(getHttpTransport(profile))
+				.setInterceptorProvider(() -> Collections.<HttpJsonClientInterceptor>singletonList(rateLimiter))
+				.build();
+	}
+
+	/**
+	 * Check the transport name. gRPC fails fast since the API Hub client library has no gRPC stubs
+	 * @param transport
+	 */
+	public static void validate(String transport) {
+		if (transport == null || transport.equalsIgnoreCase(REST) || transport.equalsIgnoreCase(HTTPJSON)) {
+			return;
+		}
+		if (transport.equalsIgnoreCase(GRPC)) {
+			throw new RuntimeException("The grpc transport is not available for Apigee API hub, which is only served over REST. Use -Dapigee.apihub.transport=rest");
+		}
+		throw new RuntimeException(format("Invalid apigee.apihub.transport \"%s\" provided. Supported value is rest", transport));
+	}
+
+	private static synchronized HttpTransport getHttpTransport(BuildProfile profile) {
+		String proxy = profile.getProxy();
+		if (httpTransport == null || !equals(httpTransportProxy, proxy)) {
+			NetHttpTransport.Builder builder = new NetHttpTransport.Builder();
+			if (proxy != null && !proxy.trim().isEmpty()) {
+				logger.info("Using the HTTP proxy " + proxy);
+				builder.setProxy(new Proxy(Proxy.Type.HTTP, parseProxy(proxy.trim())));
+			}
+			httpTransport = builder.build();
+			httpTransportProxy = proxy;
+		}
+		return httpTransport;
+	}
+
+	private static InetSocketAddress parseProxy(String proxy) {
+		String hostPort = proxy.replaceFirst("^https?://", "").replaceFirst("/.*$", "");
+		int idx = hostPort.lastIndexOf(':');
+		if (idx <= 0 || idx == hostPort.length() - 1) {
+			throw new RuntimeException(format("Invalid apigee.apihub.proxy \"%s\" provided. Expected host:port", proxy));
+		}
+		try {
+			return InetSocketAddress.createUnresolved(hostPort.substring(0, idx), Integer.parseInt(hostPort.substring(idx + 1)));
+		} catch (NumberFormatException e) {
+			throw new RuntimeException(format("Invalid apigee.apihub.proxy \"%s\" provided. Expected host:port", proxy));
+		}
+	}
+
+	private static boolean equals(String a, String b) {
+		return a == null ? b == null : a.equals(b);
+	}
+}
@@ -0,0 +1,214 @@
+/**
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apigee.apihub.config.utils;
+
+import static java.lang.String.format;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Applies config items (create/update/delete/sync) through the ApiHubExecutor.
+ * Processing stops at the first failed item: no new items are started, the ones already
+ * in flight are allowed to finish and the first failure is rethrown.
+ * Items are pulled from the source only as workers become free, so a streamed config file is
+ * never read further ahead than the items in flight.
+ * Items can be keyed, for example by their parent resource name: items with the same key run one
+ * at a time in config order, items with different keys run in parallel. Items waiting behind
+ * another one with the same key are held while the source is read further, up to
+ * PluginConstants.MAX_HELD_ITEMS: past that, the source is not read until held items are started.
+ * Items can also be weighed by the payload they upload: an item is only submitted once its payload
+ * fits in the shared ByteBudget.
+ * With apigee.apihub.continueOnError, failed items are added to the FailureReport instead of
+ * stopping the run, items under a failed item are skipped and reported, and the failure is thrown
+ * once all items are done. A failure to read the source still stops the run.
+ */
+public class ApplyEngine {
+
+	public interface ItemProcessor<T> {
+		void process(T item) throws Exception;
+	}
+
+	private final BuildProfile profile;
+	private final Object lock = new Object();
+
+	public ApplyEngine(BuildProfile profile) {
+		this.profile = profile;
+	}
+
+	/**
+	 * Process all items
+	 * @param items a list or a streamed config file
+	 * @param processor
+	 * @throws Exception the first failure, including a failure to read the next item
+	 */
+	public <T> void apply(Iterable<T> items, ItemProcessor<T> processor) throws Exception {
+		apply(items, item -> null, processor);
+	}
+
+	/**
+	 * Process all items, in order for items with the same key and in parallel otherwise
+	 * @param items a list or a streamed config file
+	 * @param key key of an item, or null if the item can run with any other
+	 * @param processor
+	 * @throws Exception the first failure, including a failure to read the next item
+	 */
+	public <T> void apply(Iterable<T> items, Function<T, String> key, ItemProcessor<T> processor) throws Exception {
+		apply(items, key, item -> 0, processor);
+	}
+
+	/**
+	 * Process all items, in order for items with the same key and in parallel otherwise, within
+	 * the byte budget
+	 * @param items a list or a streamed config file
+	 * @param key key of an item, or null if the item can run with any other
+	 * @param payloadBytes bytes of payload an item holds while it is processed
+	 * @param processor
+	 * @throws Exception the first failure, including a failure to read the next item
+	 */
+	public <T> void apply(Iterable<T> items, Function<T, String> key, ToLongFunction<T> payloadBytes, ItemProcessor<T> processor) throws Exception {
+		ByteBudget budget = ByteBudget.getInstance(profile);
+		FailureReport report = profile.isContinueOnError() ? FailureReport.getInstance(profile) : null;
+		AtomicReference<Exception> failure = new AtomicReference<Exception>();
+		int[] failed = {0};
+		// keys with an item in flight, and the items waiting behind it
+		Map<String, Deque<T>> lanes = new HashMap<String, Deque<T>>();
+		Deque<T> released = new ArrayDeque<T>();
+		// items read from the source that wait in a lane or in released
+		int[] held = {0};
+		int[] running = {0};
+		Iterator<T> source = items.iterator();
+		boolean sourceDone = false;
+		try (ApiHubExecutor executor = new ApiHubExecutor(profile)) {
+			while (failure.get() == null) {
+				T next;
+				String nextKey;
+				synchronized (lock) {
+					while ((sourceDone || held[0] >= PluginConstants.MAX_HELD_ITEMS) && released.isEmpty() && running[0] > 0) {
+						lock.wait();
+					}
+					next = released.poll();
+					if (next == null && sourceDone)
+						break;
+					if (next != null) {
+						held[0]--;
+						running[0]++;
+					}
+				}
+				nextKey = next == null ? null : key.apply(next);
+				if (next == null) {
+					try {
+						if (!source.hasNext()) {
+							sourceDone = true;
+							continue;
+						}
+						next = source.next();
+					} catch (RuntimeException e) {
+						// the source could not be read, let the items in flight finish
+						failure.compareAndSet(null, e);
+						break;
+					}
+					nextKey = key.apply(next);
+					synchronized (lock) {
+						if (nextKey != null) {
+							Deque<T> lane = lanes.get(nextKey);
+							if (lane != null) {
+								lane.add(next);
+								held[0]++;
+								continue;
+							}
+							lanes.put(nextKey, new ArrayDeque<T>());
+						}
+						running[0]++;
+					}
+				}
+				T item = next;
+				String itemKey = nextKey;
+				long itemBytes = payloadBytes.applyAsLong(item);
+				budget.acquire(itemBytes, profile.getRunMetrics());
+				try {
+					executor.submit(() -> {
+						boolean success = false;
+						try {
+							String failedParent = report == null ? null : report.getFailedParent(item);
+							if (failedParent != null) {
+								report.skipped(item, failedParent);
+								synchronized (lock) {
+									failed[0]++;
+								}
+							} else {
+								processor.process(item);
+							}
+							success = true;
+						} catch (Exception e) {
+							if (report == null) {
+								failure.compareAndSet(null, e);
+								throw e;
+							}
+							report.failed(item, e);
+							synchronized (lock) {
+								failed[0]++;
+							}
+						} finally {
+							budget.release(itemBytes);
+							synchronized (lock) {
+								if (itemKey != null) {
+									Deque<T> lane = lanes.get(itemKey);
+									T following = success || report != null ? lane.poll() : null;
+									if (following != null) {
+										released.add(following);
+									} else {
+										held[0] -= lanes.remove(itemKey).size();
+									}
+								}
+								running[0]--;
+								lock.notifyAll();
+							}
+						}
+						return null;
+					});
+				} catch (RuntimeException e) {
+					failure.compareAndSet(null, e);
+					budget.release(itemBytes);
+					synchronized (lock) {
+						running[0]--;
+					}
+				}
+			}
+			synchronized (lock) {
+				while (running[0] > 0) {
+					lock.wait();
+				}
+			}
+		}
+		if (report != null) {
+			report.write();
+		}
+		if (failure.get() != null) {
+			throw failure.get();
+		}
+		if (failed[0] > 0) {
+			throw new RuntimeException(format("%d items failed or were skipped, see %s", failed[0], report.getReportFile()));
+		}
+	}
+}
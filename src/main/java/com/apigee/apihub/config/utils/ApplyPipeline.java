@@ -0,0 +1,364 @@
+/**
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apigee.apihub.config.utils;
+
+import static java.lang.String.format;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Applies parent and child config items (apis, their versions, their specs) as a pipeline: an item
+ * is started as soon as its parent has been applied, instead of after all the items of the parent
+ * type. Items whose parent is not in the config are started right away.
+ * As in the keyed ApplyEngine, items with the same parent run one at a time in config order and
+ * items with different parents run in parallel. Children and siblings go ahead of the items still
+ * waiting, so each branch reaches its leaves early. The first failure stops the run: no new items
+ * are started, the children of the failed item are skipped and the first failure is rethrown once
+ * the items in flight are done.
+ * With apigee.apihub.continueOnError, the other items carry on: only the items under a failed
+ * item (above it, when leaves go first) are skipped, and they are added with the failed ones to
+ * the FailureReport.
+ */
+public class ApplyPipeline {
+	static Logger logger = LogManager.getLogger(ApplyPipeline.class);
+
+	static class Stage<T> {
+		final List<T> items = new ArrayList<T>();
+		final Function<T, String> key;
+		final Function<T, String> parentKey;
+		final ToLongFunction<T> payloadBytes;
+		final ApplyEngine.ItemProcessor<T> processor;
+		// items waiting for their parent or for the previous item with the same parent; when
+		// leaves go first, items waiting for their children
+		final Map<String, Deque<Item>> lanes = new LinkedHashMap<String, Deque<Item>>();
+		// when leaves go first, the number of items not yet processed by parent key
+		final Map<String, Integer> pending = new HashMap<String, Integer>();
+
+		Stage(Iterable<T> items, Function<T, String> key, Function<T, String> parentKey, ToLongFunction<T> payloadBytes, ApplyEngine.ItemProcessor<T> processor) {
+			for (T item : items) {
+				this.items.add(item);
+			}
+			this.key = key;
+			this.parentKey = parentKey;
+			this.payloadBytes = payloadBytes;
+			this.processor = processor;
+		}
+	}
+
+	private static class Item {
+		private final int level;
+		private final Object item;
+		private final String parentKey;
+
+		Item(int level, Object item, String parentKey) {
+			this.level = level;
+			this.item = item;
+			this.parentKey = parentKey;
+		}
+	}
+
+	private final BuildProfile profile;
+	private final List<Stage<Object>> stages = new ArrayList<Stage<Object>>();
+	private final Deque<Item> ready = new ArrayDeque<Item>();
+	private final Object lock = new Object();
+
+	public ApplyPipeline(BuildProfile profile) {
+		this.profile = profile;
+	}
+
+	/**
+	 * Add the items of a resource type; stages are added parents first
+	 * @param items a list or a streamed config file, read when the stage is added
+	 * @param key key of an item as a parent of the next stage, or null if it has no children
+	 * @param parentKey key of the parent of an item, or null if it can run with any other
+	 * @param processor
+	 * @return this pipeline
+	 */
+	public <T> ApplyPipeline stage(Iterable<T> items, Function<T, String> key, Function<T, String> parentKey, ApplyEngine.ItemProcessor<T> processor) {
+		return stage(items, key, parentKey, item -> 0, processor);
+	}
+
+	/**
+	 * Add the items of a resource type that upload a payload, submitted within the byte budget
+	 * @param items a list or a streamed config file, read when the stage is added
+	 * @param key key of an item as a parent of the next stage, or null if it has no children
+	 * @param parentKey key of the parent of an item, or null if it can run with any other
+	 * @param payloadBytes bytes of payload an item holds while it is processed
+	 * @param processor
+	 * @return this pipeline
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> ApplyPipeline stage(Iterable<T> items, Function<T, String> key, Function<T, String> parentKey, ToLongFunction<T> payloadBytes, ApplyEngine.ItemProcessor<T> processor) {
+		stages.add((Stage<Object>) (Stage<?>) new Stage<T>(items, key, parentKey, payloadBytes, processor));
+		return this;
+	}
+
+	/**
+	 * @return the stages, parents first
+	 */
+	List<Stage<Object>> getStages() {
+		return stages;
+	}
+
+	/**
+	 * Process all items
+	 * @throws Exception the first failure
+	 */
+	public void run() throws Exception {
+		int total = 0;
+		Set<String> parents = new HashSet<String>();
+		for (int level = 0; level < stages.size(); level++) {
+			Stage<Object> stage = stages.get(level);
+			Set<String> keys = new HashSet<String>();
+			for (Object item : stage.items) {
+				String parentKey = stage.parentKey.apply(item);
+				if (parentKey == null) {
+					ready.add(new Item(level, item, null));
+				} else {
+					stage.lanes.computeIfAbsent(parentKey, k -> new ArrayDeque<Item>()).add(new Item(level, item, parentKey));
+				}
+				String key = stage.key.apply(item);
+				if (key != null)
+					keys.add(key);
+			}
+			// parents that are not in the config already exist
+			for (Map.Entry<String, Deque<Item>> lane : stage.lanes.entrySet()) {
+				if (!parents.contains(lane.getKey())) {
+					ready.add(lane.getValue().poll());
+				}
+			}
+			parents = keys;
+			total += stage.items.size();
+		}
+
+		execute(total, false, this::release);
+	}
+
+	/**
+	 * Process all items leaves first, for deletes: an item starts once all its children in the
+	 * config are done, items with the same parent run in parallel
+	 * @throws Exception the first failure
+	 */
+	public void runLeavesFirst() throws Exception {
+		int total = 0;
+		for (int level = stages.size() - 1; level >= 0; level--) {
+			Stage<Object> stage = stages.get(level);
+			Stage<Object> childStage = level + 1 < stages.size() ? stages.get(level + 1) : null;
+			for (Object item : stage.items) {
+				String key = stage.key.apply(item);
+				Item parent = new Item(level, item, stage.parentKey.apply(item));
+				if (key != null && childStage != null && childStage.pending.containsKey(key)) {
+					stage.lanes.computeIfAbsent(key, k -> new ArrayDeque<Item>()).add(parent);
+				} else {
+					ready.add(parent);
+				}
+				if (parent.parentKey != null) {
+					stage.pending.merge(parent.parentKey, 1, Integer::sum);
+				}
+			}
+			total += stage.items.size();
+		}
+		execute(total, true, this::releaseParent);
+	}
+
+	/**
+	 * Submit the ready items until all are done or one fails
+	 * @param total
+	 * @param leavesFirst true if items are held back by their children rather than their parent
+	 * @param release called with each processed item and whether it succeeded, under the lock, to
+	 *        make the items it was holding back ready
+	 * @throws Exception the first failure
+	 */
+	private void execute(int total, boolean leavesFirst, BiConsumer<Item, Boolean> release) throws Exception {
+		ByteBudget budget = ByteBudget.getInstance(profile);
+		FailureReport report = profile.isContinueOnError() ? FailureReport.getInstance(profile) : null;
+		AtomicReference<Exception> failure = new AtomicReference<Exception>();
+		// names of the failed items by the key of the lane they hold back, for the report
+		Map<String, String> failedKeys = new HashMap<String, String>();
+		int[] running = {0};
+		int[] done = {0};
+		int[] failed = {0};
+		try (ApiHubExecutor executor = new ApiHubExecutor(profile)) {
+			while (true) {
+				Item next;
+				synchronized (lock) {
+					while (ready.isEmpty() && running[0] > 0) {
+						lock.wait();
+					}
+					if (ready.isEmpty() || failure.get() != null)
+						break;
+					next = ready.poll();
+					running[0]++;
+				}
+				long itemBytes = stages.get(next.level).payloadBytes.applyAsLong(next.item);
+				budget.acquire(itemBytes, profile.getRunMetrics());
+				try {
+					executor.submit(() -> {
+						boolean success = false;
+						try {
+							String failedParent = report == null ? null : report.getFailedParent(next.item);
+							if (failedParent != null) {
+								report.skipped(next.item, failedParent);
+							} else {
+								stages.get(next.level).processor.process(next.item);
+								success = true;
+							}
+						} catch (Exception e) {
+							if (report == null) {
+								failure.compareAndSet(null, e);
+								throw e;
+							}
+							report.failed(next.item, e);
+						} finally {
+							budget.release(itemBytes);
+							synchronized (lock) {
+								if (success) {
+									release.accept(next, true);
+								} else if (report != null) {
+									failed[0]++;
+									String key = holdingKey(next, leavesFirst);
+									if (key != null)
+										failedKeys.put(key, PluginUtils.getResourceName(next.item));
+									release.accept(next, false);
+								}
+								running[0]--;
+								done[0]++;
+								lock.notifyAll();
+							}
+						}
+						return null;
+					});
+				} catch (RuntimeException e) {
+					failure.compareAndSet(null, e);
+					budget.release(itemBytes);
+					synchronized (lock) {
+						running[0]--;
+					}
+				}
+			}
+			// after a failure, let the items in flight finish
+			synchronized (lock) {
+				while (running[0] > 0) {
+					lock.wait();
+				}
+			}
+		}
+		if (failure.get() != null) {
+			logger.info(format("%d of %d items were not started", total - done[0], total));
+			throw failure.get();
+		}
+		if (report != null) {
+			failed[0] += reportHeldBack(report, failedKeys, leavesFirst);
+			report.write();
+			if (failed[0] > 0) {
+				throw new RuntimeException(format("%d items failed or were skipped, see %s", failed[0], report.getReportFile()));
+			}
+		}
+	}
+
+	/**
+	 * Key of the lane an item holds back: its own key, or the key of its parent when leaves go first
+	 * @param item
+	 * @param leavesFirst
+	 * @return
+	 */
+	private String holdingKey(Item item, boolean leavesFirst) {
+		return leavesFirst ? item.parentKey : stages.get(item.level).key.apply(item.item);
+	}
+
+	/**
+	 * Report the items still waiting for a failed item as skipped, in the order they would have run
+	 * so that each names the failed or skipped item it waited for
+	 * @param report
+	 * @param failedKeys names of the failed items by the key of the lane they hold back
+	 * @param leavesFirst
+	 * @return the number of items reported
+	 */
+	private int reportHeldBack(FailureReport report, Map<String, String> failedKeys, boolean leavesFirst) {
+		int skipped = 0;
+		for (int i = 0; i < stages.size(); i++) {
+			Stage<Object> stage = stages.get(leavesFirst ? stages.size() - 1 - i : i);
+			for (Map.Entry<String, Deque<Item>> lane : stage.lanes.entrySet()) {
+				for (Item held : lane.getValue()) {
+					report.skipped(held.item, failedKeys.get(lane.getKey()));
+					String key = holdingKey(held, leavesFirst);
+					if (key != null)
+						failedKeys.put(key, PluginUtils.getResourceName(held.item));
+					skipped++;
+				}
+			}
+		}
+		return skipped;
+	}
+
+	/**
+	 * Make the next item with the same parent and, if it succeeded, the first child of a processed
+	 * item ready, ahead of the items already waiting
+	 * @param processed
+	 * @param succeeded
+	 */
+	private void release(Item processed, boolean succeeded) {
+		Stage<Object> stage = stages.get(processed.level);
+		if (processed.parentKey != null) {
+			Item sibling = stage.lanes.get(processed.parentKey).poll();
+			if (sibling != null)
+				ready.addFirst(sibling);
+		}
+		String key = stage.key.apply(processed.item);
+		if (succeeded && key != null && processed.level + 1 < stages.size()) {
+			Deque<Item> children = stages.get(processed.level + 1).lanes.get(key);
+			Item child = children == null ? null : children.poll();
+			if (child != null)
+				ready.addFirst(child);
+		}
+	}
+
+	/**
+	 * Make a parent ready once the last of its children is processed
+	 * @param processed
+	 * @param succeeded
+	 */
+	private void releaseParent(Item processed, boolean succeeded) {
+		if (!succeeded || processed.parentKey == null || processed.level == 0)
+			return;
+		Stage<Object> stage = stages.get(processed.level);
+		int left = stage.pending.merge(processed.parentKey, -1, Integer::sum);
+		if (left == 0) {
+			Deque<Item> parents = stages.get(processed.level - 1).lanes.remove(processed.parentKey);
+			if (parents != null) {
+				for (Item parent : parents) {
+					ready.addFirst(parent);
+				}
+			}
+		}
+	}
+}
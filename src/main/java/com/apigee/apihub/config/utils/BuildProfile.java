@@ -29,6 +29,28 @@ public class BuildProfile {
 	private String serviceAccountFilePath;
 	private String bearer;
 	private boolean forceDelete;
+	private RetryConfig readRetry;
+	private RetryConfig writeRetry;
+	private RetryConfig createRetry;
+	private int readRateLimit; // reads per minute, 0 for unlimited
+	private int writeRateLimit; // writes per minute, 0 for unlimited
+	private int concurrency = 1; // API Hub operations in flight (starting point when adaptive)
+	private int maxConcurrency = 1;
+	private boolean adaptiveConcurrency;
+	private long maxInFlightBytes; // spec contents bytes in flight, 0 for unlimited
+	private boolean continueOnError;
+	private String failureReport;
+	private String include;
+	private boolean resume;
+	private String resumeDir;
+	private String shard;
+	private ConfigCache configCache; // config parsed once for several targets, or null
+	private boolean tokenCache;
+	private String tokenCacheDir;
+	private String transport;
+	private String proxy;
+	private String endpoint;
+	private RunMetrics runMetrics = new RunMetrics();
 	/**
 	 * @return the projectId
 	 */
@@ -47,6 +69,12 @@ public class BuildProfile {
 	public String getLocation() {
 		return location;
 	}
+	/**
+	 * @return the projects/{projectId}/locations/{location} the profile applies to
+	 */
+	public String getTarget() {
+		return "projects/" + projectId + "/locations/" + location;
+	}
 	/**
 	 * @param location the location to set
 	 */
@@ -149,5 +177,274 @@ public class BuildProfile {
 	public void setForceDelete(boolean forceDelete) {
 		this.forceDelete = forceDelete;
 	}
+	/**
+	 * @return the readRetry
+	 */
+	public RetryConfig getReadRetry() {
+		return readRetry;
+	}
+	/**
+	 * @param readRetry the readRetry to set
+	 */
+	public void setReadRetry(RetryConfig readRetry) {
+		this.readRetry = readRetry;
+	}
+	/**
+	 * @return the writeRetry
+	 */
+	public RetryConfig getWriteRetry() {
+		return writeRetry;
+	}
+	/**
+	 * @param writeRetry the writeRetry to set
+	 */
+	public void setWriteRetry(RetryConfig writeRetry) {
+		this.writeRetry = writeRetry;
+	}
+	/**
+	 * @return the createRetry
+	 */
+	public RetryConfig getCreateRetry() {
+		return createRetry;
+	}
+	/**
+	 * @param createRetry the createRetry to set
+	 */
+	public void setCreateRetry(RetryConfig createRetry) {
+		this.createRetry = createRetry;
+	}
+	/**
+	 * @return the readRateLimit
+	 */
+	public int getReadRateLimit() {
+		return readRateLimit;
+	}
+	/**
+	 * @param readRateLimit the readRateLimit to set
+	 */
+	public void setReadRateLimit(int readRateLimit) {
+		this.readRateLimit = readRateLimit;
+	}
+	/**
+	 * @return the writeRateLimit
+	 */
+	public int getWriteRateLimit() {
+		return writeRateLimit;
+	}
+	/**
+	 * @param writeRateLimit the writeRateLimit to set
+	 */
+	public void setWriteRateLimit(int writeRateLimit) {
+		this.writeRateLimit = writeRateLimit;
+	}
+	/**
+	 * @return the runMetrics
+	 */
+	public RunMetrics getRunMetrics() {
+		return runMetrics;
+	}
+	/**
+	 * @param runMetrics the runMetrics to set
+	 */
+	public void setRunMetrics(RunMetrics runMetrics) {
+		this.runMetrics = runMetrics;
+	}
+	/**
+	 * @return the concurrency
+	 */
+	public int getConcurrency() {
+		return concurrency;
+	}
+	/**
+	 * @param concurrency the concurrency to set
+	 */
+	public void setConcurrency(int concurrency) {
+		this.concurrency = concurrency;
+	}
+	/**
+	 * @return the maxConcurrency
+	 */
+	public int getMaxConcurrency() {
+		return maxConcurrency;
+	}
+	/**
+	 * @param maxConcurrency the maxConcurrency to set
+	 */
+	public void setMaxConcurrency(int maxConcurrency) {
+		this.maxConcurrency = maxConcurrency;
+	}
+	/**
+	 * @return the adaptiveConcurrency
+	 */
+	public boolean isAdaptiveConcurrency() {
+		return adaptiveConcurrency;
+	}
+	/**
+	 * @param adaptiveConcurrency the adaptiveConcurrency to set
+	 */
+	public void setAdaptiveConcurrency(boolean adaptiveConcurrency) {
+		this.adaptiveConcurrency = adaptiveConcurrency;
+	}
+
+	/**
+	 * @return the maxInFlightBytes
+	 */
+	public long getMaxInFlightBytes() {
+		return maxInFlightBytes;
+	}
+	/**
+	 * @param maxInFlightBytes the maxInFlightBytes to set
+	 */
+	public void setMaxInFlightBytes(long maxInFlightBytes) {
+		this.maxInFlightBytes = maxInFlightBytes;
+	}
+
+	/**
+	 * @return the continueOnError
+	 */
+	public boolean isContinueOnError() {
+		return continueOnError;
+	}
+	/**
+	 * @param continueOnError the continueOnError to set
+	 */
+	public void setContinueOnError(boolean continueOnError) {
+		this.continueOnError = continueOnError;
+	}
+	/**
+	 * @return the failureReport
+	 */
+	public String getFailureReport() {
+		return failureReport;
+	}
+	/**
+	 * @param failureReport the failureReport to set
+	 */
+	public void setFailureReport(String failureReport) {
+		this.failureReport = failureReport;
+	}
+	/**
+	 * @return the include
+	 */
+	public String getInclude() {
+		return include;
+	}
+	/**
+	 * @param include the include to set
+	 */
+	public void setInclude(String include) {
+		this.include = include;
+	}
+	/**
+	 * @return the resume
+	 */
+	public boolean isResume() {
+		return resume;
+	}
+	/**
+	 * @param resume the resume to set
+	 */
+	public void setResume(boolean resume) {
+		this.resume = resume;
+	}
+	/**
+	 * @return the resumeDir
+	 */
+	public String getResumeDir() {
+		return resumeDir;
+	}
+	/**
+	 * @param resumeDir the resumeDir to set
+	 */
+	public void setResumeDir(String resumeDir) {
+		this.resumeDir = resumeDir;
+	}
+	/**
+	 * @return the shard
+	 */
+	public String getShard() {
+		return shard;
+	}
+	/**
+	 * @param shard the shard to set
+	 */
+	public void setShard(String shard) {
+		this.shard = shard;
+	}
+	/**
+	 * @return the configCache
+	 */
+	public ConfigCache getConfigCache() {
+		return configCache;
+	}
+	/**
+	 * @param configCache the configCache to set
+	 */
+	public void setConfigCache(ConfigCache configCache) {
+		this.configCache = configCache;
+	}
+
+	/**
+	 * @return the tokenCache
+	 */
+	public boolean isTokenCache() {
+		return tokenCache;
+	}
+	/**
+	 * @param tokenCache the tokenCache to set
+	 */
+	public void setTokenCache(boolean tokenCache) {
+		this.tokenCache = tokenCache;
+	}
+	/**
+	 * @return the tokenCacheDir
+	 */
+	public String getTokenCacheDir() {
+		return tokenCacheDir;
+	}
+	/**
+	 * @param tokenCacheDir the tokenCacheDir to set
+	 */
+	public void setTokenCacheDir(String tokenCacheDir) {
+		this.tokenCacheDir = tokenCacheDir;
+	}
+
+	/**
+	 * @return the transport
+	 */
+	public String getTransport() {
+		return transport;
+	}
+	/**
+	 * @param transport the transport to set
+	 */
+	public void setTransport(String transport) {
+		this.transport = transport;
+	}
+	/**
+	 * @return the proxy
+	 */
+	public String getProxy() {
+		return proxy;
+	}
+	/**
+	 * @param proxy the proxy to set
+	 */
+	public void setProxy(String proxy) {
+		this.proxy = proxy;
+	}
+
+	/**
+	 * @return the endpoint
+	 */
+	public String getEndpoint() {
+		return endpoint;
+	}
+	/**
+	 * @param endpoint the endpoint to set
+	 */
+	public void setEndpoint(String endpoint) {
+		this.endpoint = endpoint;
+	}
 
 }
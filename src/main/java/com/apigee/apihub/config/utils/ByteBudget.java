@@ -0,0 +1,93 @@
+/**
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apigee.apihub.config.utils;
+
+import static java.lang.String.format;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Limits the bytes of payload (spec contents) held by the API Hub operations in flight, shared by
+ * all goals of the build.
+ *
+ * An operation only starts once its payload fits in what is left of the budget, so fewer large
+ * specs or more small ones are uploaded at the same time and the heap stays bounded. A payload
+ * larger than the whole budget starts alone, once nothing else is in flight. A max of 0 disables
+ * the budget; the bytes in flight are still tracked for the run summary.
+ */
+public class ByteBudget {
+
+	static Logger logger = LogManager.getLogger(ByteBudget.class);
+
+	// Static variable reference of the shared budget
+	private static ByteBudget byteBudgetObj = null;
+
+	private final long maxBytes;
+	private long inFlightBytes;
+
+	public ByteBudget(long maxBytes) {
+		this.maxBytes = Math.max(0, maxBytes);
+	}
+
+	// Static method to create instance of ByteBudget class
+	public static synchronized ByteBudget getInstance(BuildProfile profile) {
+		if (byteBudgetObj == null) {
+			byteBudgetObj = new ByteBudget(profile.getMaxInFlightBytes());
+			if (byteBudgetObj.getMaxBytes() > 0) {
+				logger.info(format("Spec contents in flight limited to %d bytes", byteBudgetObj.getMaxBytes()));
+			}
+		}
+		return byteBudgetObj;
+	}
+
+	/**
+	 * Wait until a payload fits in the budget
+	 * @param bytes
+	 * @param metrics
+	 * @throws InterruptedException
+	 */
+	public synchronized void acquire(long bytes, RunMetrics metrics) throws InterruptedException {
+		if (bytes <= 0)
+			return;
+		long start = System.nanoTime();
+		while (maxBytes > 0 && inFlightBytes > 0 && inFlightBytes + bytes > maxBytes) {
+			wait();
+		}
+		inFlightBytes += bytes;
+		metrics.recordInFlightBytes(inFlightBytes, System.nanoTime() - start);
+	}
+
+	/**
+	 * Return a payload to the budget
+	 * @param bytes
+	 */
+	public synchronized void release(long bytes) {
+		if (bytes <= 0)
+			return;
+		inFlightBytes -= bytes;
+		notifyAll();
+	}
+
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	public synchronized long getInFlightBytes() {
+		return inFlightBytes;
+	}
+}
@@ -0,0 +1,160 @@
+/**
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apigee.apihub.config.utils;
+
+import static java.lang.String.format;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Limits the number of API Hub operations in flight, shared by all goals of the build that apply
+ * to the same target.
+ * 
+ * In fixed mode the limit never changes. In adaptive mode the limit follows an AIMD scheme:
+ * it grows by one after a full window of successful operations while latency stays close to
+ * the best latency observed, and is cut multiplicatively when an operation is throttled
+ * (RESOURCE_EXHAUSTED) or when latency rises above the tolerated ratio.
+ */
+public class ConcurrencyLimit {
+
+	static Logger logger = LogManager.getLogger(ConcurrencyLimit.class);
+
+	// Static variable reference of the shared limits, one per target
+	private static final Map<String, ConcurrencyLimit> concurrencyLimitObjs = new HashMap<String, ConcurrencyLimit>();
+
+	private static final double THROTTLE_BACKOFF = 0.5;
+	private static final double LATENCY_BACKOFF = 0.75;
+	private static final double LATENCY_TOLERANCE = 2.0;
+	private static final double LATENCY_SMOOTHING = 0.2;
+	// lets the baseline follow a slower service instead of pinning the first fast sample forever
+	private static final double BASELINE_DRIFT = 1.01;
+
+	private final boolean adaptive;
+	private final int maxLimit;
+	private int limit;
+	private int inFlight;
+	private int peakLimit;
+	private int successesInWindow;
+	// operations to complete before the next decrease, so one burst of slow or throttled calls only counts once
+	private int cooldown;
+	private double smoothedLatency;
+	private double baselineLatency;
+
+	public ConcurrencyLimit(int initialLimit, int maxLimit, boolean adaptive) {
+		this.adaptive = adaptive;
+		this.maxLimit = adaptive ? Math.max(1, maxLimit) : Math.max(1, initialLimit);
+		this.limit = Math.min(this.maxLimit, Math.max(1, initialLimit));
+		this.peakLimit = this.limit;
+	}
+
+	// Static method to create instance of ConcurrencyLimit class
+	public static synchronized ConcurrencyLimit getInstance(BuildProfile profile) {
+		ConcurrencyLimit concurrencyLimitObj = concurrencyLimitObjs.get(profile.getTarget());
+		if (concurrencyLimitObj == null) {
+			concurrencyLimitObj = new ConcurrencyLimit(profile.getConcurrency(), profile.getMaxConcurrency(),
+					profile.isAdaptiveConcurrency());
+			concurrencyLimitObjs.put(profile.getTarget(), concurrencyLimitObj);
+			if (profile.isAdaptiveConcurrency()) {
+				logger.info(format("Adaptive concurrency enabled, starting at %d (max %d)", 
+						concurrencyLimitObj.getLimit(), concurrencyLimitObj.getMaxLimit()));
+			}
+		}
+		return concurrencyLimitObj;
+	}
+
+	/**
+	 * Wait until an operation can start
+	 * @throws InterruptedException
+	 */
+	public synchronized void acquire() throws InterruptedException {
+		while (inFlight >= limit) {
+			wait();
+		}
+		inFlight++;
+	}
+
+	/**
+	 * Report a finished operation
+	 * @param latencyNanos
+	 * @param throttled true if the operation failed with RESOURCE_EXHAUSTED
+	 */
+	public synchronized void release(long latencyNanos, boolean throttled) {
+		inFlight--;
+		if (adaptive) {
+			adjust(latencyNanos, throttled);
+		}
+		notifyAll();
+	}
+
+	private void adjust(long latencyNanos, boolean throttled) {
+		if (cooldown > 0) {
+			cooldown--;
+		}
+		if (throttled) {
+			decrease(THROTTLE_BACKOFF, "throttled");
+			return;
+		}
+		smoothedLatency = smoothedLatency == 0 ? latencyNanos
+				: (1 - LATENCY_SMOOTHING) * smoothedLatency + LATENCY_SMOOTHING * latencyNanos;
+		baselineLatency = baselineLatency == 0 ? smoothedLatency 
+				: Math.min(baselineLatency * BASELINE_DRIFT, smoothedLatency);
+		if (smoothedLatency > baselineLatency * LATENCY_TOLERANCE) {
+			decrease(LATENCY_BACKOFF, "latency rising");
+			// start over from the latency seen at the new limit
+			smoothedLatency = baselineLatency;
+			return;
+		}
+		if (++successesInWindow >= limit && limit < maxLimit) {
+			limit++;
+			successesInWindow = 0;
+			peakLimit = Math.max(peakLimit, limit);
+			logger.debug(format("Concurrency limit increased to %d", limit));
+		}
+	}
+
+	private void decrease(double factor, String reason) {
+		if (cooldown > 0)
+			return;
+		int newLimit = Math.max(1, (int) (limit * factor));
+		if (newLimit != limit) {
+			logger.info(format("Concurrency limit reduced from %d to %d (%s)", limit, newLimit, reason));
+		}
+		limit = newLimit;
+		successesInWindow = 0;
+		cooldown = inFlight + 1;
+	}
+
+	public synchronized int getLimit() {
+		return limit;
+	}
+
+	public synchronized int getPeakLimit() {
+		return peakLimit;
+	}
+
+	public int getMaxLimit() {
+		return maxLimit;
+	}
+
+	public boolean isAdaptive() {
+		return adaptive;
+	}
+}
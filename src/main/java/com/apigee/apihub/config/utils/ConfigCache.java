@@ -0,0 +1,66 @@
+/**
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apigee.apihub.config.utils;
+
+import static java.lang.String.format;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.google.protobuf.Message;
+
+/**
+ * Config files parsed once and applied to several targets by the apply-targets goal.
+ *
+ * The entries of a file are parsed the first time a target reads it and held with the PROJECT_ID
+ * and LOCATION placeholders in their names; each target gets them rewritten to its own project
+ * and location (see {@link ConfigReader#streamConfig}). Deferred fields (spec contents) are left
+ * in the file as for a streamed config, so only the entries themselves are held in memory.
+ */
+public class ConfigCache {
+	static Logger logger = LogManager.getLogger(ConfigCache.class);
+
+	interface Loader<T extends Message> {
+		List<ConfigEntry<T>> load() throws IOException;
+	}
+
+	private final Map<String, List<? extends ConfigEntry<?>>> files = new HashMap<String, List<? extends ConfigEntry<?>>>();
+
+	/**
+	 * @param configFile
+	 * @param deferredPath
+	 * @param loader parses the file, called once per file and deferred path
+	 * @return the entries of the file, with the placeholders in their names
+	 * @throws IOException
+	 */
+	@SuppressWarnings("unchecked")
+	synchronized <T extends Message> List<ConfigEntry<T>> get(String configFile, String[] deferredPath, Loader<T> loader) throws IOException {
+		String key = configFile + "#" + String.join(".", deferredPath);
+		List<ConfigEntry<T>> entries = (List<ConfigEntry<T>>) files.get(key);
+		if (entries == null) {
+			entries = loader.load();
+			files.put(key, entries);
+			logger.info(format("Parsed %d entries of %s for all targets", entries.size(), configFile));
+		}
+		return entries;
+	}
+}
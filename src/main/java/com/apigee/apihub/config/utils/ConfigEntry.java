@@ -0,0 +1,136 @@
+/**
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apigee.apihub.config.utils;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Message;
+
+/**
+ * One entry of a config file: the parsed proto, where the entry starts in the file and, when the
+ * reader was asked to defer a large field, where that field's value is.
+ */
+public class ConfigEntry<T extends Message> {
+
+	private final T message;
+	private final long offset;
+	private final DeferredBytes deferred;
+
+	public ConfigEntry(T message, long offset, DeferredBytes deferred) {
+		this.message = message;
+		this.offset = offset;
+		this.deferred = deferred;
+	}
+
+	/**
+	 * @return the parsed entry, without the deferred field
+	 */
+	public T get() {
+		return message;
+	}
+
+	/**
+	 * @return the byte offset of the entry in the config file
+	 */
+	public long getOffset() {
+		return offset;
+	}
+
+	/**
+	 * @return true if the entry has a deferred field value
+	 */
+	public boolean hasDeferredBytes() {
+		return deferred != null;
+	}
+
+	/**
+	 * @return the deferred field value, or null
+	 */
+	public DeferredBytes getDeferredBytes() {
+		return deferred;
+	}
+
+	/**
+	 * @return the size of the deferred field value, estimated for inline values, or 0
+	 */
+	public long getDeferredSize() {
+		return deferred == null ? 0 : deferred.getSize();
+	}
+
+	/**
+	 * Entries reordered largest deferred field value first within a window of the next entries,
+	 * so a streamed config is read at most that many entries ahead. Entries of the same size keep
+	 * their order
+	 * @param entries
+	 * @param window number of entries held for reordering
+	 * @return
+	 */
+	public static <T extends Message> Iterable<ConfigEntry<T>> largestFirst(Iterable<ConfigEntry<T>> entries, int window) {
+		return () -> new Iterator<ConfigEntry<T>>() {
+			private final Iterator<ConfigEntry<T>> source = entries.iterator();
+			// the read order breaks ties
+			private final PriorityQueue<Sequenced<T>> held = new PriorityQueue<Sequenced<T>>(
+					Comparator.comparingLong((Sequenced<T> item) -> item.entry.getDeferredSize()).reversed()
+							.thenComparingLong(item -> item.sequence));
+			private long read = 0;
+
+			@Override
+			public boolean hasNext() {
+				fill();
+				return !held.isEmpty();
+			}
+
+			@Override
+			public ConfigEntry<T> next() {
+				fill();
+				if (held.isEmpty())
+					throw new NoSuchElementException();
+				return held.poll().entry;
+			}
+
+			private void fill() {
+				while (held.size() < Math.max(1, window) && source.hasNext()) {
+					held.add(new Sequenced<T>(source.next(), read++));
+				}
+			}
+		};
+	}
+
+	private static class Sequenced<T extends Message> {
+		private final ConfigEntry<T> entry;
+		private final long sequence;
+
+		Sequenced(ConfigEntry<T> entry, long sequence) {
+			this.entry = entry;
+			this.sequence = sequence;
+		}
+	}
+
+	/**
+	 * Read and decode the deferred field value
+	 * @return the value, or an empty ByteString if nothing was deferred
+	 * @throws IOException
+	 */
+	public ByteString loadDeferredBytes() throws IOException {
+		return deferred == null ? ByteString.EMPTY : deferred.load();
+	}
+}
@@ -16,44 +16,115 @@
 
 package com.apigee.apihub.config.utils;
 
-import java.io.BufferedReader;
+import static java.lang.String.format;
+
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Predicate;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.google.api.client.util.Strings;
+import com.google.protobuf.Message;
 
 public class ConfigReader {
 
-	public static List<String> parseConfig(String configFile) throws ParseException, IOException {
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
 
-		Logger logger = LogManager.getLogger(ConfigReader.class);
-
-		JSONParser parser = new JSONParser();
-		ArrayList<String> out = null;
-		try {
-			BufferedReader bufferedReader = new BufferedReader(new java.io.FileReader(configFile));
+	/**
+	 * Read a config file (a JSON array) straight into protos. Each entry is parsed once, by the
+	 * proto JSON parser, after the PROJECT_ID and LOCATION placeholders are replaced with the target
+	 * project and location.
+	 * @param configFile
+	 * @param clazz proto type of the entries
+	 * @param profile
+	 * @return the entries, in file order
+	 * @throws IOException
+	 */
+	public static <T extends Message> List<T> parseConfig(String configFile, Class<T> clazz, BuildProfile profile) throws IOException {
+		List<T> out = new ArrayList<T>();
+		try (ConfigStream<T> entries = streamConfig(configFile, clazz, profile)) {
+			for (T entry : entries) {
+				out.add(entry);
+			}
+		} catch (RuntimeException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw e;
+		}
+		return out;
+	}
 
-			JSONArray configs = (JSONArray) parser.parse(bufferedReader);
+	/**
+	 * Open a config file (a JSON array) for reading one entry at a time, so large files are never
+	 * held in memory as a whole. The returned stream must be closed.
+	 * @param configFile
+	 * @param clazz proto type of the entries
+	 * @param profile
+	 * @param deferredPath optional path of a base64 string field to leave in the file, see {@link ConfigStream}.
+	 * Files referenced in its place are resolved against the spec directory of the profile
+	 * @return the entries, in file order
+	 * @throws IOException if the file cannot be opened or does not start with a JSON array
+	 */
+	public static <T extends Message> ConfigStream<T> streamConfig(String configFile, Class<T> clazz, BuildProfile profile, String... deferredPath) throws IOException {
 
-			if (configs == null)
-				return null;
+		Logger logger = LogManager.getLogger(ConfigReader.class);
 
-			out = new ArrayList<String>();
-			for (Object config : configs) {
-				out.add(((JSONObject) config).toJSONString());
+		JsonParser parser = null;
+		try {
+			Path fileDirectory = Strings.isNullOrEmpty(profile.getSpecDirectory()) ? null : Paths.get(profile.getSpecDirectory());
+			Predicate<String> included = Strings.isNullOrEmpty(profile.getInclude()) ? name -> true : FailureReport.getInstance(profile)::isIncluded;
+			if (!Strings.isNullOrEmpty(profile.getShard())) {
+				Shard shard = Shard.parse(profile.getShard());
+				logger.info(format("Applying the items of shard %s of %s", shard, configFile));
+				included = included.and(shard::contains);
+			}
+			if (profile.getConfigCache() != null) {
+				// parsed once for all targets, rewritten to this one
+				List<ConfigEntry<T>> entries = profile.getConfigCache().get(configFile, deferredPath, () -> readEntries(configFile, clazz, fileDirectory, deferredPath));
+				return new ConfigStream<T>(configFile, entries, ResourceNameRewriter.toTarget(profile), included);
 			}
+			parser = JSON_FACTORY.createParser(new FileInputStream(configFile));
+			return new ConfigStream<T>(configFile, clazz, ResourceNameRewriter.toTarget(profile), included, JSON_FACTORY, parser, fileDirectory, deferredPath);
 		} catch (IOException ie) {
+			if (parser != null) {
+				parser.close();
+			}
 			logger.info(ie.getMessage());
 			throw ie;
-		} catch (ParseException pe) {
-			logger.info(pe.getMessage());
-			throw pe;
+		}
+	}
+
+	/**
+	 * Read all entries of a config file, keeping the PROJECT_ID and LOCATION placeholders in their
+	 * names
+	 * @param configFile
+	 * @param clazz
+	 * @param fileDirectory
+	 * @param deferredPath
+	 * @return the entries, in file order
+	 * @throws IOException
+	 */
+	private static <T extends Message> List<ConfigEntry<T>> readEntries(String configFile, Class<T> clazz, Path fileDirectory, String... deferredPath) throws IOException {
+		List<ConfigEntry<T>> out = new ArrayList<ConfigEntry<T>>();
+		try (JsonParser parser = JSON_FACTORY.createParser(new FileInputStream(configFile));
+				ConfigStream<T> entries = new ConfigStream<T>(configFile, clazz, ResourceNameRewriter.toPlaceholders(), name -> true, JSON_FACTORY, parser, fileDirectory, deferredPath)) {
+			for (ConfigEntry<T> entry : entries.entries()) {
+				out.add(entry);
+			}
+		} catch (RuntimeException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw e;
 		}
 		return out;
 	}
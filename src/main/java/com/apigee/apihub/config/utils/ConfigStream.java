@@ -0,0 +1,276 @@
+/**
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apigee.apihub.config.utils;
+
+import static java.lang.String.format;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.protobuf.Message;
+
+/**
+ * Entries of a config file (a JSON array), read one at a time.
+ *
+ * Only the entry being parsed is held in memory, so the footprint does not grow with the size of
+ * the file. The stream can be iterated once, either as protos or as {@link ConfigEntry}s, and
+ * must be closed to release the file. Read and parse failures surface from the iterator as
+ * RuntimeException.
+ *
+ * A deferred field path (for example contents.contents of a spec) names a base64 string field
+ * that is not copied: its byte offset is recorded instead and the value is read from the file only
+ * through {@link ConfigEntry#loadDeferredBytes()}. Instead of the inline value, the object holding
+ * the deferred field can name a file, relative to the file directory, in a "file" field; that file
+ * is then mapped as the raw value.
+ *
+ * Entries whose name is not included (see apigee.apihub.include) are read past and left out.
+ *
+ * A stream can also be opened on the entries of a {@link ConfigCache}, parsed once with the
+ * placeholders in their names, and then only rewrites the names to its target.
+ */
+public class ConfigStream<T extends Message> implements Iterable<T>, Closeable {
+
+	public static final String FILE_FIELD = "file";
+
+	private final String configFile;
+	private final ProtoJsonUtil.Codec<T> codec;
+	private final ResourceNameRewriter rewriter;
+	private final JsonFactory factory;
+	private final JsonParser parser;
+	private final Path fileDirectory;
+	private final String[] deferredPath;
+	private final Predicate<String> included;
+	private final Iterator<ConfigEntry<T>> cached;
+	private final StringWriter entry = new StringWriter();
+	private boolean iterated = false;
+	private long deferredOffset;
+	private long deferredEnd;
+	private String deferredFile;
+
+	ConfigStream(String configFile, Class<T> clazz, ResourceNameRewriter rewriter, Predicate<String> included, JsonFactory factory, JsonParser parser, Path fileDirectory, String... deferredPath) throws IOException {
+		this.configFile = configFile;
+		this.codec = ProtoJsonUtil.codec(clazz);
+		this.rewriter = rewriter;
+		this.factory = factory;
+		this.parser = parser;
+		this.fileDirectory = fileDirectory;
+		this.deferredPath = deferredPath;
+		this.included = included;
+		this.cached = null;
+		if (parser.nextToken() != JsonToken.START_ARRAY) {
+			throw new IOException(format("%s must contain a JSON array", configFile));
+		}
+	}
+
+	ConfigStream(String configFile, List<ConfigEntry<T>> cached, ResourceNameRewriter rewriter, Predicate<String> included) {
+		this.configFile = configFile;
+		this.codec = null;
+		this.rewriter = rewriter;
+		this.factory = null;
+		this.parser = null;
+		this.fileDirectory = null;
+		this.deferredPath = new String[0];
+		this.included = included;
+		this.cached = cached.iterator();
+	}
+
+	@Override
+	public Iterator<T> iterator() {
+		Iterator<ConfigEntry<T>> entries = entries().iterator();
+		return new Iterator<T>() {
+			@Override
+			public boolean hasNext() {
+				return entries.hasNext();
+			}
+
+			@Override
+			public T next() {
+				return entries.next().get();
+			}
+		};
+	}
+
+	/**
+	 * @return the entries with their offsets and deferred field values
+	 */
+	public synchronized Iterable<ConfigEntry<T>> entries() {
+		if (iterated) {
+			throw new IllegalStateException(format("%s can only be iterated once", configFile));
+		}
+		iterated = true;
+		return () -> new Iterator<ConfigEntry<T>>() {
+			private ConfigEntry<T> next = null;
+			private boolean done = false;
+
+			@Override
+			public boolean hasNext() {
+				if (next == null && !done) {
+					try {
+						next = readNext();
+					} catch (IOException e) {
+						done = true;
+						throw new RuntimeException(format("Error reading %s: %s", configFile, e.getMessage()), e);
+					}
+					done = next == null;
+				}
+				return next != null;
+			}
+
+			@Override
+			public ConfigEntry<T> next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				ConfigEntry<T> item = next;
+				next = null;
+				return item;
+			}
+		};
+	}
+
+	private ConfigEntry<T> readNext() throws IOException {
+		ConfigEntry<T> next = readEntry();
+		while (next != null && !included.test(PluginUtils.getResourceName(next.get()))) {
+			next = readEntry();
+		}
+		return next;
+	}
+
+	private ConfigEntry<T> readEntry() throws IOException {
+		if (cached != null) {
+			if (!cached.hasNext())
+				return null;
+			ConfigEntry<T> entry = cached.next();
+			return new ConfigEntry<T>(rewriter.rewrite(entry.get()), entry.getOffset(), entry.getDeferredBytes());
+		}
+		JsonToken token = parser.nextToken();
+		if (token == JsonToken.END_ARRAY) {
+			return null;
+		}
+		if (token != JsonToken.START_OBJECT) {
+			throw new IOException(format("%s must contain a JSON array of objects", configFile));
+		}
+		long offset = parser.getTokenLocation().getByteOffset();
+		// copy just this entry out of the stream, then parse it and replace the placeholders
+		entry.getBuffer().setLength(0);
+		deferredOffset = -1;
+		deferredEnd = -1;
+		deferredFile = null;
+		try (JsonGenerator generator = factory.createGenerator(entry)) {
+			copyObject(generator, 0);
+		}
+		T message = rewriter.rewrite(codec.fromJson(entry.toString()));
+		DeferredBytes deferred = null;
+		if (deferredFile != null) {
+			if (deferredOffset >= 0) {
+				throw new IOException(format("Entry at offset %d of %s has both %s and %s", offset, configFile,
+						String.join(".", deferredPath), String.join(".", Arrays.copyOf(deferredPath, deferredPath.length - 1)) + "." + FILE_FIELD));
+			}
+			deferred = DeferredBytes.file(resolve(deferredFile));
+		} else if (deferredOffset >= 0) {
+			deferred = DeferredBytes.inline(Paths.get(configFile), deferredOffset, deferredEnd - deferredOffset);
+		}
+		return new ConfigEntry<T>(message, offset, deferred);
+	}
+
+	/**
+	 * Resolve a referenced file against the file directory, which it must not leave
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	private Path resolve(String file) throws IOException {
+		if (fileDirectory == null) {
+			throw new IOException(format("%s references the file \"%s\" but no apigee.apihub.spec.dir is set", configFile, file));
+		}
+		Path base = fileDirectory.toAbsolutePath().normalize();
+		Path resolved = base.resolve(file).normalize();
+		if (!resolved.startsWith(base)) {
+			throw new IOException(format("\"%s\" in %s is outside of %s", file, configFile, fileDirectory));
+		}
+		if (!Files.isRegularFile(resolved)) {
+			throw new IOException(format("\"%s\" referenced in %s does not exist", resolved, configFile));
+		}
+		return resolved;
+	}
+
+	/**
+	 * Copy the object at the current START_OBJECT token, leaving out the deferred field
+	 * @param generator
+	 * @param level depth of the object along the deferred path
+	 * @throws IOException
+	 */
+	private void copyObject(JsonGenerator generator, int level) throws IOException {
+		generator.writeStartObject();
+		while (nextToken() == JsonToken.FIELD_NAME) {
+			String name = parser.getCurrentName();
+			JsonToken value = parser.nextToken();
+			if (level == deferredPath.length - 1 && value == JsonToken.VALUE_STRING && name.equals(FILE_FIELD)) {
+				// a file in place of the inline value
+				deferredFile = parser.getText();
+				continue;
+			}
+			if (level < deferredPath.length && name.equals(deferredPath[level])) {
+				if (level == deferredPath.length - 1 && value == JsonToken.VALUE_STRING) {
+					// the string itself is skipped by the next nextToken() without being decoded
+					deferredOffset = parser.getTokenLocation().getByteOffset();
+					continue;
+				}
+				if (value == JsonToken.START_OBJECT) {
+					generator.writeFieldName(name);
+					copyObject(generator, level + 1);
+					continue;
+				}
+			}
+			generator.writeFieldName(name);
+			generator.copyCurrentStructure(parser);
+		}
+		generator.writeEndObject();
+	}
+
+	/**
+	 * Move to the next token, noting where the token after a skipped deferred value starts
+	 * @return
+	 * @throws IOException
+	 */
+	private JsonToken nextToken() throws IOException {
+		JsonToken token = parser.nextToken();
+		if (deferredOffset >= 0 && deferredEnd < 0) {
+			deferredEnd = parser.getTokenLocation().getByteOffset();
+		}
+		return token;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (parser != null)
+			parser.close();
+	}
+}
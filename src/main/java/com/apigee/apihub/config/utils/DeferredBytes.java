@@ -0,0 +1,242 @@
+/**
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apigee.apihub.config.utils;
+
+import static java.lang.String.format;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Base64;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
+
+/**
+ * Bytes read only when needed: either a base64 encoded JSON string value left in its config file,
+ * or a whole file referenced by the config.
+ *
+ * The config reader records the byte offset of the value instead of copying it, so a spec that
+ * ends up skipped never has its contents read into memory. Referenced files are memory-mapped and
+ * wrapped as they are, without base64 or String intermediates.
+ */
+public class DeferredBytes {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+	// enough for the closing quote, the separator and the padding of the value at the end of its span
+	private static final int TAIL_SIZE = 256;
+	private static final String ESCAPED_PADDING = "\\u003d";
+
+	private final Path file;
+	private final long offset;
+	private final long size;
+
+	DeferredBytes(Path file, long offset, long size) {
+		this.file = file;
+		this.offset = offset;
+		this.size = size;
+	}
+
+	/**
+	 * @param configFile the config file
+	 * @param offset byte offset of the opening quote of the string value
+	 * @param length number of bytes the string value spans in the config file, up to the next token
+	 * @return
+	 * @throws IOException
+	 */
+	public static DeferredBytes inline(Path configFile, long offset, long length) throws IOException {
+		return new DeferredBytes(configFile, offset, decodedSize(configFile, offset, length));
+	}
+
+	/**
+	 * The size of the decoded value, from the base64 characters between the quotes less the padding.
+	 * Only the end of the span is read: the closing quote is its last one, followed by whitespace
+	 * and a comma at most
+	 */
+	private static long decodedSize(Path configFile, long offset, long length) throws IOException {
+		int tailLength = (int) Math.min(Math.max(0, length), TAIL_SIZE);
+		long tailOffset = offset + length - tailLength;
+		ByteBuffer buffer = ByteBuffer.allocate(tailLength);
+		try (FileChannel channel = FileChannel.open(configFile, StandardOpenOption.READ)) {
+			while (buffer.hasRemaining() && channel.read(buffer, tailOffset + buffer.position()) >= 0) {
+			}
+		}
+		String tail = new String(buffer.array(), 0, buffer.position(), StandardCharsets.US_ASCII);
+		int end = tail.lastIndexOf('"');
+		if (end < 0 || tailOffset + end <= offset) {
+			throw new IOException(format("Unterminated string value at offset %d of %s", offset, configFile));
+		}
+		long chars = tailOffset + end - offset - 1;
+		while (true) {
+			if (tail.startsWith("=", end - 1)) {
+				end -= 1;
+				chars -= 1;
+			} else if (tail.regionMatches(true, end - ESCAPED_PADDING.length(), ESCAPED_PADDING, 0, ESCAPED_PADDING.length())) {
+				// written by JSON encoders that escape '='
+				end -= ESCAPED_PADDING.length();
+				chars -= ESCAPED_PADDING.length();
+			} else {
+				break;
+			}
+		}
+		// 4 base64 characters per 3 bytes, the last group short of the padding
+		return Math.max(0, chars) * 3 / 4;
+	}
+
+	/**
+	 * @param file the file holding the raw bytes
+	 * @return
+	 * @throws IOException
+	 */
+	public static DeferredBytes file(Path file) throws IOException {
+		return new DeferredBytes(file, -1, Files.size(file));
+	}
+
+	/**
+	 * @return the config file, or the referenced file
+	 */
+	public Path getFile() {
+		return file;
+	}
+
+	/**
+	 * @return the byte offset of the value in the config file, -1 for a referenced file
+	 */
+	public long getOffset() {
+		return offset;
+	}
+
+	/**
+	 * @return the size of the bytes, computed from the length of the string value when inline, where
+	 * escaped line breaks still count
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * @return true if the bytes are a whole referenced file
+	 */
+	public boolean isFile() {
+		return offset < 0;
+	}
+
+	/**
+	 * Read and decode the value, or map the referenced file
+	 * @return the bytes
+	 * @throws IOException
+	 */
+	public ByteString load() throws IOException {
+		if (isFile()) {
+			return map();
+		}
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			channel.position(offset);
+			InputStream in = new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE);
+			if (in.read() != '"') {
+				throw new IOException(format("No string value at offset %d of %s", offset, file));
+			}
+			ByteString.Output out = ByteString.newOutput(BUFFER_SIZE);
+			InputStream decoder = Base64.getDecoder().wrap(new StringValueStream(in));
+			byte[] buffer = new byte[BUFFER_SIZE];
+			int n;
+			while ((n = decoder.read(buffer)) != -1) {
+				out.write(buffer, 0, n);
+			}
+			return out.toByteString();
+		}
+	}
+
+	private ByteString map() throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException(format("%s is larger than 2 GB", file));
+			}
+			// the mapping stays valid after the channel is closed; the file is read-only for its lifetime
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			return UnsafeByteOperations.unsafeWrap(buffer);
+		}
+	}
+
+	/**
+	 * The characters of a JSON string value up to its closing quote, with escapes resolved, escaped
+	 * line breaks dropped and the URL safe base64 alphabet mapped to the standard one. Anything else
+	 * is passed on for the strict decoder to reject
+	 */
+	private class StringValueStream extends InputStream {
+		private final InputStream in;
+		private boolean end = false;
+
+		StringValueStream(InputStream in) {
+			this.in = in;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (end)
+				return -1;
+			while (true) {
+				int c = next();
+				if (c == '"') {
+					end = true;
+					return -1;
+				}
+				if (c == '\\') {
+					c = next();
+					if (c == 'n' || c == 'r' || c == 't') {
+						// line breaks of MIME encoded values
+						continue;
+					}
+					if (c == 'u') {
+						c = 0;
+						for (int i = 0; i < 4; i++) {
+							int digit = Character.digit(next(), 16);
+							if (digit < 0) {
+								throw new IOException(format("Invalid unicode escape in the string value at offset %d of %s", offset, file));
+							}
+							c = (c << 4) | digit;
+						}
+					} else if (c != '/') {
+						throw new IOException(format("Unexpected escape \\%c in the base64 value at offset %d of %s", (char) c, offset, file));
+					}
+				}
+				if (c == '-')
+					return '+';
+				if (c == '_')
+					return '/';
+				return c;
+			}
+		}
+
+		private int next() throws IOException {
+			int c = in.read();
+			if (c == -1) {
+				throw new IOException(format("Unterminated string value at offset %d of %s", offset, file));
+			}
+			return c;
+		}
+	}
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apigee.apihub.config.utils;
+
+import static java.lang.String.format;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Deletes the items of a pipeline (apis, their versions, their specs) children first, so that no
+ * parent is deleted while it still has children in the config, and items with the same parent in
+ * parallel.
+ *
+ * With apigee.apihub.force.delete, deleting an api also deletes its versions and deleting a version
+ * its specs, so items under a parent that is deleted too are dropped from the plan: each subtree
+ * is removed with the one call on its top-most item. Keys are paths (apis/{api}/versions/{version}),
+ * so an item is under a deleted parent when its parent key is, or starts with, the key of that
+ * parent.
+ */
+public class DeletePlanner {
+	static Logger logger = LogManager.getLogger(DeletePlanner.class);
+
+	private final boolean force;
+
+	public DeletePlanner(BuildProfile profile) {
+		this.force = profile.getForceDelete();
+	}
+
+	/**
+	 * Plan and run the deletes of a pipeline
+	 * @param pipeline
+	 * @throws Exception the first failure
+	 */
+	public void run(ApplyPipeline pipeline) throws Exception {
+		if (force) {
+			collapse(pipeline);
+		}
+		pipeline.runLeavesFirst();
+	}
+
+	/**
+	 * Drop the items that a forced delete of a parent already removes
+	 * @param pipeline
+	 */
+	void collapse(ApplyPipeline pipeline) {
+		Set<String> deleted = new HashSet<String>();
+		for (ApplyPipeline.Stage<Object> stage : pipeline.getStages()) {
+			int dropped = 0;
+			Set<String> keys = new HashSet<String>();
+			for (Iterator<Object> items = stage.items.iterator(); items.hasNext();) {
+				Object item = items.next();
+				String key = stage.key.apply(item);
+				if (key != null)
+					keys.add(key);
+				if (isUnder(stage.parentKey.apply(item), deleted)) {
+					items.remove();
+					dropped++;
+				}
+			}
+			if (dropped > 0) {
+				logger.info(format("Skipping %d items deleted with their parent (force delete)", dropped));
+			}
+			deleted.addAll(keys);
+		}
+	}
+
+	/**
+	 * @param parentKey
+	 * @param deleted
+	 * @return true if the parent key or one of its ancestors is deleted
+	 */
+	private static boolean isUnder(String parentKey, Set<String> deleted) {
+		if (parentKey == null)
+			return false;
+		for (int i = parentKey.indexOf('/'); i >= 0; i = parentKey.indexOf('/', i + 1)) {
+			if (deleted.contains(parentKey.substring(0, i)))
+				return true;
+		}
+		return deleted.contains(parentKey);
+	}
+}
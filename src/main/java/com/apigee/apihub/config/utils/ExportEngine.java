@@ -0,0 +1,64 @@
+/**
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apigee.apihub.config.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Fetches and converts exported resources through the ApiHubExecutor.
+ * Results are returned in the order of the input, so export files stay stable between runs.
+ */
+public class ExportEngine {
+
+	public interface ItemMapper<T, R> {
+		R map(T item) throws Exception;
+	}
+
+	private final BuildProfile profile;
+
+	public ExportEngine(BuildProfile profile) {
+		this.profile = profile;
+	}
+
+	/**
+	 * Map all items, preserving their order
+	 * @param items
+	 * @param mapper
+	 * @return
+	 * @throws Exception the first failure
+	 */
+	public <T, R> List<R> map(List<T> items, ItemMapper<T, R> mapper) throws Exception {
+		List<Future<R>> futures = new ArrayList<Future<R>>();
+		List<R> results = new ArrayList<R>();
+		try (ApiHubExecutor executor = new ApiHubExecutor(profile)) {
+			for (T item : items) {
+				futures.add(executor.submit(() -> mapper.map(item)));
+			}
+			for (Future<R> future : futures) {
+				results.add(future.get());
+			}
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof Exception)
+				throw (Exception) e.getCause();
+			throw e;
+		}
+		return results;
+	}
+}
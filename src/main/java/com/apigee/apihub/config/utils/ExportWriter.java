@@ -0,0 +1,231 @@
+/**
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apigee.apihub.config.utils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Descriptors.EnumValueDescriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Message;
+
+/**
+ * Writes an export file (a pretty printed JSON array) straight from the protos, in one pass per
+ * resource: top level REMOVE_FIELDS are skipped, resource names are rewritten to the PROJECT_ID and
+ * LOCATION placeholders and nested messages, such as spec contents, are written in place.
+ *
+ * The output follows the proto3 JSON mapping of JsonFormat and the formatting of the pretty
+ * printing Gson used before, so exported files are unchanged. Well-known types (timestamps,
+ * wrappers, Struct...) are delegated to JsonFormat.
+ */
+public class ExportWriter implements Closeable {
+
+	private static final String INDENT = "  ";
+	private static final String WELL_KNOWN_PACKAGE = "google.protobuf";
+	private static final Set<String> REMOVE_FIELDS = new HashSet<String>(Arrays.asList(PluginConstants.REMOVE_FIELDS));
+	private static final Gson GSON = new Gson();
+
+	private final ResourceNameRewriter rewriter = ResourceNameRewriter.toPlaceholders();
+	private final JsonWriter writer;
+
+	/**
+	 * Start an export file named after the entity in the export directory
+	 * @param exportDir
+	 * @param entity
+	 * @throws IOException
+	 */
+	public ExportWriter(String exportDir, String entity) throws IOException {
+		this(Files.newBufferedWriter(Paths.get(exportDir + File.separator + entity + ".json"), StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Start an export array on a writer
+	 * @param out
+	 * @throws IOException
+	 */
+	public ExportWriter(Writer out) throws IOException {
+		writer = new JsonWriter(out);
+		writer.setIndent(INDENT);
+		writer.setHtmlSafe(true);
+		writer.beginArray();
+	}
+
+	/**
+	 * Write all resources to the export file of the entity
+	 * @param resources
+	 * @param exportDir
+	 * @param entity
+	 * @throws IOException
+	 */
+	public static void exportToFile(List<? extends Message> resources, String exportDir, String entity) throws IOException {
+		try (ExportWriter exportWriter = new ExportWriter(exportDir, entity)) {
+			for (Message resource : resources) {
+				exportWriter.write(resource);
+			}
+		}
+	}
+
+	/**
+	 * Write one resource in its exported form
+	 * @param resource
+	 * @throws IOException
+	 */
+	public void write(Message resource) throws IOException {
+		writeMessage(resource, true);
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			writer.endArray();
+		} finally {
+			writer.close();
+		}
+	}
+
+	private void writeMessage(Message message, boolean topLevel) throws IOException {
+		if (WELL_KNOWN_PACKAGE.equals(message.getDescriptorForType().getFile().getPackage())) {
+			GSON.toJson(JsonParser.parseString(ProtoJsonUtil.printer().print(message)), writer);
+			return;
+		}
+		writer.beginObject();
+		for (Map.Entry<FieldDescriptor, Object> field : message.getAllFields().entrySet()) {
+			FieldDescriptor fd = field.getKey();
+			if (topLevel && REMOVE_FIELDS.contains(fd.getJsonName()))
+				continue;
+			writer.name(fd.getJsonName());
+			if (fd.isMapField()) {
+				writeMap(fd, (List<?>) field.getValue());
+			} else if (fd.isRepeated()) {
+				writer.beginArray();
+				for (Object value : (List<?>) field.getValue()) {
+					writeValue(fd, value);
+				}
+				writer.endArray();
+			} else {
+				writeValue(fd, field.getValue());
+			}
+		}
+		writer.endObject();
+	}
+
+	private void writeMap(FieldDescriptor fd, List<?> entries) throws IOException {
+		FieldDescriptor keyField = fd.getMessageType().findFieldByName("key");
+		FieldDescriptor valueField = fd.getMessageType().findFieldByName("value");
+		boolean nameKeyed = ResourceNameRewriter.isNameKeyedMap(fd);
+		writer.beginObject();
+		for (Object entry : entries) {
+			Message mapEntry = (Message) entry;
+			Object key = mapEntry.getField(keyField);
+			String name;
+			switch (keyField.getType()) {
+				case UINT32:
+				case FIXED32:
+					name = Integer.toUnsignedString((Integer) key);
+					break;
+				case UINT64:
+				case FIXED64:
+					name = Long.toUnsignedString((Long) key);
+					break;
+				default:
+					name = String.valueOf(key);
+			}
+			writer.name(nameKeyed ? rewriter.rewriteName(name) : name);
+			writeValue(valueField, mapEntry.getField(valueField));
+		}
+		writer.endObject();
+	}
+
+	private void writeValue(FieldDescriptor fd, Object value) throws IOException {
+		switch (fd.getType()) {
+			case INT32:
+			case SINT32:
+			case SFIXED32:
+				writer.value(((Integer) value).longValue());
+				break;
+			case UINT32:
+			case FIXED32:
+				writer.value(Integer.toUnsignedLong((Integer) value));
+				break;
+			case INT64:
+			case SINT64:
+			case SFIXED64:
+				// 64 bit integers are strings in the proto3 JSON mapping
+				writer.value(value.toString());
+				break;
+			case UINT64:
+			case FIXED64:
+				writer.value(Long.toUnsignedString((Long) value));
+				break;
+			case FLOAT:
+			case DOUBLE:
+				writeFloatingPoint((Number) value);
+				break;
+			case BOOL:
+				writer.value((Boolean) value);
+				break;
+			case STRING:
+				String str = (String) value;
+				writer.value(ResourceNameRewriter.isNameField(fd) ? rewriter.rewriteName(str) : str);
+				break;
+			case BYTES:
+				writer.value(Base64.getEncoder().encodeToString(((ByteString) value).toByteArray()));
+				break;
+			case ENUM:
+				EnumValueDescriptor enumValue = (EnumValueDescriptor) value;
+				if (enumValue.getType().getFullName().equals("google.protobuf.NullValue")) {
+					writer.nullValue();
+				} else if (enumValue.getIndex() == -1) {
+					// unknown to this version of the client
+					writer.value(enumValue.getNumber());
+				} else {
+					writer.value(enumValue.getName());
+				}
+				break;
+			case MESSAGE:
+			case GROUP:
+				writeMessage((Message) value, false);
+				break;
+		}
+	}
+
+	private void writeFloatingPoint(Number value) throws IOException {
+		double d = value.doubleValue();
+		if (Double.isNaN(d)) {
+			writer.value("NaN");
+		} else if (Double.isInfinite(d)) {
+			writer.value(d > 0 ? "Infinity" : "-Infinity");
+		} else {
+			writer.value(value);
+		}
+	}
+}
@@ -0,0 +1,222 @@
+/**
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apigee.apihub.config.utils;
+
+import static java.lang.String.format;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.google.api.client.util.Strings;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.protobuf.Message;
+
+/**
+ * Items that failed, or were skipped because their parent failed, during a continue-on-error run,
+ * shared by all goals of the build that apply to the same target.
+ *
+ * The report is a JSON array of {"name", "type", "status", "error" or "parent"} objects, with names
+ * in the PROJECT_ID/LOCATION placeholder form. Passed back with apigee.apihub.include, it limits a
+ * follow-up run to the items it lists.
+ */
+public class FailureReport {
+
+	static Logger logger = LogManager.getLogger(FailureReport.class);
+
+	// Static variable reference of the shared reports, one per target
+	private static final Map<String, FailureReport> failureReportObjs = new HashMap<String, FailureReport>();
+
+	private static final Gson GSON = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+	private static final String FAILED = "failed";
+	private static final String SKIPPED = "skipped";
+
+	private final Path reportFile;
+	private final Set<String> included;
+	private final ResourceNameRewriter placeholders = ResourceNameRewriter.toPlaceholders();
+	private final List<JsonObject> entries = new ArrayList<JsonObject>();
+	private final Set<String> failedNames = new HashSet<String>();
+
+	private FailureReport(BuildProfile profile) throws IOException {
+		this.reportFile = Strings.isNullOrEmpty(profile.getFailureReport()) ? null : Paths.get(profile.getFailureReport());
+		this.included = Strings.isNullOrEmpty(profile.getInclude()) ? null : readNames(Paths.get(profile.getInclude()), ResourceNameRewriter.toTarget(profile));
+	}
+
+	// Static method to create instance of FailureReport class
+	public static synchronized FailureReport getInstance(BuildProfile profile) {
+		FailureReport failureReportObj = failureReportObjs.get(profile.getTarget());
+		if (failureReportObj == null) {
+			try {
+				failureReportObj = new FailureReport(profile);
+			} catch (IOException e) {
+				throw new RuntimeException(format("Error reading %s: %s", profile.getInclude(), e.getMessage()), e);
+			}
+			failureReportObjs.put(profile.getTarget(), failureReportObj);
+			if (failureReportObj.included != null) {
+				logger.info(format("Applying the %d items listed in %s", failureReportObj.included.size(), profile.getInclude()));
+			}
+		}
+		return failureReportObj;
+	}
+
+	/**
+	 * @param name
+	 * @return true if the item is to be applied: no include list is set, or it lists the item
+	 */
+	public boolean isIncluded(String name) {
+		return included == null || included.contains(name);
+	}
+
+	/**
+	 * @param item
+	 * @return the name of the failed item the item is under, or null
+	 */
+	public synchronized String getFailedParent(Object item) {
+		String name = PluginUtils.getResourceName(item);
+		if (name == null)
+			return null;
+		for (int i = name.indexOf('/'); i >= 0; i = name.indexOf('/', i + 1)) {
+			if (failedNames.contains(name.substring(0, i)))
+				return name.substring(0, i);
+		}
+		return null;
+	}
+
+	/**
+	 * Report a failed item
+	 * @param item
+	 * @param e
+	 */
+	public synchronized void failed(Object item, Exception e) {
+		String name = PluginUtils.getResourceName(item);
+		JsonObject entry = entry(item, name, FAILED);
+		entry.addProperty("error", e.getMessage());
+		entries.add(entry);
+		if (name != null)
+			failedNames.add(name);
+		logger.error(format("%s \"%s\" failed: %s", entry.get("type").getAsString(), name, e.getMessage()));
+	}
+
+	/**
+	 * Report an item skipped because of a failed parent, or a failed child when leaves go first
+	 * @param item
+	 * @param parent name of the failed parent, or null
+	 */
+	public synchronized void skipped(Object item, String parent) {
+		String name = PluginUtils.getResourceName(item);
+		JsonObject entry = entry(item, name, SKIPPED);
+		if (parent != null)
+			entry.addProperty("parent", placeholders.rewriteName(parent));
+		entries.add(entry);
+		// children of a skipped item are skipped too
+		if (name != null)
+			failedNames.add(name);
+		if (parent != null)
+			logger.info(format("%s \"%s\" skipped: parent \"%s\" failed", entry.get("type").getAsString(), name, parent));
+		else
+			logger.info(format("%s \"%s\" skipped: an item it depends on failed", entry.get("type").getAsString(), name));
+	}
+
+	/**
+	 * @return the number of failed and skipped items
+	 */
+	public synchronized int getCount() {
+		return entries.size();
+	}
+
+	/**
+	 * @return the report file, or null if none is written
+	 */
+	public Path getReportFile() {
+		return reportFile;
+	}
+
+	/**
+	 * Write all items reported so far, or remove the report file if there are none
+	 * @throws IOException
+	 */
+	public synchronized void write() throws IOException {
+		if (reportFile == null)
+			return;
+		if (entries.isEmpty()) {
+			// nothing failed, do not leave the report of an earlier run behind
+			Files.deleteIfExists(reportFile);
+			return;
+		}
+		if (reportFile.getParent() != null)
+			Files.createDirectories(reportFile.getParent());
+		JsonArray report = new JsonArray();
+		for (JsonObject entry : entries) {
+			report.add(entry);
+		}
+		try (Writer writer = Files.newBufferedWriter(reportFile, StandardCharsets.UTF_8)) {
+			GSON.toJson(report, writer);
+		}
+	}
+
+	/**
+	 * Read the names listed in a report
+	 * @param report
+	 * @param rewriter to the target project and location
+	 * @return
+	 * @throws IOException
+	 */
+	public static Set<String> readNames(Path report, ResourceNameRewriter rewriter) throws IOException {
+		Set<String> names = new HashSet<String>();
+		try (Reader reader = Files.newBufferedReader(report, StandardCharsets.UTF_8)) {
+			JsonElement json = JsonParser.parseReader(reader);
+			if (!json.isJsonArray()) {
+				throw new IOException(format("%s must contain a JSON array", report));
+			}
+			for (JsonElement entry : json.getAsJsonArray()) {
+				if (entry.isJsonObject() && entry.getAsJsonObject().has("name")) {
+					names.add(rewriter.rewriteName(entry.getAsJsonObject().get("name").getAsString()));
+				}
+			}
+		}
+		return names;
+	}
+
+	private JsonObject entry(Object item, String name, String status) {
+		if (item instanceof ConfigEntry) {
+			item = ((ConfigEntry<?>) item).get();
+		}
+		JsonObject entry = new JsonObject();
+		entry.addProperty("name", placeholders.rewriteName(name));
+		entry.addProperty("type", item instanceof Message ? ((Message) item).getDescriptorForType().getName() : "Item");
+		entry.addProperty("status", status);
+		return entry;
+	}
+}
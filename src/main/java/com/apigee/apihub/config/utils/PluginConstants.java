@@ -19,10 +19,10 @@ package com.apigee.apihub.config.utils;
 public final class PluginConstants {
 	
 	public static final int PAGE_SIZE = 1000;
+	public static final int LARGEST_FIRST_WINDOW = 1000;
+	public static final int MAX_HELD_ITEMS = 1000;
 	public static final String PROJECT_ID = "PROJECT_ID";
 	public static final String LOCATION = "LOCATION";
-	public static final String PATTERN = "projects\\\\/[^\\\\/]+\\\\/locations\\\\/[^\\\\/]+";
-	public static final String PATTERN1 = "projects\\/[^\\/]+\\/locations\\/[^\\/]+";
 	public static final String[] REMOVE_FIELDS = {"createTime", "updateTime", "details", 
 													"lintResponse", "versions", "apiVersions", 
 													"state", "discoveryMode", "errorDetail",
@@ -16,99 +16,90 @@
 
 package com.apigee.apihub.config.utils;
 
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.apache.maven.plugin.MojoFailureException;
 
 import com.apigee.apihub.config.mavenplugin.ApisMojo;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Message;
 
 public class PluginUtils {
 	static Logger logger = LogManager.getLogger(ApisMojo.class);
 
+	// projects/{project}/locations/{location}/apis/{api}/versions/{version}/... to get api and version
+	public static final Pattern API_VERSION_PATTERN = Pattern.compile(".*\\/apis\\/([a-zA-Z0-9-_]+)\\/versions\\/([a-zA-Z0-9-_]+).*");
+	private static final Pattern API_PATTERN = Pattern.compile(".*\\/apis\\/([a-zA-Z0-9-_]+).*");
+	private static final Pattern TOP_LEVEL_PATTERN = Pattern.compile("(?:projects\\/[^/]+\\/locations\\/[^/]+\\/)?([^/]+\\/[^/]+).*");
+
 	/**
-	 * 
-	 * @param aStr
-	 * @param projectId
-	 * @param location
-	 * @return
+	 * Last segment of a resource name, used as the resource id on create
+	 * @param name
+	 * @return the id, or null if the name is empty
 	 */
-	public static String replacer (String aStr, String from, String to) {
-		aStr = aStr.replaceAll(from, to);
-		return aStr;
+	public static String getResourceId(String name) {
+		if (name == null || name.isEmpty())
+			return null;
+		return name.substring(name.lastIndexOf('/') + 1);
 	}
 	
 	/**
-	 * 
-	 * @param objList
-	 * @param exportFilePath
-	 * @param entity
-	 * @throws IOException
-	 * @throws MojoFailureException
+	 * Resource name of a config item
+	 * @param item a proto or a config entry
+	 * @return the name, or null if the item has none
 	 */
-	public static void exportToFile(List<String> objList, String exportFilePath, String entity)
-            throws IOException, MojoFailureException {
-		BufferedWriter bw = null;
-		FileWriter fw = null;
-		Gson gson = new GsonBuilder().setPrettyPrinting().create();
-		try {
-			// Convert the ArrayList to a JSON array
-	        JsonArray jsonArray = new JsonArray();
-	        for (String jsonString : objList) {
-	            jsonArray.add(JsonParser.parseString(jsonString));
-	        }
-	        String prettyJson = gson.toJson(jsonArray);
-			String fileName = exportFilePath+ File.separator+entity+".json";
-			fw = new FileWriter(fileName);
-			bw = new BufferedWriter(fw);
-			bw.write(prettyJson);
-		} catch (IOException e) {
-			e.printStackTrace();
-		} finally {
-			try {
-				if (bw != null)
-					bw.close();
-				if (fw != null)
-					fw.close();
-			} catch (IOException ex) {
-				ex.printStackTrace();
-			}
+	public static String getResourceName(Object item) {
+		if (item instanceof ConfigEntry) {
+			item = ((ConfigEntry<?>) item).get();
+		}
+		if (!(item instanceof Message)) {
+			return item == null ? null : item.toString();
 		}
+		Message message = (Message) item;
+		FieldDescriptor name = message.getDescriptorForType().findFieldByName("name");
+		if (name == null || name.getJavaType() != FieldDescriptor.JavaType.STRING)
+			return null;
+		String value = (String) message.getField(name);
+		return value.isEmpty() ? null : value;
 	}
 	
 	/**
-	 * 
-	 * @param obj
-	 * @return
-	 * @throws IOException
-	 * @throws MojoFailureException
+	 * Key of the api a resource name belongs to
+	 * @param name
+	 * @return apis/{api}, or null if the name is not under an api
 	 */
-	public static String cleanseResponse(String obj)
-            throws IOException, MojoFailureException {
-		Gson gson = new Gson();
-		String cleansedStr = null;
-		try {
-			JsonObject jsonObject = gson.fromJson(obj, JsonObject.class);
-			for (String field : PluginConstants.REMOVE_FIELDS) {
-				jsonObject.remove(field);
-			}
-			cleansedStr = gson.toJson(jsonObject);
-		}catch (Exception e) {
-			throw new RuntimeException(e.getMessage());
-		}
-		return cleansedStr;
+	public static String getApiKey(String name) {
+		if (name == null)
+			return null;
+		Matcher m = API_PATTERN.matcher(name);
+		return m.matches() ? "apis/" + m.group(1) : null;
+	}
+	
+	/**
+	 * Key of the api version a resource name belongs to
+	 * @param name
+	 * @return apis/{api}/versions/{version}, or null if the name is not under an api version
+	 */
+	public static String getApiVersionKey(String name) {
+		if (name == null)
+			return null;
+		Matcher m = API_VERSION_PATTERN.matcher(name);
+		return m.matches() ? "apis/" + m.group(1) + "/versions/" + m.group(2) : null;
+	}
+	
+	/**
+	 * Key of the top-level resource a resource name belongs to, the same for an api, its versions
+	 * and their specs
+	 * @param name
+	 * @return {collection}/{id} after the project and location, for example apis/{api}, or null
+	 */
+	public static String getTopLevelKey(String name) {
+		if (name == null)
+			return null;
+		Matcher m = TOP_LEVEL_PATTERN.matcher(name);
+		return m.matches() ? m.group(1) : null;
 	}
 	
 	public static void main (String args[]) throws Exception {
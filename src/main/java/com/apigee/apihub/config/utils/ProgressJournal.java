@@ -0,0 +1,200 @@
+/**
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apigee.apihub.config.utils;
+
+import static java.lang.String.format;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.google.api.client.util.Strings;
+
+/**
+ * Journal of the items of a config file applied so far, so that an interrupted run resumes where
+ * it stopped instead of applying every item again.
+ *
+ * The journal is a text file in apigee.apihub.resume.dir: a first line with the hash of the config
+ * file, the option, the project and the location, then the name of each item, appended as soon as
+ * it is applied. A run with the same hash skips the items listed; any other hash starts a new
+ * journal. The journal is removed once all items are applied. Files referenced from the config
+ * (spec contents in apigee.apihub.spec.dir) are not part of the hash.
+ */
+public class ProgressJournal implements Closeable {
+
+	static Logger logger = LogManager.getLogger(ProgressJournal.class);
+
+	private final String configFile;
+	private final Path journalFile;
+	private final String hash;
+	private final Set<String> applied = new HashSet<String>();
+	private final AtomicInteger skipped = new AtomicInteger();
+	private Writer writer;
+
+	private ProgressJournal(String configFile, Path journalFile, String hash) {
+		this.configFile = configFile;
+		this.journalFile = journalFile;
+		this.hash = hash;
+	}
+
+	/**
+	 * Open the journal of a config file, resuming it if it was written for the same config
+	 * @param profile
+	 * @param configFile
+	 * @return the journal, which does nothing unless apigee.apihub.resume is set and the config
+	 *         file exists
+	 * @throws IOException
+	 */
+	public static ProgressJournal open(BuildProfile profile, String configFile) throws IOException {
+		Path config = Paths.get(configFile);
+		if (!profile.isResume() || Strings.isNullOrEmpty(profile.getResumeDir()) || !Files.isRegularFile(config)) {
+			return new ProgressJournal(configFile, null, null);
+		}
+		Path dir = Paths.get(profile.getResumeDir());
+		Files.createDirectories(dir);
+		String hash = hash(config, profile);
+		// shards of the same config keep their own journal
+		String shard = Strings.isNullOrEmpty(profile.getShard()) ? "" : "-shard-" + Shard.parse(profile.getShard()).toString().replace('/', '-');
+		ProgressJournal journal = new ProgressJournal(configFile,
+				dir.resolve(format("%s-%s-%s%s.journal", profile.getProjectId(), profile.getLocation(), config.getFileName(), shard)), hash);
+		if (Files.isRegularFile(journal.journalFile)) {
+			String previous = new String(Files.readAllBytes(journal.journalFile), StandardCharsets.UTF_8);
+			// a line cut short by the interruption is not a name
+			String[] lines = previous.substring(0, previous.lastIndexOf('\n') + 1).split("\n");
+			if (lines[0].equals(hash)) {
+				for (int i = 1; i < lines.length; i++) {
+					if (!lines[i].isEmpty())
+						journal.applied.add(lines[i]);
+				}
+				logger.info(format("Resuming %s: %d items were applied by an earlier run", configFile, journal.applied.size()));
+			} else {
+				logger.info(format("%s or the options changed since the journal was written, applying all items", configFile));
+			}
+		}
+		return journal;
+	}
+
+	/**
+	 * @param processor
+	 * @return a processor that skips the items already applied and journals the ones it applies
+	 */
+	public <T> ApplyEngine.ItemProcessor<T> track(ApplyEngine.ItemProcessor<T> processor) {
+		if (journalFile == null)
+			return processor;
+		return item -> {
+			String name = PluginUtils.getResourceName(item);
+			if (name != null && isApplied(name)) {
+				logger.debug(format("\"%s\" was applied by an earlier run, skipping", name));
+				skipped.incrementAndGet();
+				return;
+			}
+			processor.process(item);
+			if (name != null)
+				applied(name);
+		};
+	}
+
+	/**
+	 * @param name
+	 * @return true if the item is in the journal
+	 */
+	public synchronized boolean isApplied(String name) {
+		return applied.contains(name);
+	}
+
+	/**
+	 * Add an applied item to the journal
+	 * @param name
+	 * @throws IOException
+	 */
+	public synchronized void applied(String name) throws IOException {
+		if (writer == null) {
+			// rewrite what is kept, without the cut short line, once there is something to add
+			writer = Files.newBufferedWriter(journalFile, StandardCharsets.UTF_8);
+			writer.write(hash + "\n");
+			for (String previous : applied) {
+				writer.write(previous + "\n");
+			}
+		}
+		applied.add(name);
+		// flushed item by item, so that the journal survives the process being killed
+		writer.write(name + "\n");
+		writer.flush();
+	}
+
+	/**
+	 * All items are applied, remove the journal
+	 * @throws IOException
+	 */
+	public synchronized void complete() throws IOException {
+		if (journalFile == null)
+			return;
+		close();
+		Files.deleteIfExists(journalFile);
+		if (skipped.get() > 0) {
+			logger.info(format("Skipped %d items of %s applied by an earlier run", skipped.get(), configFile));
+		}
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (writer != null) {
+			writer.close();
+			writer = null;
+		}
+	}
+
+	/**
+	 * @param config
+	 * @param profile
+	 * @return hash of the config file and of the options it is applied with
+	 * @throws IOException
+	 */
+	private static String hash(Path config, BuildProfile profile) throws IOException {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(format("%s %s %s %s %s\n", profile.getOptions(), profile.getProjectId(), profile.getLocation(),
+					profile.getForceDelete(), profile.getShard()).getBytes(StandardCharsets.UTF_8));
+			byte[] buffer = new byte[8192];
+			try (InputStream in = Files.newInputStream(config)) {
+				for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+					digest.update(buffer, 0, read);
+				}
+			}
+			StringBuilder sb = new StringBuilder();
+			for (byte b : digest.digest()) {
+				sb.append(format("%02x", b));
+			}
+			return sb.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -17,12 +17,11 @@
 package com.apigee.apihub.config.utils;
 
 import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonParser;
-import com.google.protobuf.AbstractMessage.Builder;
+import com.google.protobuf.Internal;
 import com.google.protobuf.Message;
 import com.google.protobuf.MessageOrBuilder;
 import com.google.protobuf.util.JsonFormat;
@@ -30,11 +29,91 @@ import com.google.protobuf.util.JsonFormat;
 /**
  * Generic ProtoJsonUtil to be used to serialize and deserialize Proto to json
  * Source: https://stackoverflow.com/questions/28545401/java-json-protobuf-back-conversion
+ *
+ * The printer, the parser and the default instance of each message class are created once and
+ * reused, so a conversion only costs the parsing or printing itself.
  * @author Marcello.deeSales@gmail.com
  *
  */
 public final class ProtoJsonUtil {
 
+  private static final Gson PRETTY_GSON = new GsonBuilder().setPrettyPrinting().create();
+
+  // default instance of each message class, the builders are created from it
+  private static final ClassValue<Message> DEFAULT_INSTANCES = new ClassValue<Message>() {
+    @Override
+    @SuppressWarnings("unchecked")
+    protected Message computeValue(Class<?> clazz) {
+      return Internal.getDefaultInstance((Class<? extends Message>) clazz);
+    }
+  };
+
+  private static volatile JsonFormat.Printer printer = JsonFormat.printer();
+  private static volatile JsonFormat.Parser parser = JsonFormat.parser().ignoringUnknownFields();
+
+  private ProtoJsonUtil() {
+  }
+
+  /**
+   * A typed codec of a message class
+   * @param <T> is the class type
+   */
+  public static final class Codec<T extends Message> {
+    private final T defaultInstance;
+
+    private Codec(T defaultInstance) {
+      this.defaultInstance = defaultInstance;
+    }
+
+    /**
+     * @param json is the json instance
+     * @return An instance of T based on the json values
+     * @throws IOException if any error occurs
+     */
+    @SuppressWarnings("unchecked")
+    public T fromJson(String json) throws IOException {
+      Message.Builder builder = defaultInstance.newBuilderForType();
+      parser.merge(json, builder);
+      return (T) builder.build();
+    }
+
+    /**
+     * @param message is the instance
+     * @return The string representation
+     * @throws IOException if any error occurs
+     */
+    public String toJson(T message) throws IOException {
+      return printer.print(message);
+    }
+  }
+
+  /**
+   * Codec of a message class
+   * @param <T> is the class type
+   * @param clazz is the class instance
+   * @return the codec
+   */
+  @SuppressWarnings("unchecked")
+  public static <T extends Message> Codec<T> codec(Class<T> clazz) {
+    return new Codec<T>((T) DEFAULT_INSTANCES.get(clazz));
+  }
+
+  /**
+   * Use a type registry to resolve google.protobuf.Any fields, when printing and parsing
+   * @param registry
+   */
+  public static synchronized void setTypeRegistry(JsonFormat.TypeRegistry registry) {
+    printer = JsonFormat.printer().usingTypeRegistry(registry);
+    parser = JsonFormat.parser().ignoringUnknownFields().usingTypeRegistry(registry);
+  }
+
+  /**
+   * @return the shared printer
+   */
+  public static JsonFormat.Printer printer() {
+    return printer;
+  }
+
   /**
    * Makes a Json from a given message or builder
    * 
@@ -43,7 +122,7 @@ public final class ProtoJsonUtil {
    * @throws IOException if any error occurs
    */
   public static String toJson(MessageOrBuilder messageOrBuilder) throws IOException {
-    return JsonFormat.printer().print(messageOrBuilder);
+    return printer.print(messageOrBuilder);
   }
   
   /**
@@ -54,8 +133,7 @@ public final class ProtoJsonUtil {
    * @throws IOException if any error occurs
    */
   public static String toPrettyPrintJson(MessageOrBuilder messageOrBuilder) throws IOException {
-	  Gson gson = new GsonBuilder().setPrettyPrinting().create();
-	  return gson.toJson(JsonParser.parseString(JsonFormat.printer().print(messageOrBuilder)));
+	  return PRETTY_GSON.toJson(JsonParser.parseString(printer.print(messageOrBuilder)));
   }
 
   /**
@@ -66,23 +144,7 @@ public final class ProtoJsonUtil {
    * @return An instance of T based on the json values
    * @throws IOException if any error occurs
    */
-  @SuppressWarnings({"unchecked", "rawtypes"})
   public static <T extends Message> T fromJson(String json, Class<T> clazz) throws IOException {
-    // https://stackoverflow.com/questions/27642021/calling-parsefrom-method-for-generic-protobuffer-class-in-java/33701202#33701202
-    Builder builder = null;
-    try {
-      // Since we are dealing with a Message type, we can call newBuilder()
-      builder = (Builder) clazz.getMethod("newBuilder").invoke(null);
-
-    } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException
-        | NoSuchMethodException | SecurityException e) {
-      return null;
-    }
-
-    // The instance is placed into the builder values
-    JsonFormat.parser().ignoringUnknownFields().merge(json, builder);
-
-    // the instance will be from the build
-    return (T) builder.build();
+    return codec(clazz).fromJson(json);
   }
-}
\ No newline at end of file
+}
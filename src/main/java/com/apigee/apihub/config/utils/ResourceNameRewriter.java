@@ -0,0 +1,185 @@
+/**
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apigee.apihub.config.utils;
+
+import static java.lang.String.format;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Message;
+
+/**
+ * Rewrites the projects/{project}/locations/{location} prefix of the resource names held by API
+ * Hub protos: to the target project and location on import, to the PROJECT_ID and LOCATION
+ * placeholders on export.
+ *
+ * Only resource name fields are touched: the fields listed in NAME_FIELDS, fields ending with
+ * _resource_name and the keys of the attributes maps. Other strings and bytes fields, such as spec
+ * contents, are never read, so the cost depends on the number of names, not on the payload size.
+ */
+public class ResourceNameRewriter {
+
+	private static final String PROJECTS = "projects/";
+	private static final String LOCATIONS = "locations/";
+
+	// string fields (single or repeated) holding API Hub resource names
+	private static final Set<String> NAME_FIELDS = new HashSet<String>(Arrays.asList(
+			"name", "attribute", "versions", "selected_version", "specs", "api_operations",
+			"definitions", "deployments", "selected_deployment", "api_versions"));
+	private static final String NAME_FIELD_SUFFIX = "_resource_name";
+	// map fields keyed by attribute name
+	private static final Set<String> NAME_KEYED_MAPS = new HashSet<String>(Arrays.asList("attributes"));
+
+	private static final ResourceNameRewriter PLACEHOLDERS = new ResourceNameRewriter(PluginConstants.PROJECT_ID, PluginConstants.LOCATION);
+
+	private final String prefix;
+
+	private ResourceNameRewriter(String project, String location) {
+		this.prefix = format("projects/%s/locations/%s", project, location);
+	}
+
+	/**
+	 * @param profile
+	 * @return a rewriter to the project and location of the profile
+	 */
+	public static ResourceNameRewriter toTarget(BuildProfile profile) {
+		return new ResourceNameRewriter(profile.getProjectId(), profile.getLocation());
+	}
+
+	/**
+	 * @return a rewriter to the PROJECT_ID and LOCATION placeholders
+	 */
+	public static ResourceNameRewriter toPlaceholders() {
+		return PLACEHOLDERS;
+	}
+
+	/**
+	 * Rewrite the resource names of a message
+	 * @param message
+	 * @return the rewritten message, or the same instance if no name changed
+	 */
+	@SuppressWarnings("unchecked")
+	public <T extends Message> T rewrite(T message) {
+		if (message == null)
+			return null;
+		Message.Builder builder = null;
+		for (Map.Entry<FieldDescriptor, Object> field : message.getAllFields().entrySet()) {
+			FieldDescriptor fd = field.getKey();
+			if (fd.getJavaType() == FieldDescriptor.JavaType.MESSAGE) {
+				if (fd.isRepeated()) {
+					// map fields are repeated key/value entries
+					List<?> values = (List<?>) field.getValue();
+					for (int i = 0; i < values.size(); i++) {
+						Message value = (Message) values.get(i);
+						Message rewritten = fd.isMapField() ? rewriteMapEntry(fd, value) : rewrite(value);
+						if (rewritten != value) {
+							builder = builder == null ? message.toBuilder() : builder;
+							builder.setRepeatedField(fd, i, rewritten);
+						}
+					}
+				} else {
+					Message value = (Message) field.getValue();
+					Message rewritten = rewrite(value);
+					if (rewritten != value) {
+						builder = builder == null ? message.toBuilder() : builder;
+						builder.setField(fd, rewritten);
+					}
+				}
+			} else if (fd.getJavaType() == FieldDescriptor.JavaType.STRING && isNameField(fd)) {
+				if (fd.isRepeated()) {
+					List<?> values = (List<?>) field.getValue();
+					for (int i = 0; i < values.size(); i++) {
+						String value = (String) values.get(i);
+						String rewritten = rewriteName(value);
+						if (rewritten != value) {
+							builder = builder == null ? message.toBuilder() : builder;
+							builder.setRepeatedField(fd, i, rewritten);
+						}
+					}
+				} else {
+					String value = (String) field.getValue();
+					String rewritten = rewriteName(value);
+					if (rewritten != value) {
+						builder = builder == null ? message.toBuilder() : builder;
+						builder.setField(fd, rewritten);
+					}
+				}
+			}
+		}
+		return builder == null ? message : (T) builder.build();
+	}
+
+	/**
+	 * Rewrite the projects/{project}/locations/{location} prefix of a resource name
+	 * @param value
+	 * @return the rewritten name, or the same instance if it has no such prefix or already has the target one
+	 */
+	public String rewriteName(String value) {
+		if (value == null || !value.startsWith(PROJECTS))
+			return value;
+		int projectEnd = value.indexOf('/', PROJECTS.length());
+		if (projectEnd <= PROJECTS.length() || !value.startsWith(LOCATIONS, projectEnd + 1))
+			return value;
+		int locationStart = projectEnd + 1 + LOCATIONS.length();
+		int locationEnd = value.indexOf('/', locationStart);
+		if (locationEnd < 0)
+			locationEnd = value.length();
+		if (locationEnd == locationStart)
+			return value;
+		if (locationEnd == prefix.length() && value.startsWith(prefix))
+			return value;
+		return prefix + value.substring(locationEnd);
+	}
+
+	static boolean isNameField(FieldDescriptor fd) {
+		return NAME_FIELDS.contains(fd.getName()) || fd.getName().endsWith(NAME_FIELD_SUFFIX);
+	}
+
+	static boolean isNameKeyedMap(FieldDescriptor fd) {
+		return fd.isMapField() && NAME_KEYED_MAPS.contains(fd.getName());
+	}
+
+	private Message rewriteMapEntry(FieldDescriptor fd, Message entry) {
+		Descriptor entryType = fd.getMessageType();
+		FieldDescriptor keyField = entryType.findFieldByName("key");
+		FieldDescriptor valueField = entryType.findFieldByName("value");
+		Message.Builder builder = null;
+		if (isNameKeyedMap(fd) && keyField.getJavaType() == FieldDescriptor.JavaType.STRING) {
+			String key = (String) entry.getField(keyField);
+			String rewritten = rewriteName(key);
+			if (rewritten != key) {
+				builder = entry.toBuilder();
+				builder.setField(keyField, rewritten);
+			}
+		}
+		if (valueField.getJavaType() == FieldDescriptor.JavaType.MESSAGE) {
+			Message value = (Message) entry.getField(valueField);
+			Message rewritten = rewrite(value);
+			if (rewritten != value) {
+				builder = builder == null ? entry.toBuilder() : builder;
+				builder.setField(valueField, rewritten);
+			}
+		}
+		return builder == null ? entry : builder.build();
+	}
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apigee.apihub.config.utils;
+
+/**
+ * Retry settings for one class of API Hub calls (reads, idempotent writes or creates)
+ */
+public class RetryConfig {
+
+	private int maxAttempts;
+	private long initialBackoffMillis;
+	private long maxBackoffMillis;
+	private long totalTimeoutMillis;
+
+	public RetryConfig(int maxAttempts, long initialBackoffMillis, long maxBackoffMillis, long totalTimeoutMillis) {
+		this.maxAttempts = maxAttempts;
+		this.initialBackoffMillis = initialBackoffMillis;
+		this.maxBackoffMillis = maxBackoffMillis;
+		this.totalTimeoutMillis = totalTimeoutMillis;
+	}
+	/**
+	 * @return the maxAttempts
+	 */
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+	/**
+	 * @param maxAttempts the maxAttempts to set
+	 */
+	public void setMaxAttempts(int maxAttempts) {
+		this.maxAttempts = maxAttempts;
+	}
+	/**
+	 * @return the initialBackoffMillis
+	 */
+	public long getInitialBackoffMillis() {
+		return initialBackoffMillis;
+	}
+	/**
+	 * @param initialBackoffMillis the initialBackoffMillis to set
+	 */
+	public void setInitialBackoffMillis(long initialBackoffMillis) {
+		this.initialBackoffMillis = initialBackoffMillis;
+	}
+	/**
+	 * @return the maxBackoffMillis
+	 */
+	public long getMaxBackoffMillis() {
+		return maxBackoffMillis;
+	}
+	/**
+	 * @param maxBackoffMillis the maxBackoffMillis to set
+	 */
+	public void setMaxBackoffMillis(long maxBackoffMillis) {
+		this.maxBackoffMillis = maxBackoffMillis;
+	}
+	/**
+	 * @return the totalTimeoutMillis
+	 */
+	public long getTotalTimeoutMillis() {
+		return totalTimeoutMillis;
+	}
+	/**
+	 * @param totalTimeoutMillis the totalTimeoutMillis to set
+	 */
+	public void setTotalTimeoutMillis(long totalTimeoutMillis) {
+		this.totalTimeoutMillis = totalTimeoutMillis;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("maxAttempts=%d, initialBackoff=%dms, maxBackoff=%dms, totalTimeout=%dms",
+				maxAttempts, initialBackoffMillis, maxBackoffMillis, totalTimeoutMillis);
+	}
+}
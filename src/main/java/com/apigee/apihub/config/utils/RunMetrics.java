@@ -0,0 +1,74 @@
+/**
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apigee.apihub.config.utils;
+
+import static java.lang.String.format;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Counters collected during a goal execution and logged as the run summary. API Hub call counts
+ * are kept by the ApiHubRateLimiter of the target, which sees every attempt
+ */
+public class RunMetrics {
+
+	private final long startNanos = System.nanoTime();
+	private volatile int settledConcurrency;
+	private final AtomicLong byteBudgetWaitNanos = new AtomicLong();
+	private final AtomicLong peakInFlightBytes = new AtomicLong();
+	private volatile int peakConcurrency;
+
+	public void recordConcurrency(int settled, int peak) {
+		this.settledConcurrency = settled;
+		this.peakConcurrency = Math.max(this.peakConcurrency, peak);
+	}
+
+	public void recordInFlightBytes(long inFlightBytes, long budgetWaitNanos) {
+		byteBudgetWaitNanos.addAndGet(budgetWaitNanos);
+		peakInFlightBytes.accumulateAndGet(inFlightBytes, Math::max);
+	}
+
+	public int getSettledConcurrency() {
+		return settledConcurrency;
+	}
+
+	public int getPeakConcurrency() {
+		return peakConcurrency;
+	}
+
+	public long getElapsedMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+	}
+
+	/**
+	 * Log the run summary
+	 * @param logger
+	 */
+	public void logSummary(Logger logger) {
+		logger.info(format("Run summary: completed in %d ms", getElapsedMillis()));
+		if (settledConcurrency > 0) {
+			logger.info(format("Concurrency: settled at %d (peak %d)", settledConcurrency, peakConcurrency));
+		}
+		if (peakInFlightBytes.get() > 0) {
+			logger.info(format("Spec contents in flight: peak %d bytes, %d ms waiting for the byte budget",
+					peakInFlightBytes.get(), byteBudgetWaitNanos.get() / 1_000_000));
+		}
+	}
+}
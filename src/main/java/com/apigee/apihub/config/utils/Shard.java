@@ -0,0 +1,78 @@
+/**
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apigee.apihub.config.utils;
+
+import static java.lang.String.format;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * One of n partitions of the config items (apigee.apihub.shard=i/n, i from 1 to n), so that one
+ * config can be applied by several invocations at the same time.
+ *
+ * Items are partitioned by a hash of their top-level resource (apis/{api}, attributes/{attribute},
+ * ...), so an api, its versions and their specs always fall in the same shard and keep their
+ * order. The hash is the same on every JVM, so each item is applied by exactly one shard.
+ */
+public class Shard {
+
+	private static final Pattern SHARD_PATTERN = Pattern.compile("\\s*(\\d+)\\s*/\\s*(\\d+)\\s*");
+
+	private final int index;
+	private final int count;
+
+	public Shard(int index, int count) {
+		if (count < 1 || index < 1 || index > count) {
+			throw new IllegalArgumentException(format("Invalid shard %d/%d, expected i/n with i from 1 to n", index, count));
+		}
+		this.index = index;
+		this.count = count;
+	}
+
+	/**
+	 * @param shard i/n
+	 * @return the shard
+	 */
+	public static Shard parse(String shard) {
+		Matcher m = SHARD_PATTERN.matcher(shard);
+		try {
+			if (m.matches()) {
+				return new Shard(Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2)));
+			}
+		} catch (IllegalArgumentException e) {
+			// out of range, reported below
+		}
+		throw new RuntimeException(format("Invalid apigee.apihub.shard \"%s\" provided, expected i/n with i from 1 to n", shard));
+	}
+
+	/**
+	 * @param name resource name of an item
+	 * @return true if the item belongs to this shard. Items without a name go to the first shard
+	 */
+	public boolean contains(String name) {
+		String key = PluginUtils.getTopLevelKey(name);
+		if (key == null)
+			return index == 1;
+		return Math.floorMod(key.hashCode(), count) == index - 1;
+	}
+
+	@Override
+	public String toString() {
+		return index + "/" + count;
+	}
+}
@@ -0,0 +1,183 @@
+/**
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apigee.apihub.config.utils;
+
+import static java.lang.String.format;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Named tasks with dependencies, run as a DAG: a task starts as soon as all the tasks it depends
+ * on have completed, so independent branches run at the same time and the total time approaches
+ * the longest chain.
+ * As with the ApplyEngine, the first failure stops the run: tasks that have not started are
+ * skipped, the ones already running are allowed to finish and the first failure is rethrown.
+ * When running on after errors, every task runs once its dependencies are done, failed or not,
+ * and the first failure is rethrown at the end.
+ */
+public class TaskGraph {
+
+	public interface Task {
+		void run() throws Exception;
+	}
+
+	private static class Node {
+		private final Task task;
+		private final List<String> dependsOn;
+
+		Node(Task task, List<String> dependsOn) {
+			this.task = task;
+			this.dependsOn = dependsOn;
+		}
+	}
+
+	private final Map<String, Node> nodes = new LinkedHashMap<String, Node>();
+
+	/**
+	 * Add a task; the tasks it depends on must have been added before
+	 * @param name
+	 * @param task
+	 * @param dependsOn
+	 * @return this graph
+	 */
+	public TaskGraph add(String name, Task task, String... dependsOn) {
+		if (nodes.containsKey(name)) {
+			throw new IllegalArgumentException(format("Task \"%s\" is already in the graph", name));
+		}
+		for (String dependency : dependsOn) {
+			if (!nodes.containsKey(dependency)) {
+				throw new IllegalArgumentException(format("Task \"%s\" depends on unknown task \"%s\"", name, dependency));
+			}
+		}
+		nodes.put(name, new Node(task, Arrays.asList(dependsOn)));
+		return this;
+	}
+
+	/**
+	 * @return the task names, in the order they were added
+	 */
+	public List<String> getNames() {
+		return new ArrayList<String>(nodes.keySet());
+	}
+
+	/**
+	 * @return the same tasks with every dependency inverted, for example to delete children
+	 *         before their parents
+	 */
+	public TaskGraph reversed() {
+		List<String> names = getNames();
+		TaskGraph reversed = new TaskGraph();
+		for (int i = names.size() - 1; i >= 0; i--) {
+			String name = names.get(i);
+			List<String> dependents = new ArrayList<String>();
+			for (int j = i + 1; j < names.size(); j++) {
+				if (nodes.get(names.get(j)).dependsOn.contains(name)) {
+					dependents.add(names.get(j));
+				}
+			}
+			reversed.add(name, nodes.get(name).task, dependents.toArray(new String[0]));
+		}
+		return reversed;
+	}
+
+	/**
+	 * Run all tasks
+	 * @param parallelism max number of tasks running at the same time
+	 * @throws Exception the first failure
+	 */
+	public void run(int parallelism) throws Exception {
+		run(parallelism, false);
+	}
+
+	/**
+	 * Run all tasks
+	 * @param parallelism max number of tasks running at the same time
+	 * @param continueOnError run the tasks whose dependencies failed too
+	 * @throws Exception the first failure, or the first Error as it is
+	 */
+	public void run(int parallelism, boolean continueOnError) throws Exception {
+		AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		Map<String, CompletableFuture<Void>> futures = new LinkedHashMap<String, CompletableFuture<Void>>();
+		ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, nodes.size())), new TaskThreadFactory());
+		try {
+			for (Map.Entry<String, Node> entry : nodes.entrySet()) {
+				Node node = entry.getValue();
+				CompletableFuture<?>[] dependencies = new CompletableFuture<?>[node.dependsOn.size()];
+				for (int i = 0; i < dependencies.length; i++) {
+					dependencies[i] = futures.get(node.dependsOn.get(i));
+				}
+				// a failed dependency fails this task without running it, unless running on after errors
+				CompletableFuture<Void> dependenciesDone = CompletableFuture.allOf(dependencies);
+				if (continueOnError) {
+					dependenciesDone = dependenciesDone.exceptionally(t -> null);
+				}
+				futures.put(entry.getKey(), dependenciesDone.thenRunAsync(() -> {
+					if (failure.get() != null && !continueOnError) {
+						throw new CancellationException();
+					}
+					try {
+						node.task.run();
+					} catch (Throwable t) {
+						failure.compareAndSet(null, t);
+						throw new CompletionException(t);
+					}
+				}, pool));
+			}
+			for (CompletableFuture<Void> future : futures.values()) {
+				try {
+					future.join();
+				} catch (CompletionException | CancellationException e) {
+					// already recorded
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+		Throwable t = failure.get();
+		if (t instanceof Error) {
+			throw (Error) t;
+		}
+		if (t != null) {
+			throw (Exception) t;
+		}
+	}
+
+	private static class TaskThreadFactory implements ThreadFactory {
+		private static final AtomicInteger poolNumber = new AtomicInteger();
+		private final int pool = poolNumber.incrementAndGet();
+		private final AtomicInteger threadNumber = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "apihub-task-" + pool + "-" + threadNumber.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		}
+	}
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apigee.apihub.config.utils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket refilled at a fixed rate. Callers reserve a token and sleep until it is available,
+ * so waiting threads are served in arrival order and never hold the lock while sleeping.
+ */
+public class TokenBucket {
+
+	private final double capacity;
+	private final double nanosPerToken;
+	private double tokens;
+	private long lastRefillNanos;
+
+	/**
+	 * @param permitsPerMinute refill rate
+	 * @param capacity max number of tokens that can be accumulated (burst size)
+	 */
+	public TokenBucket(double permitsPerMinute, double capacity) {
+		if (permitsPerMinute <= 0) {
+			throw new IllegalArgumentException("permitsPerMinute must be positive");
+		}
+		this.capacity = Math.max(1, capacity);
+		this.nanosPerToken = TimeUnit.MINUTES.toNanos(1) / permitsPerMinute;
+		this.tokens = this.capacity;
+		this.lastRefillNanos = System.nanoTime();
+	}
+
+	/**
+	 * Take one token, blocking until it is available
+	 * @return the time spent waiting, in nanoseconds
+	 * @throws InterruptedException
+	 */
+	public long acquire() throws InterruptedException {
+		long waitNanos = reserve();
+		if (waitNanos > 0) {
+			TimeUnit.NANOSECONDS.sleep(waitNanos);
+		}
+		return waitNanos;
+	}
+
+	private synchronized long reserve() {
+		long now = System.nanoTime();
+		tokens = Math.min(capacity, tokens + (now - lastRefillNanos) / nanosPerToken);
+		lastRefillNanos = now;
+		// tokens may go negative: the deficit is the queue of callers already waiting
+		tokens -= 1;
+		if (tokens >= 0) {
+			return 0;
+		}
+		return (long) (-tokens * nanosPerToken);
+	}
+}
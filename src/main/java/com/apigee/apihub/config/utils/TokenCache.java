@@ -0,0 +1,223 @@
+/**
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apigee.apihub.config.utils;
+
+import static java.lang.String.format;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.google.auth.oauth2.AccessToken;
+import com.google.auth.oauth2.GoogleCredentials;
+import com.google.auth.oauth2.OAuth2Credentials;
+import com.google.auth.oauth2.ServiceAccountCredentials;
+import com.google.gson.Gson;
+
+/**
+ * On-disk cache of service account access tokens, keyed by service account and scope.
+ *
+ * Cached tokens are reused until shortly before they expire, so short goal executions skip the
+ * token endpoint round trip. Token files are readable by the owner only. While a goal runs, the
+ * token is refreshed in the background before it expires and the new token is written back.
+ */
+public class TokenCache {
+
+	static Logger logger = LogManager.getLogger(TokenCache.class);
+
+	// a cached token is only reused if it is valid for at least this long
+	private static final long REUSE_MARGIN_MILLIS = TimeUnit.MINUTES.toMillis(5);
+	// background refresh happens this long before expiry
+	private static final long REFRESH_MARGIN_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+	private static ScheduledExecutorService scheduler = null;
+
+	public static class CachedToken {
+		public String token;
+		public long expiresAt;
+	}
+
+	private final Path tokenFile;
+	private ScheduledFuture<?> nextRefresh;
+
+	private TokenCache(Path tokenFile) {
+		this.tokenFile = tokenFile;
+	}
+
+	/**
+	 * Attach the cache to service account credentials. Other credentials are returned unchanged.
+	 * @param credentials scoped service account credentials
+	 * @param scope
+	 * @param profile
+	 * @return credentials primed with the cached token, if still valid
+	 * @throws IOException
+	 */
+	public static GoogleCredentials apply(GoogleCredentials credentials, String scope, BuildProfile profile) throws IOException {
+		if (!(credentials instanceof ServiceAccountCredentials)) {
+			logger.debug("Token cache only applies to service account credentials");
+			return credentials;
+		}
+		ServiceAccountCredentials serviceAccount = (ServiceAccountCredentials) credentials;
+		Path dir = Paths.get(profile.getTokenCacheDir());
+		createPrivateDirectory(dir);
+		TokenCache cache = new TokenCache(dir.resolve(key(serviceAccount.getClientEmail(), scope) + ".json"));
+
+		CachedToken cached = cache.read();
+		if (cached != null && cached.expiresAt - System.currentTimeMillis() > REUSE_MARGIN_MILLIS) {
+			logger.info("Using the cached access token for " + serviceAccount.getClientEmail());
+			ServiceAccountCredentials.Builder builder = serviceAccount.toBuilder();
+			builder.setAccessToken(new AccessToken(cached.token, new Date(cached.expiresAt)));
+			serviceAccount = builder.build();
+		}
+		final ServiceAccountCredentials cachedCredentials = serviceAccount;
+		cachedCredentials.addChangeListener(changed -> cache.onRefresh(changed));
+		if (cached == null || cachedCredentials.getAccessToken() == null) {
+			// fetch now so the token lands in the cache
+			cachedCredentials.refresh();
+		} else {
+			cache.scheduleRefresh(cachedCredentials);
+		}
+		return cachedCredentials;
+	}
+
+	private void onRefresh(OAuth2Credentials credentials) {
+		AccessToken accessToken = credentials.getAccessToken();
+		if (accessToken == null || accessToken.getExpirationTime() == null)
+			return;
+		CachedToken cached = new CachedToken();
+		cached.token = accessToken.getTokenValue();
+		cached.expiresAt = accessToken.getExpirationTime().getTime();
+		try {
+			write(cached);
+		} catch (IOException e) {
+			logger.warn("Could not write the token cache: " + e.getMessage());
+		}
+		scheduleRefresh(credentials);
+	}
+
+	private synchronized void scheduleRefresh(OAuth2Credentials credentials) {
+		AccessToken accessToken = credentials.getAccessToken();
+		if (accessToken == null || accessToken.getExpirationTime() == null)
+			return;
+		if (nextRefresh != null) {
+			nextRefresh.cancel(false);
+		}
+		long delay = Math.max(0, accessToken.getExpirationTime().getTime() - REFRESH_MARGIN_MILLIS - System.currentTimeMillis());
+		logger.debug(format("Next access token refresh in %d s", TimeUnit.MILLISECONDS.toSeconds(delay)));
+		nextRefresh = getScheduler().schedule(() -> {
+			try {
+				credentials.refresh();
+			} catch (IOException e) {
+				logger.warn("Background access token refresh failed: " + e.getMessage());
+			}
+		}, delay, TimeUnit.MILLISECONDS);
+	}
+
+	private static synchronized ScheduledExecutorService getScheduler() {
+		if (scheduler == null) {
+			scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread t = new Thread(r, "apihub-token-refresh");
+				t.setDaemon(true);
+				return t;
+			});
+		}
+		return scheduler;
+	}
+
+	private CachedToken read() {
+		if (!Files.isRegularFile(tokenFile))
+			return null;
+		try (Reader reader = Files.newBufferedReader(tokenFile, StandardCharsets.UTF_8)) {
+			CachedToken cached = new Gson().fromJson(reader, CachedToken.class);
+			return (cached != null && cached.token != null) ? cached : null;
+		} catch (Exception e) {
+			logger.debug("Ignoring unreadable token cache file: " + e.getMessage());
+			return null;
+		}
+	}
+
+	private synchronized void write(CachedToken cached) throws IOException {
+		Path tmp = createPrivateFile(tokenFile.getParent());
+		try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+			new Gson().toJson(cached, writer);
+		}
+		Files.move(tmp, tokenFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private static boolean isPosix() {
+		return FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+	}
+
+	private static void createPrivateDirectory(Path dir) throws IOException {
+		if (Files.isDirectory(dir))
+			return;
+		if (isPosix()) {
+			Files.createDirectories(dir, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+		} else {
+			Files.createDirectories(dir);
+			restrictToOwner(dir.toFile());
+		}
+	}
+
+	private static Path createPrivateFile(Path dir) throws IOException {
+		if (isPosix()) {
+			return Files.createTempFile(dir, "token", ".tmp", PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+		}
+		Path tmp = Files.createTempFile(dir, "token", ".tmp");
+		restrictToOwner(tmp.toFile());
+		return tmp;
+	}
+
+	private static void restrictToOwner(File file) {
+		file.setReadable(false, false);
+		file.setReadable(true, true);
+		file.setWritable(false, false);
+		file.setWritable(true, true);
+	}
+
+	private static String key(String clientEmail, String scope) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			byte[] hash = digest.digest((clientEmail + " " + scope).getBytes(StandardCharsets.UTF_8));
+			StringBuilder sb = new StringBuilder();
+			for (byte b : hash) {
+				sb.append(format("%02x", b));
+			}
+			return sb.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,187 @@
+/**
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apigee.apihub.config.benchmark;
+
+import static java.lang.String.format;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.apigee.apihub.config.fake.FakeApiHubServer;
+import com.apigee.apihub.config.utils.ApiHubTransport;
+import com.apigee.apihub.config.utils.BuildProfile;
+import com.google.api.gax.core.NoCredentialsProvider;
+import com.google.cloud.apihub.v1.ApiHubClient;
+import com.google.cloud.apihub.v1.ApiHubSettings;
+import com.google.cloud.apihub.v1.ListSpecsRequest;
+import com.google.cloud.apihub.v1.Spec;
+import com.google.cloud.apihub.v1.SpecContents;
+import com.google.cloud.apihub.v1.VersionName;
+import com.google.gson.JsonObject;
+import com.google.protobuf.ByteString;
+
+/**
+ * Compares the API Hub client transports against a local {@link FakeApiHubServer}
+ * for list, get and large spec create workloads.
+ *
+ * Run with
+ * <pre>
+ * mvn test-compile exec:java -Dmaven.test.skip=false -Dexec.classpathScope=test \
+ *   -Dexec.mainClass=com.apigee.apihub.config.benchmark.TransportBenchmark \
+ *   -Dexec.args="rest,grpc 200 8"
+ * </pre>
+ * Arguments are the transports, the iterations per workload and the number of client threads.
+ * Transports the client library does not support are reported as such.
+ */
+public class TransportBenchmark {
+
+	private static final String PROJECT = "bench";
+	private static final String LOCATION = "us-central1";
+	private static final String API = "petstore";
+	private static final String VERSION = "v1";
+	private static final int SEEDED_SPECS = 50;
+	private static final int LARGE_SPEC_BYTES = 1024 * 1024;
+
+	interface Workload {
+		void run(ApiHubClient client, int i) throws Exception;
+	}
+
+	public static void main(String[] args) throws Exception {
+		List<String> transports = Arrays.asList((args.length > 0 ? args[0] : "rest,grpc").split(","));
+		int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+		int threads = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+
+		try (FakeApiHubServer server = new FakeApiHubServer()) {
+			String versionName = VersionName.of(PROJECT, LOCATION, API, VERSION).toString();
+			for (int i = 0; i < SEEDED_SPECS; i++) {
+				JsonObject spec = new JsonObject();
+				spec.addProperty("displayName", "spec-" + i);
+				server.put(versionName + "/specs/spec-" + i, spec);
+			}
+			Spec largeSpec = Spec.newBuilder()
+					.setDisplayName("large")
+					.setContents(SpecContents.newBuilder()
+							.setMimeType("application/yaml")
+							.setContents(ByteString.copyFrom(largeContents())))
+					.build();
+
+			System.out.println(format("%-10s %-8s %10s %10s %10s", "transport", "workload", "ops/s", "p50 ms", "p99 ms"));
+			for (String transport : transports) {
+				BuildProfile profile = new BuildProfile();
+				profile.setTransport(transport.trim());
+				ApiHubClient client;
+				try {
+					client = createClient(server, profile);
+				} catch (RuntimeException e) {
+					System.out.println(format("%-10s not available: %s", transport, e.getMessage()));
+					continue;
+				}
+				try {
+					ListSpecsRequest listRequest = ListSpecsRequest.newBuilder().setParent(versionName).build();
+					Workload list = (c, i) -> c.listSpecsCallable().call(listRequest);
+					Workload get = (c, i) -> c.getSpec(versionName + "/specs/spec-" + (i % SEEDED_SPECS));
+					Workload create = (c, i) -> c.createSpec(versionName, largeSpec, transport + "-large-" + i);
+
+					// warm up connections and class loading
+					run(client, list, iterations / 4 + 1, threads);
+					report(transport, "list", run(client, list, iterations, threads));
+					report(transport, "get", run(client, get, iterations, threads));
+					report(transport, "create", run(client, create, iterations, threads));
+				} finally {
+					client.close();
+				}
+			}
+		}
+	}
+
+	static ApiHubClient createClient(FakeApiHubServer server, BuildProfile profile) throws Exception {
+		ApiHubSettings settings = ApiHubSettings.newBuilder()
+				.setEndpoint(server.getEndpoint())
+				.setCredentialsProvider(NoCredentialsProvider.create())
+				.setTransportChannelProvider(ApiHubTransport.channelProvider(ApiHubSettings.defaultHttpJsonTransportProviderBuilder(), profile))
+				.build();
+		return ApiHubClient.create(settings);
+	}
+
+	static class Result {
+		long elapsedNanos;
+		List<Long> latencies;
+	}
+
+	static Result run(ApiHubClient client, Workload workload, int iterations, int threads) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Long> latencies = Collections.synchronizedList(new ArrayList<Long>());
+		AtomicInteger next = new AtomicInteger();
+		long start = System.nanoTime();
+		try {
+			List<Future<?>> futures = new ArrayList<Future<?>>();
+			for (int t = 0; t < threads; t++) {
+				futures.add(executor.submit(() -> {
+					int i;
+					while ((i = next.getAndIncrement()) < iterations) {
+						long callStart = System.nanoTime();
+						workload.run(client, i);
+						latencies.add(System.nanoTime() - callStart);
+					}
+					return null;
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+		Result result = new Result();
+		result.elapsedNanos = System.nanoTime() - start;
+		result.latencies = latencies;
+		return result;
+	}
+
+	static void report(String transport, String workload, Result result) {
+		List<Long> sorted = new ArrayList<Long>(result.latencies);
+		Collections.sort(sorted);
+		double opsPerSecond = sorted.size() / (result.elapsedNanos / 1e9);
+		System.out.println(format("%-10s %-8s %10.1f %10.2f %10.2f", transport, workload, opsPerSecond,
+				percentile(sorted, 0.50) / 1e6, percentile(sorted, 0.99) / 1e6));
+	}
+
+	static long percentile(List<Long> sorted, double p) {
+		if (sorted.isEmpty()) {
+			return 0;
+		}
+		int idx = (int) Math.ceil(p * sorted.size()) - 1;
+		return sorted.get(Math.max(0, Math.min(idx, sorted.size() - 1)));
+	}
+
+	static byte[] largeContents() {
+		StringBuilder sb = new StringBuilder("openapi: 3.0.0\npaths:\n");
+		int i = 0;
+		while (sb.length() < LARGE_SPEC_BYTES) {
+			sb.append(format("  /pets/%d:\n    get:\n      summary: Get pet %d\n", i, i));
+			i++;
+		}
+		return sb.toString().getBytes(StandardCharsets.UTF_8);
+	}
+}
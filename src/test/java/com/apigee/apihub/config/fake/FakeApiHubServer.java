@@ -0,0 +1,490 @@
+/**
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apigee.apihub.config.fake;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.apigee.apihub.config.utils.ApiHubRetrySettings;
+import com.apigee.apihub.config.utils.BuildProfile;
+import com.apigee.apihub.config.utils.RetryConfig;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * In-memory stand-in for the API Hub and API Hub Dependencies REST APIs (v1), for tests,
+ * benchmarks and local runs.
+ *
+ * Resources are stored as their proto JSON, keyed by resource name. Lists are paginated,
+ * creating an existing resource fails with ALREADY_EXISTS and reading a missing one with
+ * NOT_FOUND. Latency and transient errors can be injected to exercise the retry, rate limit
+ * and concurrency settings. Point a client at {@link #getEndpoint()} with no credentials, or
+ * run the mojos against it with {@link #profile(String, String)}.
+ */
+public class FakeApiHubServer implements AutoCloseable {
+
+	// collection -> id query parameter of its create call
+	private static final Map<String, String> COLLECTIONS = new HashMap<String, String>();
+	static {
+		COLLECTIONS.put("apis", "apiId");
+		COLLECTIONS.put("versions", "versionId");
+		COLLECTIONS.put("specs", "specId");
+		COLLECTIONS.put("attributes", "attributeId");
+		COLLECTIONS.put("deployments", "deploymentId");
+		COLLECTIONS.put("externalApis", "externalApiId");
+		COLLECTIONS.put("dependencies", "dependencyId");
+	}
+
+	private static final int DEFAULT_PAGE_SIZE = 100;
+	private static final int MAX_PAGE_SIZE = 1000;
+	private static final long RETRY_BACKOFF_MILLIS = 10;
+
+	/**
+	 * Errors that can be injected, with their HTTP status
+	 */
+	public enum Status {
+		UNAVAILABLE(503), RESOURCE_EXHAUSTED(429), DEADLINE_EXCEEDED(504), INTERNAL(500);
+
+		private final int httpStatus;
+
+		Status(int httpStatus) {
+			this.httpStatus = httpStatus;
+		}
+	}
+
+	private final Gson gson = new GsonBuilder().disableHtmlEscaping().create();
+	private final ConcurrentSkipListMap<String, JsonObject> store = new ConcurrentSkipListMap<String, JsonObject>();
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final AtomicInteger requestCount = new AtomicInteger();
+	private final AtomicInteger injectedErrorCount = new AtomicInteger();
+	private final AtomicInteger failNextCount = new AtomicInteger();
+	private final AtomicReference<Status> failNextStatus = new AtomicReference<Status>();
+	private volatile long minLatencyMillis;
+	private volatile long maxLatencyMillis;
+	private volatile double errorRate;
+	private volatile Status errorStatus = Status.UNAVAILABLE;
+
+	public FakeApiHubServer() throws IOException {
+		this(0);
+	}
+
+	public FakeApiHubServer(int port) throws IOException {
+		AtomicInteger threadCount = new AtomicInteger();
+		executor = Executors.newCachedThreadPool(r -> {
+			Thread t = new Thread(r, "fake-apihub-" + threadCount.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+		server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+		server.createContext("/v1/", this::handle);
+		server.setExecutor(executor);
+		server.start();
+	}
+
+	/**
+	 * @return the endpoint to set on the client settings
+	 */
+	public String getEndpoint() {
+		return "http://localhost:" + server.getAddress().getPort();
+	}
+
+	/**
+	 * @return the number of requests served
+	 */
+	public int getRequestCount() {
+		return requestCount.get();
+	}
+
+	/**
+	 * @return the number of injected errors served
+	 */
+	public int getInjectedErrorCount() {
+		return injectedErrorCount.get();
+	}
+
+	/**
+	 * Delay every request by a random time in the given range
+	 * @param minMillis
+	 * @param maxMillis
+	 * @return this server
+	 */
+	public FakeApiHubServer setLatency(long minMillis, long maxMillis) {
+		this.minLatencyMillis = minMillis;
+		this.maxLatencyMillis = Math.max(minMillis, maxMillis);
+		return this;
+	}
+
+	/**
+	 * Fail the given fraction of requests, before they are applied
+	 * @param rate between 0 and 1
+	 * @param status
+	 * @return this server
+	 */
+	public FakeApiHubServer setErrorRate(double rate, Status status) {
+		this.errorRate = rate;
+		this.errorStatus = status;
+		return this;
+	}
+
+	/**
+	 * Fail the next requests, before they are applied
+	 * @param count
+	 * @param status
+	 * @return this server
+	 */
+	public FakeApiHubServer failNext(int count, Status status) {
+		failNextStatus.set(status);
+		failNextCount.set(count);
+		return this;
+	}
+
+	/**
+	 * Build a profile that points the mojos at this server. The retry settings are the defaults of
+	 * the mojo parameters, with shorter backoffs so that injected errors are retried quickly
+	 * @param projectId
+	 * @param location
+	 * @return
+	 */
+	public BuildProfile profile(String projectId, String location) {
+		BuildProfile profile = new BuildProfile();
+		profile.setProjectId(projectId);
+		profile.setLocation(location);
+		profile.setBearer("fake-token");
+		profile.setEndpoint(getEndpoint());
+		profile.setReadRetry(retry(ApiHubRetrySettings.defaultRetry()));
+		profile.setWriteRetry(retry(ApiHubRetrySettings.defaultRetry()));
+		profile.setCreateRetry(retry(ApiHubRetrySettings.defaultCreateRetry()));
+		profile.setConcurrency(1);
+		profile.setMaxConcurrency(32);
+		return profile;
+	}
+
+	private static RetryConfig retry(RetryConfig defaults) {
+		defaults.setInitialBackoffMillis(RETRY_BACKOFF_MILLIS);
+		defaults.setMaxBackoffMillis(RETRY_BACKOFF_MILLIS * 10);
+		return defaults;
+	}
+
+	/**
+	 * Seed a resource directly, bypassing the REST API
+	 * @param name full resource name
+	 * @param resource proto JSON of the resource
+	 */
+	public void put(String name, JsonObject resource) {
+		JsonObject copy = resource.deepCopy();
+		copy.addProperty("name", name);
+		store.put(name, copy);
+	}
+
+	/**
+	 * @param name full resource name
+	 * @return the stored resource, or null
+	 */
+	public JsonObject get(String name) {
+		return store.get(name);
+	}
+
+	/**
+	 * Remove all resources
+	 */
+	public void reset() {
+		store.clear();
+		setLatency(0, 0);
+		setErrorRate(0, Status.UNAVAILABLE);
+		failNextCount.set(0);
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+		executor.shutdown();
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		requestCount.incrementAndGet();
+		try {
+			delay();
+			Status injected = injectedError();
+			if (injected != null) {
+				injectedErrorCount.incrementAndGet();
+				error(exchange, injected.httpStatus, injected.name(), "Injected " + injected.name());
+				return;
+			}
+			String path = exchange.getRequestURI().getPath().substring("/v1/".length());
+			Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+			String method = exchange.getRequestMethod();
+			if (path.endsWith(":contents") && "GET".equals(method)) {
+				contents(exchange, path.substring(0, path.length() - ":contents".length()));
+				return;
+			}
+			String[] segments = path.split("/");
+			// projects/{p}/locations/{l}/... - an odd number of segments is a collection
+			boolean collection = segments.length % 2 == 1;
+			String last = segments[segments.length - 1];
+			if (collection && COLLECTIONS.containsKey(last)) {
+				if ("GET".equals(method)) {
+					list(exchange, path, last, query.get("pageSize"), query.get("pageToken"));
+					return;
+				}
+				if ("POST".equals(method)) {
+					create(exchange, path, last, query.get(COLLECTIONS.get(last)));
+					return;
+				}
+			}
+			else if (!collection) {
+				if ("GET".equals(method)) {
+					JsonObject resource = store.get(path);
+					if (resource == null) {
+						error(exchange, 404, "NOT_FOUND", path + " not found");
+						return;
+					}
+					send(exchange, 200, view(resource));
+					return;
+				}
+				if ("PATCH".equals(method)) {
+					update(exchange, path, query.get("updateMask"));
+					return;
+				}
+				if ("DELETE".equals(method)) {
+					if (!store.containsKey(path)) {
+						error(exchange, 404, "NOT_FOUND", path + " not found");
+						return;
+					}
+					NavigableMap<String, JsonObject> children = store.subMap(path + "/", true, path + "/\uffff", true);
+					if (!children.isEmpty() && !"true".equals(query.get("force"))) {
+						error(exchange, 400, "FAILED_PRECONDITION", path + " has child resources. Set force to delete them");
+						return;
+					}
+					children.clear();
+					store.remove(path);
+					send(exchange, 200, new JsonObject());
+					return;
+				}
+			}
+			error(exchange, 400, "INVALID_ARGUMENT", "Unsupported request " + method + " " + path);
+		} catch (RuntimeException e) {
+			error(exchange, 500, "INTERNAL", String.valueOf(e.getMessage()));
+		}
+	}
+
+	private void list(HttpExchange exchange, String collectionPath, String collection, String pageSizeParam, String pageToken) throws IOException {
+		int pageSize = (pageSizeParam == null || pageSizeParam.isEmpty()) ? 0 : Integer.parseInt(pageSizeParam);
+		if (pageSize <= 0) {
+			pageSize = DEFAULT_PAGE_SIZE;
+		}
+		pageSize = Math.min(pageSize, MAX_PAGE_SIZE);
+		String prefix = collectionPath + "/";
+		NavigableMap<String, JsonObject> range = store.subMap(prefix, true, prefix + "\uffff", true);
+		if (pageToken != null && !pageToken.isEmpty()) {
+			// the token is the name of the last resource of the previous page
+			String after = new String(Base64.getUrlDecoder().decode(pageToken), StandardCharsets.UTF_8);
+			range = range.tailMap(after, false);
+		}
+		JsonArray items = new JsonArray();
+		String last = null;
+		boolean more = false;
+		for (Map.Entry<String, JsonObject> entry : range.entrySet()) {
+			// direct children only
+			if (entry.getKey().indexOf('/', prefix.length()) >= 0) {
+				continue;
+			}
+			if (items.size() == pageSize) {
+				more = true;
+				break;
+			}
+			items.add(view(entry.getValue()));
+			last = entry.getKey();
+		}
+		JsonObject response = new JsonObject();
+		response.add(collection, items);
+		if (more) {
+			response.addProperty("nextPageToken", Base64.getUrlEncoder().encodeToString(last.getBytes(StandardCharsets.UTF_8)));
+		}
+		send(exchange, 200, response);
+	}
+
+	private void contents(HttpExchange exchange, String name) throws IOException {
+		JsonObject resource = store.get(name);
+		if (resource == null) {
+			error(exchange, 404, "NOT_FOUND", name + " not found");
+			return;
+		}
+		JsonObject contents = resource.has("contents") ? resource.getAsJsonObject("contents") : new JsonObject();
+		send(exchange, 200, contents);
+	}
+
+	private void create(HttpExchange exchange, String collectionPath, String collection, String id) throws IOException {
+		if (id == null || id.isEmpty()) {
+			error(exchange, 400, "INVALID_ARGUMENT", "Missing " + COLLECTIONS.get(collection));
+			return;
+		}
+		String name = collectionPath + "/" + id;
+		JsonObject resource = readBody(exchange);
+		if (store.containsKey(name)) {
+			error(exchange, 409, "ALREADY_EXISTS", name + " already exists");
+			return;
+		}
+		resource.addProperty("name", name);
+		String now = Instant.now().toString();
+		resource.addProperty("createTime", now);
+		resource.addProperty("updateTime", now);
+		store.put(name, resource);
+		send(exchange, 200, view(resource));
+	}
+
+	private void update(HttpExchange exchange, String name, String updateMask) throws IOException {
+		JsonObject existing = store.get(name);
+		if (existing == null) {
+			error(exchange, 404, "NOT_FOUND", name + " not found");
+			return;
+		}
+		JsonObject patch = readBody(exchange);
+		JsonObject updated = existing.deepCopy();
+		if (updateMask == null || updateMask.isEmpty()) {
+			for (Map.Entry<String, com.google.gson.JsonElement> field : patch.entrySet()) {
+				updated.add(field.getKey(), field.getValue());
+			}
+		} else {
+			for (String path : updateMask.split(",")) {
+				String field = toCamelCase(path.trim());
+				if (patch.has(field)) {
+					updated.add(field, patch.get(field));
+				} else {
+					updated.remove(field);
+				}
+			}
+		}
+		updated.addProperty("name", name);
+		updated.addProperty("updateTime", Instant.now().toString());
+		store.put(name, updated);
+		send(exchange, 200, view(updated));
+	}
+
+	private void delay() {
+		long min = minLatencyMillis;
+		long max = maxLatencyMillis;
+		if (max <= 0) {
+			return;
+		}
+		try {
+			Thread.sleep(min == max ? min : ThreadLocalRandom.current().nextLong(min, max + 1));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private Status injectedError() {
+		int remaining;
+		while ((remaining = failNextCount.get()) > 0) {
+			if (failNextCount.compareAndSet(remaining, remaining - 1)) {
+				return failNextStatus.get();
+			}
+		}
+		if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+			return errorStatus;
+		}
+		return null;
+	}
+
+	/**
+	 * Spec contents are only returned by the :contents call
+	 */
+	private JsonObject view(JsonObject resource) {
+		if (!resource.has("contents")) {
+			return resource;
+		}
+		JsonObject copy = resource.deepCopy();
+		copy.remove("contents");
+		return copy;
+	}
+
+	private JsonObject readBody(HttpExchange exchange) throws IOException {
+		try (Reader reader = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)) {
+			JsonObject body = gson.fromJson(reader, JsonObject.class);
+			return body == null ? new JsonObject() : body;
+		}
+	}
+
+	private void error(HttpExchange exchange, int httpStatus, String status, String message) throws IOException {
+		JsonObject error = new JsonObject();
+		error.addProperty("code", httpStatus);
+		error.addProperty("message", message);
+		error.addProperty("status", status);
+		JsonObject body = new JsonObject();
+		body.add("error", error);
+		send(exchange, httpStatus, body);
+	}
+
+	private void send(HttpExchange exchange, int httpStatus, JsonObject body) throws IOException {
+		byte[] bytes = gson.toJson(body).getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+		exchange.sendResponseHeaders(httpStatus, bytes.length);
+		try (OutputStream os = exchange.getResponseBody()) {
+			os.write(bytes);
+		}
+	}
+
+	private static Map<String, String> parseQuery(String rawQuery) throws IOException {
+		Map<String, String> query = new HashMap<String, String>();
+		if (rawQuery == null) {
+			return query;
+		}
+		for (String pair : rawQuery.split("&")) {
+			int idx = pair.indexOf('=');
+			String key = URLDecoder.decode(idx < 0 ? pair : pair.substring(0, idx), "UTF-8");
+			String value = idx < 0 ? "" : URLDecoder.decode(pair.substring(idx + 1), "UTF-8");
+			query.put(key, value);
+		}
+		return query;
+	}
+
+	private static String toCamelCase(String field) {
+		StringBuilder sb = new StringBuilder();
+		boolean upper = false;
+		for (char c : field.toCharArray()) {
+			if (c == '_') {
+				upper = true;
+			} else {
+				sb.append(upper ? Character.toUpperCase(c) : c);
+				upper = false;
+			}
+		}
+		return sb.toString();
+	}
+}
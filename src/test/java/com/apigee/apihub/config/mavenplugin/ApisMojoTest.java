@@ -0,0 +1,210 @@
+/**
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apigee.apihub.config.mavenplugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.apigee.apihub.config.fake.FakeApiHubServer;
+import com.apigee.apihub.config.utils.ApiHubClientSingleton;
+import com.apigee.apihub.config.utils.BuildProfile;
+import com.google.api.gax.rpc.ApiException;
+import com.google.api.gax.rpc.StatusCode.Code;
+import com.google.cloud.apihub.v1.Api;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+/**
+ * Runs the apis goal against {@link FakeApiHubServer}.
+ */
+public class ApisMojoTest {
+
+	private static final String PROJECT_ID = "test-project";
+	private static final String LOCATION = "us-central1";
+	private static final String APIS = "projects/" + PROJECT_ID + "/locations/" + LOCATION + "/apis/";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private FakeApiHubServer server;
+	private BuildProfile profile;
+
+	@Before
+	public void setUp() throws IOException {
+		server = new FakeApiHubServer();
+		profile = server.profile(PROJECT_ID, LOCATION);
+		profile.setConfigDir(folder.getRoot().getPath());
+	}
+
+	@After
+	public void tearDown() {
+		// the clients are kept per project and location, the next server has another endpoint
+		ApiHubClientSingleton.shutdown();
+		server.close();
+	}
+
+	@Test
+	public void createsApis() throws Exception {
+		writeApis("api1", "api2");
+
+		apis("create").execute();
+
+		assertEquals("API api1", server.get(APIS + "api1").get("displayName").getAsString());
+		assertEquals("API api2", server.get(APIS + "api2").get("displayName").getAsString());
+	}
+
+	@Test
+	public void createSkipsExistingApi() throws Exception {
+		server.put(APIS + "api1", displayName("Existing"));
+		writeApis("api1");
+
+		apis("create").execute();
+
+		assertEquals("Existing", server.get(APIS + "api1").get("displayName").getAsString());
+	}
+
+	@Test
+	public void createOfExistingApiFailsWithAlreadyExists() throws Exception {
+		server.put(APIS + "api1", displayName("Existing"));
+		ApisMojo mojo = apis("create");
+		BuildProfile mojoProfile = mojo.getProfile();
+
+		try {
+			mojo.doCreate(mojoProfile, "api1", Api.newBuilder().setDisplayName("API api1").build());
+			fail("create of an existing api succeeded");
+		} catch (RuntimeException e) {
+			assertEquals(Code.ALREADY_EXISTS, ((ApiException) e.getCause()).getStatusCode().getCode());
+		}
+	}
+
+	@Test
+	public void updateCreatesMissingApi() throws Exception {
+		server.put(APIS + "api1", displayName("Existing"));
+		writeApis("api1", "api2");
+
+		apis("update").execute();
+
+		assertEquals("API api1", server.get(APIS + "api1").get("displayName").getAsString());
+		assertEquals("API api2", server.get(APIS + "api2").get("displayName").getAsString());
+	}
+
+	@Test
+	public void updateOfMissingApiFailsWithNotFound() throws Exception {
+		ApisMojo mojo = apis("update");
+		BuildProfile mojoProfile = mojo.getProfile();
+
+		assertFalse(ApisMojo.doesApiExist(mojoProfile, "api1"));
+		try {
+			mojo.doUpdate(mojoProfile, Api.newBuilder().setName(APIS + "api1").setDisplayName("API api1").build());
+			fail("update of a missing api succeeded");
+		} catch (RuntimeException e) {
+			assertEquals(Code.NOT_FOUND, ((ApiException) e.getCause()).getStatusCode().getCode());
+		}
+	}
+
+	@Test
+	public void deleteSkipsMissingApi() throws Exception {
+		server.put(APIS + "api1", displayName("Existing"));
+		writeApis("api1", "api2");
+
+		apis("delete").execute();
+
+		assertNull(server.get(APIS + "api1"));
+		assertNull(server.get(APIS + "api2"));
+	}
+
+	@Test
+	public void exportReadsAllPages() throws Exception {
+		// more than the 1000 apis of a page
+		int count = 2500;
+		for (int i = 0; i < count; i++) {
+			server.put(APIS + "api" + i, displayName("API " + i));
+		}
+		File exportDir = folder.newFolder("export");
+		profile.setConfigExportDir(exportDir.getPath());
+
+		apis("export").execute();
+
+		try (Reader reader = Files.newBufferedReader(new File(exportDir, "apis.json").toPath(), StandardCharsets.UTF_8)) {
+			JsonArray exported = new Gson().fromJson(reader, JsonArray.class);
+			assertEquals(count, exported.size());
+		}
+		assertEquals(3, server.getRequestCount());
+	}
+
+	@Test
+	public void retriesInjectedErrors() throws Exception {
+		writeApis("api1");
+		server.failNext(2, FakeApiHubServer.Status.UNAVAILABLE);
+
+		apis("create").execute();
+
+		assertEquals(2, server.getInjectedErrorCount());
+		assertNotNull(server.get(APIS + "api1"));
+	}
+
+	@Test
+	public void failsOnceRetriesAreExhausted() throws Exception {
+		writeApis("api1");
+		server.setErrorRate(1.0, FakeApiHubServer.Status.UNAVAILABLE);
+
+		try {
+			apis("create").execute();
+			fail("create succeeded with every request failing");
+		} catch (RuntimeException e) {
+			// the existence check is attempted as many times as the read retry settings allow
+			assertEquals(profile.getReadRetry().getMaxAttempts(), server.getInjectedErrorCount());
+		}
+		assertNull(server.get(APIS + "api1"));
+	}
+
+	private ApisMojo apis(String options) {
+		return MojoTestSupport.configure(new ApisMojo(), profile, options);
+	}
+
+	private void writeApis(String... ids) throws IOException {
+		JsonArray apis = new JsonArray();
+		for (String id : ids) {
+			JsonObject api = displayName("API " + id);
+			api.addProperty("name", "projects/PROJECT_ID/locations/LOCATION/apis/" + id);
+			apis.add(api);
+		}
+		Files.write(new File(folder.getRoot(), "apis.json").toPath(), new Gson().toJson(apis).getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static JsonObject displayName(String displayName) {
+		JsonObject api = new JsonObject();
+		api.addProperty("displayName", displayName);
+		return api;
+	}
+}
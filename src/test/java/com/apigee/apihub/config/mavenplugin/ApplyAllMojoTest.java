@@ -0,0 +1,130 @@
+/**
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apigee.apihub.config.mavenplugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.apigee.apihub.config.fake.FakeApiHubServer;
+import com.apigee.apihub.config.utils.ApiHubClientSingleton;
+import com.apigee.apihub.config.utils.BuildProfile;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+/**
+ * Runs the apply-all goal against {@link FakeApiHubServer}.
+ */
+public class ApplyAllMojoTest {
+
+	private static final String PROJECT_ID = "test-project";
+	private static final String LOCATION = "us-central1";
+	private static final String PARENT = "projects/" + PROJECT_ID + "/locations/" + LOCATION + "/";
+	private static final String[] APIS = {"apis/api1", "apis/api2"};
+	private static final String[] VERSIONS = {"apis/api1/versions/v1", "apis/api1/versions/v2", "apis/api2/versions/v1"};
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private FakeApiHubServer server;
+	private BuildProfile profile;
+
+	@Before
+	public void setUp() throws IOException {
+		server = new FakeApiHubServer();
+		profile = server.profile(PROJECT_ID, LOCATION);
+		profile.setConfigDir(folder.getRoot().getPath());
+		profile.setConcurrency(4);
+		writeConfig("apis.json", APIS);
+		writeConfig("apiVersions.json", VERSIONS);
+	}
+
+	@After
+	public void tearDown() {
+		ApiHubClientSingleton.shutdown();
+		server.close();
+	}
+
+	@Test
+	public void graphOrdersEntityGoals() throws Exception {
+		ApplyAllMojo mojo = applyAll("create");
+		mojo.init();
+
+		assertEquals(Arrays.asList("attributes", "deployments", "externalapis", "specs", "dependencies"), mojo.buildGraph().getNames());
+		assertEquals(Arrays.asList("dependencies", "specs", "externalapis", "deployments", "attributes"), mojo.buildGraph().reversed().getNames());
+	}
+
+	@Test
+	public void createsApisAndTheirVersions() throws Exception {
+		applyAll("create").execute();
+
+		for (String name : APIS) {
+			assertNotNull(name, server.get(PARENT + name));
+		}
+		for (String name : VERSIONS) {
+			assertNotNull(name, server.get(PARENT + name));
+		}
+	}
+
+	@Test
+	public void deletesVersionsBeforeTheirApis() throws Exception {
+		// without force delete, the fake fails the delete of an api that still has versions
+		for (String name : APIS) {
+			server.put(PARENT + name, new JsonObject());
+		}
+		for (String name : VERSIONS) {
+			server.put(PARENT + name, new JsonObject());
+		}
+
+		applyAll("delete").execute();
+
+		for (String name : APIS) {
+			assertNull(name, server.get(PARENT + name));
+		}
+		for (String name : VERSIONS) {
+			assertNull(name, server.get(PARENT + name));
+		}
+	}
+
+	private ApplyAllMojo applyAll(String options) {
+		return MojoTestSupport.configure(new ApplyAllMojo(), profile, options);
+	}
+
+	private void writeConfig(String configFile, String... names) throws IOException {
+		JsonArray items = new JsonArray();
+		for (String name : names) {
+			JsonObject item = new JsonObject();
+			item.addProperty("name", "projects/PROJECT_ID/locations/LOCATION/" + name);
+			item.addProperty("displayName", name);
+			items.add(item);
+		}
+		Files.write(new File(folder.getRoot(), configFile).toPath(), new Gson().toJson(items).getBytes(StandardCharsets.UTF_8));
+	}
+}
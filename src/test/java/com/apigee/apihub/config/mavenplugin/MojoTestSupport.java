@@ -0,0 +1,64 @@
+/**
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apigee.apihub.config.mavenplugin;
+
+import java.lang.reflect.Field;
+
+import com.apigee.apihub.config.utils.BuildProfile;
+import com.apigee.apihub.config.utils.RetryConfig;
+
+/**
+ * Sets the parameters of a mojo as Maven would, from a profile such as the one of
+ * {@link com.apigee.apihub.config.fake.FakeApiHubServer#profile(String, String)}.
+ */
+class MojoTestSupport {
+
+	static <T extends ApiHubAbstractMojo> T configure(T mojo, BuildProfile profile, String options) {
+		set(mojo, "options", options);
+		set(mojo, "projectId", profile.getProjectId());
+		set(mojo, "location", profile.getLocation());
+		set(mojo, "bearer", profile.getBearer());
+		set(mojo, "endpoint", profile.getEndpoint());
+		set(mojo, "configDir", profile.getConfigDir());
+		set(mojo, "configExportDir", profile.getConfigExportDir());
+		set(mojo, "forceDelete", profile.getForceDelete());
+		set(mojo, "concurrency", profile.getConcurrency());
+		set(mojo, "maxConcurrency", profile.getMaxConcurrency());
+		set(mojo, "transport", "rest");
+		setRetry(mojo, "read", profile.getReadRetry());
+		setRetry(mojo, "write", profile.getWriteRetry());
+		setRetry(mojo, "create", profile.getCreateRetry());
+		return mojo;
+	}
+
+	private static void setRetry(ApiHubAbstractMojo mojo, String prefix, RetryConfig retry) {
+		set(mojo, prefix + "RetryMaxAttempts", retry.getMaxAttempts());
+		set(mojo, prefix + "RetryInitialBackoffMillis", retry.getInitialBackoffMillis());
+		set(mojo, prefix + "RetryMaxBackoffMillis", retry.getMaxBackoffMillis());
+		set(mojo, prefix + "RetryTotalTimeoutMillis", retry.getTotalTimeoutMillis());
+	}
+
+	private static void set(ApiHubAbstractMojo mojo, String name, Object value) {
+		try {
+			Field field = ApiHubAbstractMojo.class.getDeclaredField(name);
+			field.setAccessible(true);
+			field.set(mojo, value);
+		} catch (ReflectiveOperationException e) {
+			throw new RuntimeException(e.getMessage(), e);
+		}
+	}
+}
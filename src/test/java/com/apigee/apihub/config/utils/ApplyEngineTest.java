@@ -0,0 +1,229 @@
+/**
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apigee.apihub.config.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class ApplyEngineTest {
+
+	private final List<String> processed = Collections.synchronizedList(new ArrayList<String>());
+	private final Map<String, AtomicInteger> active = new ConcurrentHashMap<String, AtomicInteger>();
+	private final Map<String, Integer> peak = new ConcurrentHashMap<String, Integer>();
+
+	// the concurrency limit is kept per target, so each concurrency gets its own project
+	static BuildProfile profile(String projectId, int concurrency) {
+		BuildProfile profile = new BuildProfile();
+		profile.setProjectId(projectId);
+		profile.setLocation("us-central1");
+		profile.setConcurrency(concurrency);
+		profile.setMaxConcurrency(concurrency);
+		return profile;
+	}
+
+	private static String key(String item) {
+		return item.substring(0, 1);
+	}
+
+	/**
+	 * Records the order of the items and how many items of a key run at the same time
+	 */
+	private ApplyEngine.ItemProcessor<String> recorder() {
+		return item -> {
+			int now = active.computeIfAbsent(key(item), k -> new AtomicInteger()).incrementAndGet();
+			peak.merge(key(item), now, Math::max);
+			Thread.sleep(5);
+			processed.add(item);
+			active.get(key(item)).decrementAndGet();
+		};
+	}
+
+	@Test(timeout = 10000)
+	public void runsItemsWithTheSameKeyInOrderOneAtATime() throws Exception {
+		List<String> items = Arrays.asList("a1", "b1", "a2", "c1", "a3", "b2", "c2", "a4");
+
+		new ApplyEngine(profile("engine-test-4", 4)).apply(items, ApplyEngineTest::key, recorder());
+
+		assertEquals(items.size(), processed.size());
+		for (String key : new String[] {"a", "b", "c"}) {
+			List<String> lane = new ArrayList<String>();
+			for (String item : processed) {
+				if (item.startsWith(key))
+					lane.add(item);
+			}
+			List<String> expected = new ArrayList<String>(lane);
+			Collections.sort(expected);
+			assertEquals(expected, lane);
+			assertEquals(Integer.valueOf(1), peak.get(key));
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void runsItemsWithDifferentKeysAtTheSameTime() throws Exception {
+		CountDownLatch started = new CountDownLatch(2);
+		List<Boolean> overlapped = Collections.synchronizedList(new ArrayList<Boolean>());
+
+		new ApplyEngine(profile("engine-test-4", 4)).apply(Arrays.asList("a1", "b1"), ApplyEngineTest::key, item -> {
+			started.countDown();
+			overlapped.add(started.await(5, TimeUnit.SECONDS));
+		});
+
+		assertEquals(Arrays.asList(true, true), overlapped);
+	}
+
+	@Test(timeout = 10000)
+	public void readsPastItemsHeldBackByTheirKey() throws Exception {
+		// a1 only completes once b1 has run, and a2 is held behind a1: reading on to b1 must not
+		// wait for a2 to start
+		CountDownLatch b1 = new CountDownLatch(1);
+
+		new ApplyEngine(profile("engine-test-4", 4)).apply(Arrays.asList("a1", "a2", "b1"), ApplyEngineTest::key, item -> {
+			if (item.equals("a1"))
+				assertTrue(b1.await(5, TimeUnit.SECONDS));
+			processed.add(item);
+			if (item.equals("b1"))
+				b1.countDown();
+		});
+
+		assertEquals(Arrays.asList("b1", "a1", "a2"), processed);
+	}
+
+	@Test(timeout = 10000)
+	public void stopsReadingAheadOfAHotKey() throws Exception {
+		int count = 3 * PluginConstants.MAX_HELD_ITEMS;
+		AtomicInteger read = new AtomicInteger();
+		List<Integer> readAhead = Collections.synchronizedList(new ArrayList<Integer>());
+		Iterable<String> source = () -> new Iterator<String>() {
+			@Override
+			public boolean hasNext() {
+				return read.get() < count;
+			}
+
+			@Override
+			public String next() {
+				return "a" + read.incrementAndGet();
+			}
+		};
+
+		new ApplyEngine(profile("engine-test-4", 4)).apply(source, ApplyEngineTest::key, item -> {
+			if (item.equals("a1"))
+				// the rest of the source could be read meanwhile
+				Thread.sleep(100);
+			readAhead.add(read.get() - processed.size());
+			processed.add(item);
+		});
+
+		assertEquals(count, processed.size());
+		assertTrue(Collections.max(readAhead) <= PluginConstants.MAX_HELD_ITEMS + 1);
+	}
+
+	@Test(timeout = 10000)
+	public void pullsItemsOnlyAsWorkersBecomeFree() throws Exception {
+		AtomicInteger read = new AtomicInteger();
+		List<Integer> readWhenProcessed = new ArrayList<Integer>();
+		Iterable<String> source = () -> new Iterator<String>() {
+			@Override
+			public boolean hasNext() {
+				return read.get() < 5;
+			}
+
+			@Override
+			public String next() {
+				return "item" + read.incrementAndGet();
+			}
+		};
+
+		new ApplyEngine(profile("engine-test-1", 1)).apply(source, item -> readWhenProcessed.add(read.get()));
+
+		assertEquals(Arrays.asList(1, 2, 3, 4, 5), readWhenProcessed);
+	}
+
+	@Test(timeout = 10000)
+	public void stopsAtTheFirstFailure() throws Exception {
+		Exception failure = new Exception("item2 failed");
+
+		try {
+			new ApplyEngine(profile("engine-test-1", 1)).apply(Arrays.asList("item1", "item2", "item3", "item4"), item -> {
+				processed.add(item);
+				if (item.equals("item2"))
+					throw failure;
+			});
+			fail("the failure of item2 was not rethrown");
+		} catch (Exception e) {
+			assertSame(failure, e);
+		}
+		assertEquals(Arrays.asList("item1", "item2"), processed);
+	}
+
+	@Test(timeout = 10000)
+	public void continuesOnErrorAndSkipsItemsUnderTheFailedOne() throws Exception {
+		BuildProfile profile = profile("engine-test-continue", 1);
+		profile.setContinueOnError(true);
+
+		try {
+			new ApplyEngine(profile).apply(Arrays.asList("apis/a", "apis/a/versions/1", "apis/b", "apis/b/versions/1"), item -> {
+				if (item.equals("apis/a"))
+					throw new Exception("apis/a failed");
+				processed.add(item);
+			});
+			fail("the failed items were not reported");
+		} catch (RuntimeException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("2 items failed or were skipped"));
+		}
+		assertEquals(Arrays.asList("apis/b", "apis/b/versions/1"), processed);
+		assertEquals(2, FailureReport.getInstance(profile).getCount());
+	}
+
+	@Test(timeout = 10000)
+	public void holdsPayloadsInTheBudgetWhileTheyAreProcessed() throws Exception {
+		BuildProfile profile = profile("engine-test-4", 4);
+		ByteBudget budget = ByteBudget.getInstance(profile);
+		long before = budget.getInFlightBytes();
+		List<Long> inFlight = Collections.synchronizedList(new ArrayList<Long>());
+
+		try {
+			new ApplyEngine(profile).apply(Arrays.asList("a1", "b1", "c1"), ApplyEngineTest::key, item -> 100L, item -> {
+				inFlight.add(budget.getInFlightBytes());
+				if (item.equals("c1"))
+					throw new Exception("c1 failed");
+			});
+			fail("the failure of c1 was not rethrown");
+		} catch (Exception e) {
+			assertEquals("c1 failed", e.getMessage());
+		}
+		for (long bytes : inFlight) {
+			assertTrue(String.valueOf(bytes), bytes - before >= 100);
+		}
+		// released after success and failure alike
+		assertEquals(before, budget.getInFlightBytes());
+	}
+}
@@ -0,0 +1,171 @@
+/**
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apigee.apihub.config.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class ApplyPipelineTest {
+
+	private static final List<String> APIS = Arrays.asList("apis/a", "apis/b");
+	private static final List<String> VERSIONS = Arrays.asList("apis/a/versions/1", "apis/b/versions/1", "apis/a/versions/2", "apis/c/versions/1");
+	private static final List<String> SPECS = Arrays.asList("apis/a/versions/1/specs/1", "apis/a/versions/2/specs/1", "apis/a/versions/1/specs/2", "apis/b/versions/1/specs/1");
+
+	private final List<String> processed = Collections.synchronizedList(new ArrayList<String>());
+	private final Map<String, AtomicInteger> active = new ConcurrentHashMap<String, AtomicInteger>();
+	private final Map<String, Integer> peak = new ConcurrentHashMap<String, Integer>();
+
+	/**
+	 * @param name
+	 * @return the name without its last collection and id, or null for a top-level name
+	 */
+	static String parentOf(String name) {
+		int slash = name.lastIndexOf('/', name.lastIndexOf('/') - 1);
+		return slash < 0 ? null : name.substring(0, slash);
+	}
+
+	/**
+	 * Records the order of the items and how many items of a parent run at the same time
+	 */
+	private ApplyEngine.ItemProcessor<String> recorder(String failing) {
+		return item -> {
+			String parent = String.valueOf(parentOf(item));
+			int now = active.computeIfAbsent(parent, k -> new AtomicInteger()).incrementAndGet();
+			peak.merge(parent, now, Math::max);
+			try {
+				Thread.sleep(5);
+				processed.add(item);
+				if (item.equals(failing))
+					throw new Exception(item + " failed");
+			} finally {
+				active.get(parent).decrementAndGet();
+			}
+		};
+	}
+
+	private ApplyPipeline pipeline(BuildProfile profile, String failing) {
+		return new ApplyPipeline(profile)
+				.stage(APIS, api -> api, api -> null, recorder(failing))
+				.stage(VERSIONS, version -> version, ApplyPipelineTest::parentOf, recorder(failing))
+				.stage(SPECS, spec -> null, ApplyPipelineTest::parentOf, spec -> 100L, recorder(failing));
+	}
+
+	@Test(timeout = 10000)
+	public void startsItemsOnceTheirParentIsApplied() throws Exception {
+		pipeline(ApplyEngineTest.profile("pipeline-test-4", 4), null).run();
+
+		assertEquals(APIS.size() + VERSIONS.size() + SPECS.size(), processed.size());
+		for (String item : processed) {
+			String parent = parentOf(item);
+			if (processed.contains(parent))
+				assertTrue(item + " before " + parent, processed.indexOf(parent) < processed.indexOf(item));
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void runsItemsWithTheSameParentInOrderOneAtATime() throws Exception {
+		pipeline(ApplyEngineTest.profile("pipeline-test-4", 4), null).run();
+
+		assertTrue(processed.indexOf("apis/a/versions/1") < processed.indexOf("apis/a/versions/2"));
+		assertTrue(processed.indexOf("apis/a/versions/1/specs/1") < processed.indexOf("apis/a/versions/1/specs/2"));
+		for (Map.Entry<String, Integer> parent : peak.entrySet()) {
+			if (!parent.getKey().equals("null"))
+				assertEquals(parent.getKey(), Integer.valueOf(1), parent.getValue());
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void doesNotStartChildrenOfAFailedItem() throws Exception {
+		try {
+			pipeline(ApplyEngineTest.profile("pipeline-test-1", 1), "apis/a").run();
+			fail("the failure of apis/a was not rethrown");
+		} catch (Exception e) {
+			assertEquals("apis/a failed", e.getMessage());
+		}
+		for (String item : processed) {
+			assertFalse(item, item.startsWith("apis/a/"));
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void continuesOnErrorAndReportsHeldBackItems() throws Exception {
+		BuildProfile profile = ApplyEngineTest.profile("pipeline-test-continue", 4);
+		profile.setContinueOnError(true);
+
+		try {
+			pipeline(profile, "apis/a/versions/1").run();
+			fail("the failed items were not reported");
+		} catch (RuntimeException e) {
+			// the version and its two specs, held back in their lane
+			assertTrue(e.getMessage(), e.getMessage().startsWith("3 items failed or were skipped"));
+		}
+		assertEquals(3, FailureReport.getInstance(profile).getCount());
+		// the next version of the same api carries on
+		assertTrue(processed.contains("apis/a/versions/2/specs/1"));
+		assertTrue(processed.contains("apis/b/versions/1/specs/1"));
+		assertFalse(processed.contains("apis/a/versions/1/specs/1"));
+	}
+
+	@Test(timeout = 10000)
+	public void holdsPayloadsInTheBudgetWhileTheyAreProcessed() throws Exception {
+		BuildProfile profile = ApplyEngineTest.profile("pipeline-test-4", 4);
+		ByteBudget budget = ByteBudget.getInstance(profile);
+		long before = budget.getInFlightBytes();
+		List<Long> inFlight = Collections.synchronizedList(new ArrayList<Long>());
+
+		new ApplyPipeline(profile)
+				.stage(APIS, api -> api, api -> null, api -> {})
+				.stage(VERSIONS, version -> version, ApplyPipelineTest::parentOf, version -> {})
+				.stage(SPECS, spec -> null, ApplyPipelineTest::parentOf, spec -> 100L, spec -> inFlight.add(budget.getInFlightBytes()))
+				.run();
+
+		assertEquals(SPECS.size(), inFlight.size());
+		for (long bytes : inFlight) {
+			assertTrue(String.valueOf(bytes), bytes - before >= 100);
+		}
+		assertEquals(before, budget.getInFlightBytes());
+	}
+
+	@Test(timeout = 10000)
+	public void rethrowsTheSameFailure() throws Exception {
+		Exception failure = new Exception("apis/b failed");
+		try {
+			new ApplyPipeline(ApplyEngineTest.profile("pipeline-test-1", 1))
+					.stage(APIS, api -> api, api -> null, api -> {
+						if (api.equals("apis/b"))
+							throw failure;
+					})
+					.run();
+			fail("the failure of apis/b was not rethrown");
+		} catch (Exception e) {
+			assertSame(failure, e);
+		}
+	}
+}
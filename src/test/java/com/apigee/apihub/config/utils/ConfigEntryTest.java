@@ -0,0 +1,97 @@
+/**
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apigee.apihub.config.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.google.protobuf.Type;
+
+public class ConfigEntryTest {
+
+	/**
+	 * @param name
+	 * @param size deferred size
+	 * @return
+	 */
+	private static ConfigEntry<Type> entry(String name, long size) {
+		return new ConfigEntry<Type>(Type.newBuilder().setName(name).build(), 0,
+				size == 0 ? null : new DeferredBytes(Paths.get("specs.json"), 0, size));
+	}
+
+	private static List<String> names(Iterable<ConfigEntry<Type>> entries) {
+		List<String> names = new ArrayList<String>();
+		for (ConfigEntry<Type> entry : entries) {
+			names.add(entry.get().getName());
+		}
+		return names;
+	}
+
+	@Test
+	public void reordersLargestFirstWithinTheWindow() {
+		List<ConfigEntry<Type>> entries = Arrays.asList(entry("a", 300), entry("b", 1500), entry("c", 600),
+				entry("d", 2700), entry("e", 900));
+
+		assertEquals(Arrays.asList("d", "b", "e", "c", "a"), names(ConfigEntry.largestFirst(entries, entries.size())));
+		// b is the largest of a, b and c, then d comes into the window
+		assertEquals(Arrays.asList("b", "d", "e", "c", "a"), names(ConfigEntry.largestFirst(entries, 3)));
+		assertEquals(Arrays.asList("a", "b", "c", "d", "e"), names(ConfigEntry.largestFirst(entries, 1)));
+	}
+
+	@Test
+	public void keepsTheOrderOfEntriesOfTheSameSize() {
+		List<ConfigEntry<Type>> entries = Arrays.asList(entry("a", 0), entry("b", 300), entry("c", 0), entry("d", 300));
+
+		assertEquals(Arrays.asList("b", "d", "a", "c"), names(ConfigEntry.largestFirst(entries, 10)));
+	}
+
+	@Test
+	public void readsAtMostTheWindowAhead() {
+		List<ConfigEntry<Type>> entries = new ArrayList<ConfigEntry<Type>>();
+		for (int i = 0; i < 100; i++) {
+			entries.add(entry("entry" + i, i * 3));
+		}
+		AtomicInteger read = new AtomicInteger();
+		Iterable<ConfigEntry<Type>> source = () -> new Iterator<ConfigEntry<Type>>() {
+			@Override
+			public boolean hasNext() {
+				return read.get() < entries.size();
+			}
+
+			@Override
+			public ConfigEntry<Type> next() {
+				return entries.get(read.getAndIncrement());
+			}
+		};
+
+		int returned = 0;
+		for (Iterator<ConfigEntry<Type>> it = ConfigEntry.largestFirst(source, 10).iterator(); it.hasNext(); it.next()) {
+			assertTrue(read.get() <= returned + 10);
+			returned++;
+		}
+		assertEquals(100, returned);
+	}
+}
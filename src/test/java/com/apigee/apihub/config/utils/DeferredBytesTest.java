@@ -0,0 +1,71 @@
+/**
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apigee.apihub.config.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DeferredBytesTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void sizesInlineValuesWithoutQuotesOrPadding() throws IOException {
+		for (int size = 0; size < 8; size++) {
+			String value = Base64.getEncoder().encodeToString(new byte[size]);
+			assertSize(size, "\"" + value + "\"");
+			assertSize(size, "\"" + value + "\" ,\n  ");
+		}
+	}
+
+	@Test
+	public void sizesInlineValuesWithEscapedPadding() throws IOException {
+		String value = Base64.getEncoder().encodeToString(new byte[4]).replace("=", "\\u003d");
+		assertSize(4, "\"" + value + "\",");
+	}
+
+	@Test
+	public void sizesUnpaddedInlineValues() throws IOException {
+		String value = Base64.getUrlEncoder().withoutPadding().encodeToString(new byte[5]);
+		assertSize(5, "\"" + value + "\"\n");
+	}
+
+	/**
+	 * Check the size computed from the span of the value in a config file against the bytes it decodes to
+	 * @param expected
+	 * @param span the string value and what follows it up to the next token
+	 * @throws IOException
+	 */
+	private void assertSize(long expected, String span) throws IOException {
+		String prefix = "[{\"contents\": ";
+		Path file = folder.newFile().toPath();
+		Files.write(file, (prefix + span + "}]").getBytes(StandardCharsets.US_ASCII));
+		DeferredBytes bytes = DeferredBytes.inline(file, prefix.length(), span.length());
+		assertEquals(expected, bytes.getSize());
+		assertEquals(expected, bytes.load().size());
+	}
+}
@@ -0,0 +1,140 @@
+/**
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apigee.apihub.config.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+public class DeletePlannerTest {
+
+	private final List<String> deleted = Collections.synchronizedList(new ArrayList<String>());
+
+	private ApplyEngine.ItemProcessor<String> delete(String failing) {
+		return item -> {
+			if (item.equals(failing))
+				throw new Exception(item + " failed");
+			deleted.add(item);
+		};
+	}
+
+	private ApplyPipeline pipeline(BuildProfile profile, List<String> apis, List<String> versions, List<String> specs, String failing) {
+		return new ApplyPipeline(profile)
+				.stage(apis, api -> api, api -> null, delete(failing))
+				.stage(versions, version -> version, ApplyPipelineTest::parentOf, delete(failing))
+				.stage(specs, spec -> null, ApplyPipelineTest::parentOf, delete(failing));
+	}
+
+	private static List<Object> items(ApplyPipeline pipeline, int level) {
+		return pipeline.getStages().get(level).items;
+	}
+
+	@Test(timeout = 10000)
+	public void deletesChildrenBeforeTheirParents() throws Exception {
+		BuildProfile profile = ApplyEngineTest.profile("planner-test-4", 4);
+		ApplyPipeline pipeline = pipeline(profile,
+				Arrays.asList("apis/a", "apis/b"),
+				Arrays.asList("apis/a/versions/1", "apis/a/versions/2", "apis/b/versions/1"),
+				Arrays.asList("apis/a/versions/1/specs/1", "apis/a/versions/1/specs/2", "apis/b/versions/1/specs/1"), null);
+
+		new DeletePlanner(profile).run(pipeline);
+
+		assertEquals(8, deleted.size());
+		for (String item : deleted) {
+			String parent = ApplyPipelineTest.parentOf(item);
+			if (parent != null)
+				assertTrue(parent + " before " + item, deleted.indexOf(item) < deleted.indexOf(parent));
+		}
+	}
+
+	@Test
+	public void forceDeleteDropsItemsUnderDeletedParents() {
+		BuildProfile profile = ApplyEngineTest.profile("planner-test-1", 1);
+		profile.setForceDelete(true);
+		ApplyPipeline pipeline = pipeline(profile,
+				Arrays.asList("apis/a"),
+				Arrays.asList("apis/a/versions/1", "apis/b/versions/1"),
+				Arrays.asList("apis/a/versions/1/specs/1", "apis/b/versions/1/specs/1", "apis/c/versions/1/specs/1"), null);
+
+		new DeletePlanner(profile).collapse(pipeline);
+
+		assertEquals(Arrays.asList("apis/a"), items(pipeline, 0));
+		// apis/a is deleted with its subtree, apis/b/versions/1 with its spec
+		assertEquals(Arrays.asList("apis/b/versions/1"), items(pipeline, 1));
+		assertEquals(Arrays.asList("apis/c/versions/1/specs/1"), items(pipeline, 2));
+	}
+
+	@Test
+	public void forceDeleteMatchesWholePathSegments() {
+		BuildProfile profile = ApplyEngineTest.profile("planner-test-1", 1);
+		profile.setForceDelete(true);
+		ApplyPipeline pipeline = pipeline(profile,
+				Arrays.asList("apis/a"),
+				Arrays.asList("apis/ab/versions/1", "apis/a/versions/1"),
+				Arrays.asList("apis/ab/versions/10/specs/1", "apis/ab/versions/1/specs/1"), null);
+
+		new DeletePlanner(profile).collapse(pipeline);
+
+		// apis/ab is not under apis/a, nor apis/ab/versions/10 under apis/ab/versions/1
+		assertEquals(Arrays.asList("apis/ab/versions/1"), items(pipeline, 1));
+		assertEquals(Arrays.asList("apis/ab/versions/10/specs/1"), items(pipeline, 2));
+	}
+
+	@Test(timeout = 10000)
+	public void keepsAParentWhoseChildFailedToDelete() throws Exception {
+		BuildProfile profile = ApplyEngineTest.profile("planner-test-1", 1);
+		ApplyPipeline pipeline = pipeline(profile,
+				Arrays.asList("apis/a", "apis/b"),
+				Arrays.asList("apis/a/versions/1", "apis/b/versions/1"),
+				Collections.<String>emptyList(), "apis/a/versions/1");
+
+		try {
+			new DeletePlanner(profile).run(pipeline);
+			fail("the failure of apis/a/versions/1 was not rethrown");
+		} catch (Exception e) {
+			assertEquals("apis/a/versions/1 failed", e.getMessage());
+		}
+		assertFalse(deleted.contains("apis/a"));
+	}
+
+	@Test(timeout = 10000)
+	public void continuesOnErrorAndReportsTheParentOfAFailedChild() throws Exception {
+		BuildProfile profile = ApplyEngineTest.profile("planner-test-continue", 4);
+		profile.setContinueOnError(true);
+		ApplyPipeline pipeline = pipeline(profile,
+				Arrays.asList("apis/a", "apis/b"),
+				Arrays.asList("apis/a/versions/1", "apis/b/versions/1"),
+				Collections.<String>emptyList(), "apis/a/versions/1");
+
+		try {
+			new DeletePlanner(profile).run(pipeline);
+			fail("the failed items were not reported");
+		} catch (RuntimeException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("2 items failed or were skipped"));
+		}
+		assertEquals(Arrays.asList("apis/b/versions/1", "apis/b"), deleted);
+		assertEquals(2, FailureReport.getInstance(profile).getCount());
+	}
+}
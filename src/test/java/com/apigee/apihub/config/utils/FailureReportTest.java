@@ -0,0 +1,146 @@
+/**
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apigee.apihub.config.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+public class FailureReportTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	// the report is kept per target, so each test has its own project
+	private static BuildProfile profile(String projectId) {
+		BuildProfile profile = new BuildProfile();
+		profile.setProjectId(projectId);
+		profile.setLocation("us-central1");
+		profile.setContinueOnError(true);
+		return profile;
+	}
+
+	private static String name(String projectId, String path) {
+		return "projects/" + projectId + "/locations/us-central1/" + path;
+	}
+
+	@Test
+	public void includesTheItemsOfAnEarlierReport() throws Exception {
+		File reportFile = new File(folder.getRoot(), "apihub-failures.json");
+		BuildProfile failed = profile("report-test-failed");
+		failed.setFailureReport(reportFile.getPath());
+		FailureReport report = FailureReport.getInstance(failed);
+		report.failed(name("report-test-failed", "apis/a"), new Exception("apis/a failed"));
+		report.skipped(name("report-test-failed", "apis/a/versions/1"), name("report-test-failed", "apis/a"));
+		report.write();
+
+		// names are written with placeholders, so the report applies to any target
+		String written = new String(Files.readAllBytes(reportFile.toPath()), StandardCharsets.UTF_8);
+		assertTrue(written, written.contains("projects/PROJECT_ID/locations/LOCATION/apis/a/versions/1"));
+		assertFalse(written, written.contains("report-test-failed"));
+
+		BuildProfile rerun = profile("report-test-rerun");
+		rerun.setInclude(reportFile.getPath());
+		FailureReport included = FailureReport.getInstance(rerun);
+		assertTrue(included.isIncluded(name("report-test-rerun", "apis/a")));
+		assertTrue(included.isIncluded(name("report-test-rerun", "apis/a/versions/1")));
+		assertFalse(included.isIncluded(name("report-test-rerun", "apis/b")));
+		assertEquals(new HashSet<String>(Arrays.asList(name("report-test-rerun", "apis/a"), name("report-test-rerun", "apis/a/versions/1"))),
+				FailureReport.readNames(reportFile.toPath(), ResourceNameRewriter.toTarget(rerun)));
+	}
+
+	@Test
+	public void includesEverythingWithoutAReport() {
+		assertTrue(FailureReport.getInstance(profile("report-test-all")).isIncluded(name("report-test-all", "apis/b")));
+	}
+
+	@Test
+	public void skipsTheChildrenOfFailedAndSkippedItems() {
+		FailureReport report = FailureReport.getInstance(profile("report-test-parent"));
+		report.failed(name("report-test-parent", "apis/a"), new Exception("apis/a failed"));
+		report.skipped(name("report-test-parent", "apis/b/versions/1"), null);
+
+		assertEquals(name("report-test-parent", "apis/a"), report.getFailedParent(name("report-test-parent", "apis/a/versions/1/specs/1")));
+		assertEquals(name("report-test-parent", "apis/b/versions/1"), report.getFailedParent(name("report-test-parent", "apis/b/versions/1/specs/1")));
+		assertNull(report.getFailedParent(name("report-test-parent", "apis/ab/versions/1")));
+		assertEquals(2, report.getCount());
+	}
+
+	@Test(timeout = 10000)
+	public void namesTheFailedChildOfParentsHeldBackWhenLeavesGoFirst() throws Exception {
+		File reportFile = new File(folder.getRoot(), "apihub-failures.json");
+		BuildProfile profile = ApplyEngineTest.profile("report-test-leaves", 1);
+		profile.setContinueOnError(true);
+		profile.setFailureReport(reportFile.getPath());
+		String spec = name("report-test-leaves", "apis/a/versions/1/specs/1");
+		ApplyPipeline pipeline = new ApplyPipeline(profile)
+				.stage(Arrays.asList(name("report-test-leaves", "apis/a")), PluginUtils::getApiKey, api -> null, api -> {})
+				.stage(Arrays.asList(name("report-test-leaves", "apis/a/versions/1")), PluginUtils::getApiVersionKey, PluginUtils::getApiKey, version -> {})
+				.stage(Arrays.asList(spec), s -> null, PluginUtils::getApiVersionKey, s -> {
+					throw new Exception(s + " failed");
+				});
+
+		try {
+			pipeline.runLeavesFirst();
+			fail("the failed spec was not reported");
+		} catch (RuntimeException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("3 items failed or were skipped"));
+		}
+
+		Map<String, JsonObject> entries = new HashMap<String, JsonObject>();
+		try (Reader reader = Files.newBufferedReader(reportFile.toPath(), StandardCharsets.UTF_8)) {
+			for (JsonElement entry : new Gson().fromJson(reader, JsonArray.class)) {
+				entries.put(entry.getAsJsonObject().get("name").getAsString(), entry.getAsJsonObject());
+			}
+		}
+		String placeholders = "projects/PROJECT_ID/locations/LOCATION/";
+		assertTrue(entries.get(placeholders + "apis/a/versions/1/specs/1").has("error"));
+		assertEquals(placeholders + "apis/a/versions/1/specs/1", entries.get(placeholders + "apis/a/versions/1").get("parent").getAsString());
+		assertEquals(placeholders + "apis/a/versions/1", entries.get(placeholders + "apis/a").get("parent").getAsString());
+	}
+
+	@Test
+	public void removesTheReportOfAnEarlierRunWhenNothingFailed() throws Exception {
+		File reportFile = folder.newFile("apihub-failures.json");
+		BuildProfile profile = profile("report-test-clean");
+		profile.setFailureReport(reportFile.getPath());
+
+		FailureReport.getInstance(profile).write();
+
+		assertFalse(reportFile.exists());
+	}
+}
@@ -0,0 +1,150 @@
+/**
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apigee.apihub.config.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ProgressJournalTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private BuildProfile profile;
+	private File configFile;
+	private Path journalFile;
+
+	@Before
+	public void setUp() throws IOException {
+		profile = new BuildProfile();
+		profile.setProjectId("journal-test");
+		profile.setLocation("us-central1");
+		profile.setOptions("create");
+		profile.setResume(true);
+		profile.setResumeDir(new File(folder.getRoot(), "journal").getPath());
+		configFile = folder.newFile("apis.json");
+		writeConfig("[{\"name\":\"apis/a\"},{\"name\":\"apis/b\"},{\"name\":\"apis/c\"}]");
+		journalFile = new File(profile.getResumeDir(), "journal-test-us-central1-apis.json.journal").toPath();
+	}
+
+	private void writeConfig(String content) throws IOException {
+		Files.write(configFile.toPath(), content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private List<String> journalLines() throws IOException {
+		return Files.readAllLines(journalFile, StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void resumesAndIgnoresALineCutShort() throws Exception {
+		try (ProgressJournal journal = ProgressJournal.open(profile, configFile.getPath())) {
+			journal.applied("apis/a");
+			journal.applied("apis/b");
+		}
+		// killed while writing the next name
+		Files.write(journalFile, "apis/".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+		try (ProgressJournal journal = ProgressJournal.open(profile, configFile.getPath())) {
+			assertTrue(journal.isApplied("apis/a"));
+			assertTrue(journal.isApplied("apis/b"));
+			assertFalse(journal.isApplied("apis/"));
+			journal.applied("apis/c");
+		}
+		// the kept names are rewritten without the cut short line
+		List<String> names = new ArrayList<String>(journalLines().subList(1, 4));
+		Collections.sort(names);
+		assertEquals(Arrays.asList("apis/a", "apis/b", "apis/c"), names);
+		assertEquals(4, journalLines().size());
+	}
+
+	@Test
+	public void startsAFreshJournalWhenTheConfigChanged() throws Exception {
+		try (ProgressJournal journal = ProgressJournal.open(profile, configFile.getPath())) {
+			journal.applied("apis/a");
+		}
+		String hash = journalLines().get(0);
+		writeConfig("[{\"name\":\"apis/a\"},{\"name\":\"apis/d\"}]");
+
+		try (ProgressJournal journal = ProgressJournal.open(profile, configFile.getPath())) {
+			assertFalse(journal.isApplied("apis/a"));
+			journal.applied("apis/d");
+		}
+		List<String> lines = journalLines();
+		assertFalse(hash.equals(lines.get(0)));
+		assertEquals(Arrays.asList("apis/d"), lines.subList(1, lines.size()));
+	}
+
+	@Test
+	public void startsAFreshJournalWhenTheOptionsChanged() throws Exception {
+		try (ProgressJournal journal = ProgressJournal.open(profile, configFile.getPath())) {
+			journal.applied("apis/a");
+		}
+		profile.setOptions("update");
+
+		try (ProgressJournal journal = ProgressJournal.open(profile, configFile.getPath())) {
+			assertFalse(journal.isApplied("apis/a"));
+		}
+	}
+
+	@Test
+	public void skipsTheItemsAppliedByAnEarlierRun() throws Exception {
+		try (ProgressJournal journal = ProgressJournal.open(profile, configFile.getPath())) {
+			journal.applied("apis/a");
+		}
+		List<String> processed = new ArrayList<String>();
+
+		ProgressJournal journal = ProgressJournal.open(profile, configFile.getPath());
+		ApplyEngine.ItemProcessor<String> tracked = journal.track(processed::add);
+		for (String item : Arrays.asList("apis/a", "apis/b", "apis/c")) {
+			tracked.process(item);
+		}
+		journal.complete();
+
+		assertEquals(Arrays.asList("apis/b", "apis/c"), processed);
+		// all items are applied, the next run starts over
+		assertFalse(Files.exists(journalFile));
+	}
+
+	@Test
+	public void doesNothingWithoutResume() throws Exception {
+		profile.setResume(false);
+		ApplyEngine.ItemProcessor<String> processor = item -> {};
+
+		try (ProgressJournal journal = ProgressJournal.open(profile, configFile.getPath())) {
+			assertSame(processor, journal.track(processor));
+		}
+		assertFalse(Files.exists(journalFile));
+	}
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apigee.apihub.config.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+public class ShardTest {
+
+	@Test
+	public void parsesShards() {
+		assertEquals("1/1", Shard.parse("1/1").toString());
+		assertEquals("2/3", Shard.parse(" 2 / 3 ").toString());
+		assertEquals("8/8", Shard.parse("8/8").toString());
+	}
+
+	@Test
+	public void rejectsInvalidShards() {
+		for (String shard : new String[] {"", "1", "0/2", "3/2", "1/0", "-1/2", "a/b", "1/2/3", "99999999999/2"}) {
+			try {
+				Shard.parse(shard);
+				fail("accepted " + shard);
+			} catch (RuntimeException e) {
+				assertTrue(e.getMessage(), e.getMessage().startsWith("Invalid apigee.apihub.shard"));
+			}
+		}
+	}
+
+	@Test
+	public void putsEachItemInExactlyOneShard() {
+		for (int i = 0; i < 100; i++) {
+			String name = "projects/p/locations/l/apis/api" + i;
+			int shards = 0;
+			for (int index = 1; index <= 4; index++) {
+				if (new Shard(index, 4).contains(name))
+					shards++;
+			}
+			assertEquals(name, 1, shards);
+		}
+	}
+
+	@Test
+	public void putsChildrenInTheShardOfTheirApi() {
+		for (int i = 0; i < 100; i++) {
+			String api = "projects/PROJECT_ID/locations/LOCATION/apis/api" + i;
+			for (int index = 1; index <= 3; index++) {
+				Shard shard = new Shard(index, 3);
+				boolean contains = shard.contains(api);
+				assertEquals(contains, shard.contains(api + "/versions/v1"));
+				assertEquals(contains, shard.contains(api + "/versions/v1/specs/s1"));
+				// names rewritten to the target fall in the same shard
+				assertEquals(contains, shard.contains("projects/p/locations/l/apis/api" + i + "/versions/v2"));
+			}
+		}
+	}
+
+	@Test
+	public void putsItemsWithoutANameInTheFirstShard() {
+		assertTrue(new Shard(1, 2).contains(null));
+		assertFalse(new Shard(2, 2).contains(null));
+	}
+}
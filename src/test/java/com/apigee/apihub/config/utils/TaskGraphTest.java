@@ -0,0 +1,152 @@
+/**
+ * Copyright 2024 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.apigee.apihub.config.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class TaskGraphTest {
+
+	private final List<String> ran = Collections.synchronizedList(new ArrayList<String>());
+
+	private TaskGraph.Task record(String name) {
+		return () -> ran.add(name);
+	}
+
+	@Test(timeout = 10000)
+	public void runsTasksAfterTheirDependencies() throws Exception {
+		new TaskGraph()
+				.add("a", record("a"))
+				.add("b", record("b"), "a")
+				.add("c", record("c"), "a")
+				.add("d", record("d"), "b", "c")
+				.run(4);
+
+		assertEquals(4, ran.size());
+		assertEquals("a", ran.get(0));
+		assertEquals("d", ran.get(3));
+	}
+
+	@Test(timeout = 10000)
+	public void runsIndependentTasksAtTheSameTime() throws Exception {
+		// each task waits for the other one to start
+		CountDownLatch started = new CountDownLatch(2);
+		List<Boolean> overlapped = Collections.synchronizedList(new ArrayList<Boolean>());
+		TaskGraph.Task task = () -> {
+			started.countDown();
+			overlapped.add(started.await(5, TimeUnit.SECONDS));
+		};
+
+		new TaskGraph().add("a", task).add("b", task).run(2);
+
+		assertEquals(Arrays.asList(true, true), overlapped);
+	}
+
+	@Test(timeout = 10000)
+	public void stopsOnTheFirstFailure() throws Exception {
+		Exception failure = new Exception("a failed");
+		TaskGraph graph = new TaskGraph()
+				.add("a", () -> {
+					ran.add("a");
+					throw failure;
+				})
+				.add("b", record("b"), "a")
+				.add("c", record("c"));
+
+		try {
+			// one at a time, so c starts after a failed
+			graph.run(1);
+			fail("the failure of a was not rethrown");
+		} catch (Exception e) {
+			assertSame(failure, e);
+		}
+		assertEquals(Arrays.asList("a"), ran);
+	}
+
+	@Test(timeout = 10000)
+	public void continuesOnErrorAndRethrowsTheFirstFailure() throws Exception {
+		Exception failure = new Exception("a failed");
+		TaskGraph graph = new TaskGraph()
+				.add("a", () -> {
+					ran.add("a");
+					throw failure;
+				})
+				.add("b", record("b"), "a")
+				.add("c", record("c"), "b");
+
+		try {
+			graph.run(1, true);
+			fail("the failure of a was not rethrown");
+		} catch (Exception e) {
+			assertSame(failure, e);
+		}
+		assertEquals(Arrays.asList("a", "b", "c"), ran);
+	}
+
+	@Test(timeout = 10000)
+	public void rethrowsErrorsAsTheyAre() throws Exception {
+		Error failure = new OutOfMemoryError("a failed");
+		TaskGraph graph = new TaskGraph()
+				.add("a", () -> {
+					ran.add("a");
+					throw failure;
+				})
+				.add("b", record("b"), "a");
+
+		try {
+			graph.run(1);
+			fail("the error of a was not rethrown");
+		} catch (OutOfMemoryError e) {
+			assertSame(failure, e);
+		}
+		assertEquals(Arrays.asList("a"), ran);
+	}
+
+	@Test(timeout = 10000)
+	public void reversedRunsDependentsFirst() throws Exception {
+		TaskGraph reversed = new TaskGraph()
+				.add("a", record("a"))
+				.add("b", record("b"), "a")
+				.add("c", record("c"), "b")
+				.add("d", record("d"), "a")
+				.reversed();
+
+		assertEquals(Arrays.asList("d", "c", "b", "a"), reversed.getNames());
+		reversed.run(4);
+
+		assertEquals(4, ran.size());
+		assertTrue(ran.indexOf("c") < ran.indexOf("b"));
+		assertTrue(ran.indexOf("b") < ran.indexOf("a"));
+		assertTrue(ran.indexOf("d") < ran.indexOf("a"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsUnknownDependencies() {
+		new TaskGraph().add("b", record("b"), "a");
+	}
+}